@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Date;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.io.FileOutputStream;
+
+import cz.cuni.mff.d3s.incverif.wala.WALAUtils;
+
+
+/**
+ * Runs campaigns for multiple subject programs (targets) and modes one after another in the same JVM.
+ * Library classes (JDK, JPF models) are loaded by WALA only once and shared by the class hierarchies of all targets, which removes most of the startup cost of each campaign.
+ *
+ * Arguments: algorithm, comma-separated list of modes, output directory, common arguments for all targets (JPF configuration properties and tool options), "--", and the list of JPF configuration files of the targets.
+ * Output of every campaign is written into the file "<output dir>/<target>_<algorithm>_<mode>.out", and versions of the target are generated into the directory "<output dir>/versions_<target>_<mode>".
+ */
+public class BatchMain
+{
+	public static void main(String[] args)
+	{
+		int sepPos = -1;
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("--"))
+			{
+				sepPos = i;
+				break;
+			}
+		}
+
+		if ( (args.length < 3) || (sepPos < 3) )
+		{
+			System.err.println("usage: BatchMain <algorithm> <mode>[,<mode>...] <output dir> [<common arguments>] -- <target.jpf> ...");
+			return;
+		}
+
+		String algorithm = args[0];
+		String[] modes = args[1].split(",");
+		String outputDirStr = args[2];
+
+		List<String> commonArgs = new ArrayList<String>();
+		for (int i = 3; i < sepPos; i++) commonArgs.add(args[i]);
+
+		WALAUtils.enableLibrarySharing();
+
+		PrintStream batchOut = System.out;
+
+		for (int i = sepPos + 1; i < args.length; i++)
+		{
+			String targetConfigPath = args[i];
+
+			String targetName = new File(targetConfigPath).getName();
+			if (targetName.endsWith(".jpf")) targetName = targetName.substring(0, targetName.length() - 4);
+
+			for (String mode : modes)
+			{
+				List<String> campaignArgs = new ArrayList<String>();
+
+				campaignArgs.add(algorithm);
+				campaignArgs.add(mode);
+				campaignArgs.add(outputDirStr + File.separator + "versions_" + targetName + "_" + mode);
+				campaignArgs.addAll(commonArgs);
+				campaignArgs.add(targetConfigPath);
+
+				File outputFile = new File(outputDirStr, targetName + "_" + algorithm + "_" + mode + ".out");
+
+				batchOut.println("[LOG] batch: target = " + targetName + ", mode = " + mode + ", output = " + outputFile.getPath());
+
+				Date campaignStartTime = new Date();
+
+				PrintStream campaignOut = null;
+
+				try
+				{
+					campaignOut = new PrintStream(new FileOutputStream(outputFile), true);
+
+					System.setOut(campaignOut);
+
+					Main.runCampaign(campaignArgs.toArray(new String[campaignArgs.size()]));
+				}
+				catch (Throwable ex)
+				{
+					// remaining targets are processed anyway
+					System.err.println("[ERROR] campaign for the target " + targetName + " and mode " + mode + " failed");
+					ex.printStackTrace();
+				}
+				finally
+				{
+					System.setOut(batchOut);
+
+					if (campaignOut != null) campaignOut.close();
+				}
+
+				long campaignTimeSec = (new Date().getTime() - campaignStartTime.getTime()) / 1000;
+
+				batchOut.println("[LOG] batch: target = " + targetName + ", mode = " + mode + ", time = " + campaignTimeSec + " s");
+			}
+		}
+	}
+}
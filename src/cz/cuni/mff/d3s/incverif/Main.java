@@ -19,12 +19,25 @@ import java.util.Set;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
 
 import java.io.File;
-import java.nio.file.Path;
-import java.nio.file.FileSystems;
+import java.io.PrintStream;
+import java.io.ByteArrayOutputStream;
 
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.JPF;
@@ -35,7 +48,6 @@ import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder; 
-import com.ibm.wala.ipa.cfg.ExplodedInterproceduralCFG;
 
 import cz.cuni.mff.d3s.incverif.common.ProgramPoint;
 import cz.cuni.mff.d3s.incverif.common.AllocationSite;
@@ -43,6 +55,7 @@ import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
 import cz.cuni.mff.d3s.incverif.common.Utils;
 import cz.cuni.mff.d3s.incverif.wala.WALAContext;
 import cz.cuni.mff.d3s.incverif.wala.WALAUtils;
+import cz.cuni.mff.d3s.incverif.wala.AnalysisSnapshot;
 import cz.cuni.mff.d3s.incverif.wala.AllocationSitesData;
 import cz.cuni.mff.d3s.incverif.wala.TypeAnalysisData;
 import cz.cuni.mff.d3s.incverif.wala.ThreadEscapeAnalysis;
@@ -52,13 +65,33 @@ import cz.cuni.mff.d3s.incverif.analysis.SynchEventCollector;
 import cz.cuni.mff.d3s.incverif.analysis.InterferingActionsCollector;
 import cz.cuni.mff.d3s.incverif.analysis.MethodInvokeLocationsCollector;
 import cz.cuni.mff.d3s.incverif.analysis.VariableUpdateLocationsCollector;
-import cz.cuni.mff.d3s.incverif.pairwise.ThreadExecutionMonitor;
-import cz.cuni.mff.d3s.incverif.tools.ErrorInfoPrinter;
-import cz.cuni.mff.d3s.incverif.tools.MemoryConstrainedJPF;
+import cz.cuni.mff.d3s.incverif.analysis.ProgramCodeScanner;
+import cz.cuni.mff.d3s.incverif.analysis.BytecodeScanner;
+import cz.cuni.mff.d3s.incverif.analysis.ActionInstructionsCollector;
+import cz.cuni.mff.d3s.incverif.analysis.RetainedAnalysis;
+import cz.cuni.mff.d3s.incverif.exec.JPFRunSpec;
+import cz.cuni.mff.d3s.incverif.exec.JPFRunResult;
+import cz.cuni.mff.d3s.incverif.exec.ThreadPairFilter;
+import cz.cuni.mff.d3s.incverif.exec.ThreadCensus;
+import cz.cuni.mff.d3s.incverif.exec.ThreadSymmetry;
+import cz.cuni.mff.d3s.incverif.exec.JPFRunner;
+import cz.cuni.mff.d3s.incverif.exec.VerificationWorkerPool;
+import cz.cuni.mff.d3s.incverif.exec.ForkedJPFRunner;
+import cz.cuni.mff.d3s.incverif.exec.DistributedJPFRunner;
+import cz.cuni.mff.d3s.incverif.exec.JPFResultCache;
+import cz.cuni.mff.d3s.incverif.exec.JPFRunResultStore;
+import cz.cuni.mff.d3s.incverif.exec.CampaignJournal;
+import cz.cuni.mff.d3s.incverif.exec.ResultsStreamWriter;
+import cz.cuni.mff.d3s.incverif.exec.RunTimeStatistics;
+import cz.cuni.mff.d3s.incverif.exec.RunTimeDistribution;
+import cz.cuni.mff.d3s.incverif.exec.TimeBudgetModel;
+import cz.cuni.mff.d3s.incverif.exec.FragmentScheduler;
+import cz.cuni.mff.d3s.incverif.exec.RunCancellation;
+import cz.cuni.mff.d3s.incverif.versions.VersionGenerator;
+import cz.cuni.mff.d3s.incverif.versions.MissingFragmentException;
+import cz.cuni.mff.d3s.incverif.versions.ProgramVersion;
+import cz.cuni.mff.d3s.incverif.versions.VersionGenerationPipeline;
 
-import cz.cuni.mff.d3s.multiver.MultiVerGenMain;
-import cz.cuni.mff.d3s.multiver.SourceLocation;
-import cz.cuni.mff.d3s.multiver.SourceLocations;
 
 
 public class Main
@@ -67,9 +100,88 @@ public class Main
 	public static int TIME_LIMIT_SEC_INCR = 60;
 	public static int TIME_LIMIT_SEC_FULL = 3600;
 
+	// executes JPF runs in separate JVMs (null means that JPF runs inside the main process)
+	private static ForkedJPFRunner forkedJPFRunner = null;
+
+	// persistent cache of results of JPF runs (null means that the cache is disabled)
+	private static JPFResultCache jpfResultCache = null;
+
+	// journal of the current campaign (null means that the journal is disabled)
+	private static CampaignJournal campaignJournal = null;
+
+	// machine-readable record of every processed JPF run (null means that only the human-readable log is printed)
+	private static ResultsStreamWriter resultsStream = null;
+
+	// adaptive limits for the running time of JPF runs learned from previous executions, and the deadline of the whole campaign (null means that the default limits are used and the campaign is not limited)
+	private static TimeBudgetModel timeBudgetModel = null;
+
+	// all JPF runs are cancelled and no new runs are dispatched when the first error is found (null means that the campaign always processes everything)
+	private static RunCancellation runCancellation = null;
+
+	// code fragments that were not covered because the campaign was stopped early (in the order of processing)
+	private static List<CodeBlockBoundary> uncoveredModifiedCodeFragments = new ArrayList<CodeBlockBoundary>();
+
+	// code fragments that were not covered because their class or method does not exist in the subject program (in the order of processing)
+	private static List<CodeBlockBoundary> missingModifiedCodeFragments = new ArrayList<CodeBlockBoundary>();
+
+	// all places where results of finished JPF runs are stored (in the order of lookup)
+	private static List<JPFRunResultStore> jpfResultStores = new ArrayList<JPFRunResultStore>();
+
+	// decides whether the modified code fragment is reachable from the entry method of a thread
+	private static ThreadPairFilter threadPairFilter = null;
+
+	// JPF runs for pairs of threads are skipped when the modified code fragment is not reachable from the entry method of T1
+	private static boolean skipUnreachableThreadPairs = true;
+
+	// known threads of the original program version (shared by all code fragments)
+	private static ThreadPairFilter.VersionThreads origThreads = new ThreadPairFilter.VersionThreads();
+
+	// every program version is executed once before the pairs of threads are processed, so that all thread IDs and entry methods are known up front
+	private static boolean threadCensusEnabled = true;
+
+	// only one representative pair of threads is checked for each combination of equivalence classes of threads (requires the thread census)
+	private static boolean threadSymmetryEnabled = true;
+
+	// all pairs of threads with the same modified thread (T1) are checked by a single JPF run that executes the common prefix only once and then explores every other thread (T2)
+	private static boolean batchOtherThreads = false;
+
+	// threads of the original program version (null if the census is disabled or it failed)
+	private static ThreadCensus origThreadCensus = null;
+
+	// number of threads that scan the code of methods in the static analysis phase (output does not depend on it)
+	private static int numAnalysisThreads = 1;
+
+	// locations of variable updates and method calls are collected also in library classes (modified code fragments are always in the subject program)
+	private static boolean bytecodeAllClasses = false;
+
+	// results of the static analysis are kept in memory for the next campaign in the same JVM (see enableAnalysisRetention)
+	private static boolean analysisRetention = false;
+
+	// results of the static analysis for the last campaign (null if the retention is disabled or the analysis failed)
+	private static RetainedAnalysis retainedAnalysis = null;
+
 
 	public static void main(String[] args)
 	{
+		runCampaign(args);
+	}
+
+	/**
+	 * Runs the whole campaign for a single subject program (arguments are the same as for the method "main").
+	 * All static state is reset first, so that multiple campaigns can run one after another in the same JVM (see BatchMain).
+	 */
+	public static void runCampaign(String[] args)
+	{
+		resetCampaignState();
+
+		// retained results of the static analysis correspond to the program version analyzed by the previous campaign, and therefore only this campaign can use them
+		RetainedAnalysis prevRetainedAnalysis = retainedAnalysis;
+		retainedAnalysis = null;
+
+		// tool options in the form "--some-name value" are turned into JPF configuration properties "incverif.some.name"
+		List<String> toolOptionsAsProps = new ArrayList<String>();
+		args = extractToolOptions(args, toolOptionsAsProps);
+
 		String algorithm = args[0];
 		String mode = args[1];
 	
@@ -79,8 +191,12 @@ public class Main
 		// step 0: process the configuration for JPF and WALA
 
 		// we have to make a clone of the command-line arguments because JPF may change them
-		String[] cmdArgs = new String[args.length - 3];
+		String[] cmdArgs = new String[args.length - 3 + toolOptionsAsProps.size()];
 		System.arraycopy(args, 3, cmdArgs, 0, args.length - 3);
+		for (int i = 0; i < toolOptionsAsProps.size(); i++) cmdArgs[args.length - 3 + i] = toolOptionsAsProps.get(i);
+
+		// forked JPF runs need the original command-line arguments
+		String[] jpfCmdArgs = cmdArgs.clone();
 
 		// load the part of configuration specified in build.xml
 		Config jpfConfigBase = JPF.createConfig(cmdArgs);
@@ -108,6 +224,10 @@ public class Main
 		}
 
 		jpfConfigBase.setProperty("listener", listenerCfgStr);
+
+		// recorded so that the results of JPF runs for different algorithms and modes can be distinguished (e.g., in the result cache)
+		jpfConfigBase.setProperty("incverif.algorithm", algorithm);
+		jpfConfigBase.setProperty("incverif.mode", mode);
 	
 		jpfConfigBase.setProperty("jpf.used_memory_limit", "10240");
 
@@ -119,6 +239,66 @@ public class Main
 			if (freeArgs != null) mainClassName = freeArgs[0];
 		}
 
+		// number of JPF runs that may execute concurrently (each in a separate JVM)
+		int numWorkers = jpfConfigBase.getInt("incverif.workers", 1);
+
+		// JPF runs are executed either inside the main process ("inprocess"), each in a separate short-lived JVM ("forked"), or by workers on other nodes ("distributed", see DistributedWorkerMain)
+			// concurrent JPF runs always need separate JVMs
+			// the number of workers is the number of JPF runs published to the work queue at the same time in the distributed mode
+		String executorKind = jpfConfigBase.getString("incverif.executor", "inprocess");
+		if ( (numWorkers > 1) && ( ! executorKind.equals("distributed") ) ) executorKind = "forked";
+
+		// directory shared by the coordinator and all workers in the distributed mode
+		String workDirStr = jpfConfigBase.getString("incverif.work.dir", "");
+
+		// heap limit for each forked JVM (in the format of the option "-Xmx"), which allows many small JPF runs to share a single machine safely
+		String forkHeapSize = jpfConfigBase.getString("incverif.fork.heap", "");
+
+		// concurrent forked JVMs would otherwise each inherit the heap limit of the main process, so by default they share it (one share is kept for the main process)
+		if ( (forkHeapSize.length() == 0) && (numWorkers > 1) && executorKind.equals("forked") )
+		{
+			forkHeapSize = String.valueOf(Runtime.getRuntime().maxMemory() / (1024 * 1024) / (numWorkers + 1)) + "m";
+		}
+
+		// directory with results of JPF runs from previous executions of the tool
+		String resultCacheDirStr = jpfConfigBase.getString("incverif.result.cache", "");
+
+		// directory with results of the static analysis (call graph, pointer analysis, collectors) for subject programs analyzed before
+		String analysisCacheDirStr = jpfConfigBase.getString("incverif.analysis.cache", "");
+
+		// file with the journal of finished work, which is replayed when the tool is restarted after an interruption
+		String journalFileStr = jpfConfigBase.getString("incverif.journal", "");
+
+		// file to which records of JPF runs are appended in the JSONL format as soon as the runs are processed
+		String resultsStreamFileStr = jpfConfigBase.getString("incverif.results.jsonl", "");
+
+		// file with running times of JPF runs from previous executions of the tool, which determine adaptive time limits
+		String timeHistoryFileStr = jpfConfigBase.getString("incverif.time.history", "");
+
+		// only code fragments in the given methods are verified (comma-separated full signatures, empty means all methods)
+		String fragmentMethodsStr = jpfConfigBase.getString("incverif.fragment.methods", "");
+
+		// wall-clock budget for the whole campaign including the static analysis (in seconds, 0 means no limit)
+		long campaignBudgetSec = jpfConfigBase.getLong("incverif.campaign.budget", 0);
+
+		// code fragments are processed in the order of their estimated value and cost (otherwise in the order of the hash set)
+		boolean fragmentScheduling = jpfConfigBase.getBoolean("incverif.fragment.schedule", true);
+
+		// the campaign stops at the first error found by any JPF run (intended for the bug finding mode, where any error is the answer)
+		if (jpfConfigBase.getBoolean("incverif.failfast", false)) runCancellation = new RunCancellation();
+
+		skipUnreachableThreadPairs = jpfConfigBase.getBoolean("incverif.pairs.prefilter", true);
+
+		threadCensusEnabled = jpfConfigBase.getBoolean("incverif.thread.census", true);
+
+		threadSymmetryEnabled = jpfConfigBase.getBoolean("incverif.thread.symmetry", true);
+
+		batchOtherThreads = jpfConfigBase.getBoolean("incverif.pairwise.batch", false);
+
+		numAnalysisThreads = jpfConfigBase.getInt("incverif.analysis.threads", 1);
+
+		bytecodeAllClasses = jpfConfigBase.getBoolean("incverif.bytecode.all.classes", false);
+
 		Date analysisStartTime = new Date();
 
 		// step 1: init the WALA library for static analysis
@@ -150,15 +330,79 @@ public class Main
 
 		try
 		{
-			allRelevantModifiedCodeFragments = determineAffectedCodeBlocksForInterferingActions(walaCtx, mainClassName, targetClassPathStr, walaExclusionFilePathStr);
+			AnalysisSnapshot analysisSnapshot = null;
+
+			String analysisSnapshotKey = null;
+
+			if (analysisCacheDirStr.length() > 0)
+			{
+				analysisSnapshotKey = AnalysisSnapshot.computeKey(mainClassName, targetClassPathStr, walaExclusionFilePathStr, bytecodeAllClasses);
+
+				analysisSnapshot = AnalysisSnapshot.load(new File(analysisCacheDirStr), analysisSnapshotKey);
+			}
+
+			if (analysisSnapshot != null)
+			{
+				// the call graph and pointer analysis are not computed at all
+				walaCtx.mthSig2CalleeSigs = analysisSnapshot.mthSig2CalleeSigs;
+
+				allRelevantModifiedCodeFragments = analysisSnapshot.codeBlocks;
+
+				System.out.println("[LOG] results of the static analysis loaded from cache");
+			}
+			else
+			{
+				String retainedProgramKey = RetainedAnalysis.createProgramKey(mainClassName, targetClassPathStr, walaExclusionFilePathStr, bytecodeAllClasses);
+
+				// the program may have changed since the previous campaign (e.g., in the watch mode)
+				if ( (prevRetainedAnalysis != null) && prevRetainedAnalysis.programKey.equals(retainedProgramKey) )
+				{
+					allRelevantModifiedCodeFragments = prevRetainedAnalysis.updateForNewVersion(walaCtx, bytecodeAllClasses);
+
+					if (allRelevantModifiedCodeFragments != null)
+					{
+						retainedAnalysis = prevRetainedAnalysis;
+
+						System.out.println("[LOG] results of the static analysis reused for the changed methods");
+					}
+					else
+					{
+						System.out.println("[LOG] changed methods have different calls or actions, the static analysis is computed again");
+					}
+				}
+
+				if (allRelevantModifiedCodeFragments == null)
+				{
+					allRelevantModifiedCodeFragments = determineAffectedCodeBlocksForInterferingActions(walaCtx, mainClassName, targetClassPathStr, walaExclusionFilePathStr);
+				}
+
+				if (analysisSnapshotKey != null) new AnalysisSnapshot(walaCtx.mthSig2CalleeSigs, allRelevantModifiedCodeFragments).store(new File(analysisCacheDirStr), analysisSnapshotKey);
+			}
 		}
 		catch (Exception ex)
 		{
 			System.err.println("[ERROR] static analysis failed");
 			ex.printStackTrace();
+
+			// results may be incomplete
+			retainedAnalysis = null;
+
 			return;
 		}
 
+		if (fragmentMethodsStr.length() > 0)
+		{
+			Set<String> fragmentMethodSigs = new HashSet<String>(Arrays.asList(fragmentMethodsStr.split(",")));
+
+			Iterator<CodeBlockBoundary> cbbIt = allRelevantModifiedCodeFragments.iterator();
+			while (cbbIt.hasNext())
+			{
+				if ( ! fragmentMethodSigs.contains(cbbIt.next().getMethodSignature()) ) cbbIt.remove();
+			}
+
+			System.out.println("[LOG] code fragments restricted to " + fragmentMethodSigs.size() + " methods");
+		}
+
 		Date analysisFinishTime = new Date();
 		
 		long analysisUsedTimeInSec = computeTimeDiffInSec(analysisStartTime, analysisFinishTime);
@@ -167,6 +411,8 @@ public class Main
   		
 		System.out.println("[ANALYSIS] time = " + analysisUsedTimeInSec + " s, memory = " + analysisUsedMemoryInMB + " MB \n");
 
+		threadPairFilter = new ThreadPairFilter(walaCtx);
+
 		// step 3: for every relevant "modified code fragment", generate the corresponding version of the subject program and run JPF upon it
 
 		ExperimentsStats incrExpStats = new ExperimentsStats();
@@ -175,79 +421,306 @@ public class Main
 		System.out.print("\n");
 		System.out.println("[LOG] total number of modified code fragments = " + allRelevantModifiedCodeFragments.size());
 
-		Set<CodeBlockBoundary> remainingModifiedCodeFragments = new HashSet<CodeBlockBoundary>(allRelevantModifiedCodeFragments);
+		if (executorKind.equals("forked"))
+		{
+			System.out.println("[LOG] JPF runs are executed in forked JVMs" + ((forkHeapSize.length() > 0) ? (" with heap limit " + forkHeapSize) : ""));
 
-		for (Iterator<CodeBlockBoundary> rmcfIt = remainingModifiedCodeFragments.iterator(); rmcfIt.hasNext(); )
+			forkedJPFRunner = new ForkedJPFRunner(jpfCmdArgs, forkHeapSize);
+		}
+
+		if (executorKind.equals("distributed"))
 		{
-			// reporting actual progress
-			System.out.print("\n");
-			System.out.println("[LOG] current number of remaining modified code fragments (yet to be processed) = " + remainingModifiedCodeFragments.size());
+			if (workDirStr.length() == 0)
+			{
+				System.err.println("[ERROR] work directory must be specified for distributed JPF runs");
+				return;
+			}
 
-			CodeBlockBoundary modifiedCBB = rmcfIt.next();
-			rmcfIt.remove();
-	
-			incrExpStats.initForNewCodeFragment();
-			fullExpStats.initForNewCodeFragment();
+			System.out.println("[LOG] JPF runs are executed by workers through the work queue in the directory " + workDirStr);
 
-			// generate version of the subject program that does not contain the respective "modified code fragment"
-			// we use the multiver generator tool implemented by Filip Kliber
+			try
+			{
+				forkedJPFRunner = new DistributedJPFRunner(jpfCmdArgs, forkHeapSize, new File(workDirStr));
+			}
+			catch (Exception ex)
+			{
+				System.err.println("[ERROR] cannot open work queue");
+				ex.printStackTrace();
+				return;
+			}
+		}
 
-			Path targetClassPathObj = FileSystems.getDefault().getPath(targetClassPathStr);
+		if (journalFileStr.length() > 0)
+		{
+			// journal can be replayed only for the same subject program and the same settings
+			String campaignDesc = algorithm + " " + mode + " " + mainClassName + " " + jpfConfigBase.getString("target.args", "") + " " + targetClassPathStr + " " + TIME_LIMIT_SEC_INCR + " " + TIME_LIMIT_SEC_FULL;
 
-			// we have to define a separate unique directory name for every "modified code fragment", because the generator requires a completely empty target directory (where it puts the modified Java bytecode class files)
-			
-			String genVersionsPathUniqueStr = genVersionsPathPrefixStr + File.separator + modifiedCBB.hashCode();
-			Path genVersionsPathUniqueObj = FileSystems.getDefault().getPath(genVersionsPathUniqueStr);
+			try
+			{
+				campaignJournal = new CampaignJournal(new File(journalFileStr), campaignDesc);
+			}
+			catch (Exception ex)
+			{
+				System.err.println("[ERROR] cannot open journal");
+				ex.printStackTrace();
+				return;
+			}
 
-			// here we assume that both ends of the modified code fragment lie within the same method
-			// otherwise the "modified code fragment" is not valid
+			System.out.println("[LOG] journal " + journalFileStr + ": finished code fragments = " + campaignJournal.getNumberOfFinishedFragments() + ", finished JPF runs = " + campaignJournal.getNumberOfFinishedRuns());
 
-			if ( ! modifiedCBB.isValid() ) continue;
+			jpfResultStores.add(campaignJournal);
+		}
 
-			String cbbFullMethodSig = modifiedCBB.getMethodSignature();
+		if (resultsStreamFileStr.length() > 0)
+		{
+			String campaignDesc = algorithm + " " + mode + " " + mainClassName + " " + jpfConfigBase.getString("target.args", "") + " " + targetClassPathStr;
 
 			try
 			{
-				// we do not want to modify classes from the Java core standard library
-				if (Utils.isJavaStandardLibraryMethod(cbbFullMethodSig)) continue;
+				resultsStream = new ResultsStreamWriter(new File(resultsStreamFileStr), campaignDesc);
+			}
+			catch (Exception ex)
+			{
+				System.err.println("[ERROR] cannot open results stream");
+				ex.printStackTrace();
+				return;
+			}
+
+			System.out.println("[LOG] records of JPF runs are written to the file " + resultsStreamFileStr);
+		}
+
+		if (resultCacheDirStr.length() > 0)
+		{
+			System.out.println("[LOG] results of JPF runs are cached in the directory " + resultCacheDirStr);
+
+			jpfResultCache = new JPFResultCache(new File(resultCacheDirStr));
 
-				// we ignore code fragments that contain unmatched pairs of bytecode instructions "monitor enter" and "monitor exit"
-				if (WALAUtils.isMethodCodeFragmentWithUnmatchedMonitorEnterExit(cbbFullMethodSig, modifiedCBB.startLoc, modifiedCBB.endLoc, walaCtx)) continue;
+			jpfResultStores.add(jpfResultCache);
+		}
 
-				// we ignore every code fragment that covers/represents all instructions within the given method
-				if (WALAUtils.isCodeFragmentRepresentingWholeMethod(cbbFullMethodSig, modifiedCBB.startLoc, modifiedCBB.endLoc, walaCtx)) continue;
+		if ( (timeHistoryFileStr.length() > 0) || (campaignBudgetSec > 0) )
+		{
+			// history is kept separately for every subject program and mode
+			String benchmarkDesc = algorithm + " " + mode + " " + mainClassName + " " + jpfConfigBase.getString("target.args", "");
 
+			try
+			{
+				timeBudgetModel = new TimeBudgetModel((timeHistoryFileStr.length() > 0) ? new File(timeHistoryFileStr) : null, benchmarkDesc);
 			}
 			catch (Exception ex)
 			{
-				System.err.println("[ERROR] bytecode range inspection failed");
+				System.err.println("[ERROR] cannot load history of running times");
 				ex.printStackTrace();
 				return;
 			}
 
-			incrExpStats.incNumberOfProcessedCodeFragments();
-			fullExpStats.incNumberOfProcessedCodeFragments();
+			if (timeBudgetModel.isAdaptive()) System.out.println("[LOG] adaptive time limits based on the history in " + timeHistoryFileStr);
 
-			System.out.print("\n\n");
-			System.out.println("[LOG] modifiedCBB: methodSig = " + modifiedCBB.getMethodSignature() + ", startLoc = (bcidx:" + modifiedCBB.startLoc.insnBcIndex + ",bcpos:" + modifiedCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + modifiedCBB.endLoc.insnBcIndex + ",bcpos:" + modifiedCBB.endLoc.insnBcPos + ")");
-			System.out.println("[LOG] version unique directory = " + genVersionsPathUniqueStr + File.separator + "stripped");
+			if (campaignBudgetSec > 0)
+			{
+				timeBudgetModel.setCampaignDeadline(analysisStartTime.getTime() + campaignBudgetSec * 1000);
+
+				System.out.println("[LOG] campaign budget = " + campaignBudgetSec + " s");
+			}
+		}
+
+		if (runCancellation != null) System.out.println("[LOG] campaign stops at the first error");
+
+		VerificationWorkerPool workerPool = null;
+
+		if (numWorkers > 1)
+		{
+			System.out.println("[LOG] number of workers for concurrent JPF runs = " + numWorkers);
+
+			workerPool = new VerificationWorkerPool(numWorkers, forkedJPFRunner, jpfResultStores, timeBudgetModel, runCancellation);
+		}
+
+		// code fragments are processed concurrently when JPF runs are executed by the worker pool
+			// each thread of the fixed pool processes one code fragment at a time (mostly waiting for its JPF runs), and JPF runs of all code fragments share the same worker pool, so a single long-running code fragment does not block the others
+		ExecutorService fragmentPool = null;
+
+		// code fragments processed concurrently that were not reported yet (in the order of processing)
+		List<CodeFragmentJob> pendingFragmentJobs = new ArrayList<CodeFragmentJob>();
+
+		if (workerPool != null)
+		{
+			int numFragmentWorkers = jpfConfigBase.getInt("incverif.fragment.workers", numWorkers);
+
+			System.out.println("[LOG] number of code fragments processed concurrently = " + numFragmentWorkers);
+
+			// daemon threads do not prevent the tool from terminating when it stops early because of some error
+			fragmentPool = Executors.newFixedThreadPool(numFragmentWorkers, new ThreadFactory()
+			{
+				public Thread newThread(Runnable r)
+				{
+					Thread th = new Thread(r);
+					th.setDaemon(true);
+					return th;
+				}
+			});
+		}
+
+		// code fragments that are not ignored (see below)
+		Set<CodeBlockBoundary> processedModifiedCodeFragments = new HashSet<CodeBlockBoundary>();
+
+		// some JPF runs are needed unless all code fragments were finished before an interruption
+		boolean unfinishedCodeFragments = false;
+
+		try
+		{
+			for (CodeBlockBoundary modifiedCBB : allRelevantModifiedCodeFragments)
+			{
+				if ( ! isProcessedCodeFragment(modifiedCBB, walaCtx) ) continue;
+
+				processedModifiedCodeFragments.add(modifiedCBB);
+
+				if ( (campaignJournal == null) || (campaignJournal.getFragmentStats(modifiedCBB) == null) ) unfinishedCodeFragments = true;
+			}
+		}
+		catch (Exception ex)
+		{
+			System.err.println("[ERROR] bytecode range inspection failed");
+			ex.printStackTrace();
+			return;
+		}
+
+		// versions for upcoming code fragments are generated in the background while JPF runs for the current code fragment are executed
+			// the lookahead depth bounds the number of versions generated ahead (0 means that each version is generated just before it is needed)
+		int genLookahead = jpfConfigBase.getInt("incverif.gen.lookahead", 2);
+
+		// by default, each version contains only the single modified class and the remaining classes are taken from the original program (layered classpath)
+		boolean genLayered = jpfConfigBase.getBoolean("incverif.gen.layered", true);
+
+		// in-memory versions are created by each JPF run when it loads the modified class, so that nothing is generated on the disk
+		boolean genInMemory = jpfConfigBase.getBoolean("incverif.gen.inmemory", false);
+
+		VersionGenerator versionGen = new VersionGenerator(targetClassPathStr, genVersionsPathPrefixStr, genLayered, genInMemory);
+
+		if (threadCensusEnabled && unfinishedCodeFragments)
+		{
+			System.out.print("\n");
+			System.out.println("[LOG] thread census for the original program version");
+
+			origThreadCensus = runThreadCensus(jpfConfigBase, versionGen.getOriginalVersion());
+
+			recordThreadCensus(origThreadCensus, origThreads, System.out);
+		}
+
+		List<CodeBlockBoundary> remainingModifiedCodeFragments;
+
+		if (fragmentScheduling)
+		{
+			// the most valuable and cheapest code fragments are processed first, so that the campaign covers as much as possible when its budget runs out
+			FragmentScheduler fragmentScheduler = new FragmentScheduler(walaCtx, threadPairFilter, origThreadCensus, timeBudgetModel);
+
+			remainingModifiedCodeFragments = fragmentScheduler.schedule(processedModifiedCodeFragments);
+
+			// ignored code fragments are only reported
+			for (CodeBlockBoundary modifiedCBB : allRelevantModifiedCodeFragments)
+			{
+				if ( ! processedModifiedCodeFragments.contains(modifiedCBB) ) remainingModifiedCodeFragments.add(modifiedCBB);
+			}
+		}
+		else
+		{
+			remainingModifiedCodeFragments = new ArrayList<CodeBlockBoundary>(allRelevantModifiedCodeFragments);
+		}
+
+		// code fragments for which we need to generate versions of the subject program (in the order of processing)
+		List<CodeBlockBoundary> modifiedCodeFragmentsForGeneration = new ArrayList<CodeBlockBoundary>();
+
+		for (CodeBlockBoundary modifiedCBB : remainingModifiedCodeFragments)
+		{
+			if ( ! processedModifiedCodeFragments.contains(modifiedCBB) ) continue;
+
+			// versions are not needed for code fragments finished before an interruption
+			if ( (campaignJournal != null) && (campaignJournal.getFragmentStats(modifiedCBB) != null) ) continue;
+
+			modifiedCodeFragmentsForGeneration.add(modifiedCBB);
+		}
+
+		VersionGenerationPipeline versionGenPipeline = new VersionGenerationPipeline(versionGen, modifiedCodeFragmentsForGeneration, genLookahead);
+
+		for (Iterator<CodeBlockBoundary> rmcfIt = remainingModifiedCodeFragments.iterator(); rmcfIt.hasNext(); )
+		{
+			// output for each code fragment is printed at once (and statistics are updated) when all its JPF runs are finished
+			PrintStream fragmentLog = System.out;
+
+			CodeFragmentJob fragmentJob = null;
+
+			if (fragmentPool != null)
+			{
+				reportFinishedCodeFragments(pendingFragmentJobs, false, walaCtx, incrExpStats, fullExpStats);
+
+				fragmentJob = new CodeFragmentJob();
+				pendingFragmentJobs.add(fragmentJob);
+
+				fragmentLog = fragmentJob.log;
+			}
+
+			// reporting actual progress
+			fragmentLog.print("\n");
+			fragmentLog.println("[LOG] current number of remaining modified code fragments (yet to be processed) = " + remainingModifiedCodeFragments.size());
 
-			String cbbClassName = Utils.extractClassName(cbbFullMethodSig);
-			String cbbMethodName = Utils.extractPlainMethodName(cbbFullMethodSig);
-			String cbbMethodDesc = Utils.extractMethodDescriptor(cbbFullMethodSig);
+			CodeBlockBoundary modifiedCBB = rmcfIt.next();
+			rmcfIt.remove();
+	
+			if (fragmentJob == null)
+			{
+				incrExpStats.initForNewCodeFragment();
+				fullExpStats.initForNewCodeFragment();
+			}
+
+			if ( ! processedModifiedCodeFragments.contains(modifiedCBB) ) continue;
+
+			// statistics of code fragments finished before an interruption are restored from the journal
+			String journalFragmentStats = (campaignJournal != null) ? campaignJournal.getFragmentStats(modifiedCBB) : null;
+
+			if (journalFragmentStats != null)
+			{
+				fragmentLog.print("\n\n");
+				fragmentLog.println("[LOG] modifiedCBB: methodSig = " + modifiedCBB.getMethodSignature() + ", startLoc = (bcidx:" + modifiedCBB.startLoc.insnBcIndex + ",bcpos:" + modifiedCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + modifiedCBB.endLoc.insnBcIndex + ",bcpos:" + modifiedCBB.endLoc.insnBcPos + ")");
+				fragmentLog.println("[LOG] code fragment already processed (statistics restored from journal)");
+
+				if (fragmentJob == null) replayFragmentStats(journalFragmentStats, incrExpStats, fullExpStats);
+				else fragmentJob.journalFragmentStats = journalFragmentStats;
+
+				continue;
+			}
 
-			SourceLocations allSourceLocs = new SourceLocations();
+			if (isCampaignStopped())
+			{
+				fragmentLog.print("\n");
+				fragmentLog.println("[LOG] campaign stopped (" + getCampaignStopReason() + "), code fragment not covered");
+
+				uncoveredModifiedCodeFragments.add(modifiedCBB);
+
+				continue;
+			}
 
-			SourceLocation locModifiedCBB = new SourceLocation(cbbClassName.replace('.', '/'), cbbMethodName, cbbMethodDesc);
+			fragmentLog.print("\n\n");
+			fragmentLog.println("[LOG] modifiedCBB: methodSig = " + modifiedCBB.getMethodSignature() + ", startLoc = (bcidx:" + modifiedCBB.startLoc.insnBcIndex + ",bcpos:" + modifiedCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + modifiedCBB.endLoc.insnBcIndex + ",bcpos:" + modifiedCBB.endLoc.insnBcPos + ")");
+			if ( ! versionGen.isInMemory() )
+			{
+				String strippedVersionPathStr = versionGen.getStrippedVersionPath(modifiedCBB);
 
-			// end location is exclusive so we have to increment the value by 1
-			locModifiedCBB.addRange(modifiedCBB.startLoc.insnBcIndex, modifiedCBB.endLoc.insnBcIndex + 1);
+				fragmentLog.println("[LOG] version unique directory = " + strippedVersionPathStr);
+			}
 
-			allSourceLocs.add(locModifiedCBB);
+			// get version of the subject program that does not contain the respective "modified code fragment"
 
 			try
 			{
-				MultiVerGenMain.run(targetClassPathObj, allSourceLocs, genVersionsPathUniqueObj);
+				versionGenPipeline.awaitVersion(modifiedCBB);
+			}
+			catch (MissingFragmentException ex)
+			{
+				// the version would be identical to the original program, so the code fragment cannot be verified
+				fragmentLog.println("[LOG] version cannot be created (" + ex.getMessage() + "), code fragment not covered");
+
+				missingModifiedCodeFragments.add(modifiedCBB);
+
+				continue;
 			}
 			catch (Exception ex)
 			{
@@ -256,6 +729,16 @@ public class Main
 				return;
 			}
 
+			if (fragmentJob == null)
+			{
+				incrExpStats.incNumberOfProcessedCodeFragments();
+				fullExpStats.incNumberOfProcessedCodeFragments();
+			}
+			else
+			{
+				fragmentJob.processed = true;
+			}
+
 			CodeBlockBoundary additionCBB;
 			CodeBlockBoundary deletionCBB;
 
@@ -285,9 +768,39 @@ public class Main
 			// process all the pairs <T1, T2> of dynamic thread instances for every "modified code fragment"
 				// here, T1 corresponds to the modified thread T and T2 represents the arbitrary other thread T_o
 
+			// the modified program version (without "modified code fragment") and the original program version
+			ProgramVersion deletionVersion = versionGen.getVersion(modifiedCBB);
+			ProgramVersion additionVersion = versionGen.getOriginalVersion();
+
+			// thread IDs may be assigned differently in the modified version (e.g., when the code fragment starts a thread), so its entry methods are recorded separately
+			ThreadPairFilter.VersionThreads deletionThreads = new ThreadPairFilter.VersionThreads();
+
+			if (fragmentJob != null)
+			{
+				fragmentJob.modifiedCBB = modifiedCBB;
+				fragmentJob.deletionCBB = deletionCBB;
+				fragmentJob.additionCBB = additionCBB;
+
+				fragmentJob.results = fragmentPool.submit(createCodeFragmentTask(workerPool, jpfConfigBase, algorithm, deletionVersion, deletionThreads, deletionCBB, additionVersion, additionCBB));
+
+				continue;
+			}
+
+			ThreadCensus deletionThreadCensus = null;
+
+			if (threadCensusEnabled)
+			{
+				System.out.print("\n");
+				System.out.println("[LOG] thread census for the modified program version");
+
+				deletionThreadCensus = runThreadCensus(jpfConfigBase, deletionVersion);
+
+				recordThreadCensus(deletionThreadCensus, deletionThreads, System.out);
+			}
+
 			// global maximum thread ID value over all JPF runs for the pairs <T1, T2>
-			// we assume that the subject program runs at least two concurrent threads
-			int globalMaxThreadID = 1;
+			// the initial value is taken from the thread census, and it may still grow when some JPF run observes a thread not recorded by the census
+			int globalMaxThreadID = getInitialMaxThreadID(deletionThreadCensus);
 
 			// we use two nested while loops
 			// outer while loop over IDs of all threads (from 0 to the dynamic maximum ID computed on-the-fly) to get the ID represented by the symbol T1
@@ -296,9 +809,14 @@ public class Main
 			int outerLoopThreadID = 0;
 			int innerLoopThreadID = 0;
 
-			while (outerLoopThreadID <= globalMaxThreadID)
+			// results for the pairs with the current T1 that were checked by a single JPF run (null if such runs are not used)
+			Map<Integer, JPFRunResult> batchDeletionResults = batchOtherThreads ? new HashMap<Integer, JPFRunResult>() : null;
+			Map<Integer, JPFRunResult> batchAdditionResults = batchOtherThreads ? new HashMap<Integer, JPFRunResult>() : null;
+
+			// no more pairs of threads are checked when the campaign is stopped
+			while ( (outerLoopThreadID <= globalMaxThreadID) && ( ! isCampaignStopped() ) )
 			{
-				while (innerLoopThreadID <= globalMaxThreadID)
+				while ( (innerLoopThreadID <= globalMaxThreadID) && ( ! isCampaignStopped() ) )
 				{
 					System.out.print("\n");
 					System.out.println("[LOG] globalMaxThreadID = " + globalMaxThreadID + ", outerLoopThreadID = " + outerLoopThreadID + ", innerLoopThreadID = " + innerLoopThreadID);
@@ -309,39 +827,19 @@ public class Main
 						continue;
 					}
 		
-					String origBaseCfgListeners = jpfConfigBase.getProperty("listener");
+					// run JPF for the given pair of threads on the input subject program
+						// if the particular dynamic thread instance determined by the outer while loop is not an instance of static thread T, then just a single thread interleaving will be explored (quick and easy solution for the purpose of experimental evaluation)
 	
-					// we have to keep the base configuration intact (since it will be used many times)
-					Config jpfConfigIncr = (Config) jpfConfigBase.clone();
+					// modified program version (current affected "modified code fragment" is removed, simulating deletion)
 
-					jpfConfigIncr.setProperty("listener", "cz.cuni.mff.d3s.incverif.pairwise.DynamicHappensBeforeOrdering," + origBaseCfgListeners);
+					System.out.println("[LOG] checking modified program version (current affected code fragment is removed, simulating deletion)");
+					System.out.println("[LOG] deletionCBB: methodSig = " + deletionCBB.getMethodSignature() + ", startLoc = (bcidx:" + deletionCBB.startLoc.insnBcIndex + ",bcpos:" + deletionCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + deletionCBB.endLoc.insnBcIndex + ",bcpos:" + deletionCBB.endLoc.insnBcPos + ")");
+		
+					// update the JPF configuration to reflect the directory that contains the generated modified version of the subject program (without "modified code fragment")
 
-					if (algorithm.equals("thpairwise"))
-					{
-						jpfConfigIncr.setProperty("vm.scheduler.sync.class", "cz.cuni.mff.d3s.incverif.pairwise.PairwiseSyncPolicy");
-						jpfConfigIncr.setProperty("vm.scheduler.sharedness.class", "cz.cuni.mff.d3s.incverif.pairwise.PairwiseSharednessPolicy");
-					}
-
-					jpfConfigIncr.setProperty("incverif.pairwise.thread.modified.id", String.valueOf(outerLoopThreadID));
-					jpfConfigIncr.setProperty("incverif.pairwise.thread.other.id", String.valueOf(innerLoopThreadID));
-	
-					jpfConfigIncr.setProperty("jpf.time_limit", String.valueOf(TIME_LIMIT_SEC_INCR));
-
-					// run JPF for the given pair of threads on the input subject program
-						// if the particular dynamic thread instance determined by the outer while loop is not an instance of static thread T, then just a single thread interleaving will be explored (quick and easy solution for the purpose of experimental evaluation)
-	
-					// modified program version (current affected "modified code fragment" is removed, simulating deletion)
-
-					System.out.println("[LOG] checking modified program version (current affected code fragment is removed, simulating deletion)");
-					System.out.println("[LOG] deletionCBB: methodSig = " + deletionCBB.getMethodSignature() + ", startLoc = (bcidx:" + deletionCBB.startLoc.insnBcIndex + ",bcpos:" + deletionCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + deletionCBB.endLoc.insnBcIndex + ",bcpos:" + deletionCBB.endLoc.insnBcPos + ")");
-		
-					// update the JPF configuration to reflect the directory that contains the generated modified version of the subject program (without "modified code fragment")
-
-					Config jpfConfigIncrDeletion = (Config) jpfConfigIncr.clone();
-
-					jpfConfigIncrDeletion.setProperty("classpath", ".," + genVersionsPathUniqueStr + File.separator + "stripped");
+					Config jpfConfigIncrDeletion = createIncrementalConfig(jpfConfigBase, algorithm, outerLoopThreadID, innerLoopThreadID, deletionVersion, TimeBudgetModel.getRunClass("incr deletion", additionCBB));
 	
-					globalMaxThreadID = checkProgramVersionByJPF(jpfConfigIncrDeletion, globalMaxThreadID, outerLoopThreadID, deletionCBB, innerLoopThreadID, walaCtx, incrExpStats);
+					globalMaxThreadID = checkProgramVersionByJPF(jpfConfigIncrDeletion, "deletion", deletionThreads, batchDeletionResults, globalMaxThreadID, outerLoopThreadID, deletionCBB, innerLoopThreadID, walaCtx, incrExpStats);
 
 					// original program version (current affected "modified code fragment" is present, simulating addition)
 
@@ -350,11 +848,9 @@ public class Main
 
 					// update the JPF configuration to reflect the directory that contains the received original version of the subject program (with "modified code fragment")
 	
-					Config jpfConfigIncrAddition = (Config) jpfConfigIncr.clone();
-
-					jpfConfigIncrAddition.setProperty("classpath", ".," + targetClassPathStr);
+					Config jpfConfigIncrAddition = createIncrementalConfig(jpfConfigBase, algorithm, outerLoopThreadID, innerLoopThreadID, additionVersion, TimeBudgetModel.getRunClass("incr addition", additionCBB));
 	
-					globalMaxThreadID = checkProgramVersionByJPF(jpfConfigIncrAddition, globalMaxThreadID, outerLoopThreadID, additionCBB, innerLoopThreadID, walaCtx, incrExpStats);
+					globalMaxThreadID = checkProgramVersionByJPF(jpfConfigIncrAddition, "addition", origThreads, batchAdditionResults, globalMaxThreadID, outerLoopThreadID, additionCBB, innerLoopThreadID, walaCtx, incrExpStats);
 
 					// prepare for the next iteration of the inner loop
 
@@ -364,6 +860,12 @@ public class Main
 				// prepare for the next iteration of the outer loop 
 	
 				outerLoopThreadID++;
+
+				if (batchOtherThreads)
+				{
+					batchDeletionResults.clear();
+					batchAdditionResults.clear();
+				}
 	
 				innerLoopThreadID = 0;
 			}
@@ -373,11 +875,6 @@ public class Main
 			System.out.print("\n");
 			System.out.println("[LOG] full verification");
 
-			// we have to keep the base configuration intact (since it will be used many times)
-			Config jpfConfigFull = (Config) jpfConfigBase.clone();
-
-			jpfConfigFull.setProperty("jpf.time_limit", String.valueOf(TIME_LIMIT_SEC_FULL));
-
 			// modified program version (current affected "modified code fragment" is removed, simulating deletion)
 
 			System.out.println("[LOG] checking modified program version (current affected code fragment is removed, simulating deletion)");
@@ -385,247 +882,922 @@ public class Main
 		
 			// update the JPF configuration to reflect the directory that contains the generated modified version of the subject program (without "modified code fragment")
 
-			Config jpfConfigFullDeletion = (Config) jpfConfigFull.clone();
+			Config jpfConfigFullDeletion = createFullConfig(jpfConfigBase, deletionVersion, TimeBudgetModel.getRunClass("full deletion", additionCBB));
+	
+			checkFullProgramByJPF(jpfConfigFullDeletion, "deletion", deletionCBB, walaCtx, fullExpStats);
+
+
+			// original program version (current affected "modified code fragment" is present, simulating addition)
+
+			System.out.println("[LOG] checking original program version (current affected code fragment is present, simulating addition)");
+			System.out.println("[LOG] additionCBB: methodSig = " + additionCBB.getMethodSignature() + ", startLoc = (bcidx:" + additionCBB.startLoc.insnBcIndex + ",bcpos:" + additionCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + additionCBB.endLoc.insnBcIndex + ",bcpos:" + additionCBB.endLoc.insnBcPos + ")");
+
+			// update the JPF configuration to reflect the directory that contains the received original version of the subject program (with "modified code fragment")
+	
+			Config jpfConfigFullAddition = createFullConfig(jpfConfigBase, additionVersion, TimeBudgetModel.getRunClass("full addition", null));
+	
+			checkFullProgramByJPF(jpfConfigFullAddition, "addition", additionCBB, walaCtx, fullExpStats);
+
+			// the code fragment is covered only when all its JPF runs finished before the campaign was stopped
+			if (isCampaignStopped())
+			{
+				System.out.print("\n");
+				System.out.println("[LOG] campaign stopped (" + getCampaignStopReason() + "), code fragment not covered");
+
+				incrExpStats.discardCurrentFragment();
+				fullExpStats.discardCurrentFragment();
+
+				uncoveredModifiedCodeFragments.add(modifiedCBB);
+
+				continue;
+			}
+
+			if (campaignJournal != null) campaignJournal.storeFragmentStats(modifiedCBB, createFragmentStatsRecord(incrExpStats, fullExpStats));
+		}
+
+		if (fragmentPool != null)
+		{
+			reportFinishedCodeFragments(pendingFragmentJobs, true, walaCtx, incrExpStats, fullExpStats);
+
+			fragmentPool.shutdown();
+		}
+
+		versionGenPipeline.shutdown();
+
+		if (workerPool != null) workerPool.shutdown();
+
+		if (campaignJournal != null) campaignJournal.close();
+
+		if (resultsStream != null) resultsStream.close();
+
+		// workers terminate when they process all pending work items
+		if (forkedJPFRunner instanceof DistributedJPFRunner) ((DistributedJPFRunner) forkedJPFRunner).shutdown();
+
+		if ( (timeBudgetModel != null) && timeBudgetModel.isAdaptive() )
+		{
+			timeBudgetModel.save();
+
+			System.out.print("\n");
+			System.out.println("[LOG] adaptive time limits: shortened runs = " + timeBudgetModel.getNumberOfShortenedRuns() + ", extended runs = " + timeBudgetModel.getNumberOfExtendedRuns() + ", reclaimed time = " + (timeBudgetModel.getReclaimedTimeMS() / 1000) + " s, unused reserve = " + (timeBudgetModel.getReserveMS() / 1000) + " s");
+		}
+
+		incrExpStats.finishCodeFragments();
+		fullExpStats.finishCodeFragments();
+
+		RunTimeDistribution incrRunningTimesOverCodeFragments = incrExpStats.getRunningTimesOverThreadPairs().getFragmentTimes();
+
+		System.out.print("\n\n");
+		System.out.println("[JPF SUMMARY] incremental verification: total number of code fragments = " + incrExpStats.getNumberOfProcessedCodeFragments() + ", total runs over thread pairs = " + incrExpStats.getTotalCountOfRunsOverThreadPairs() + ", timedout runs over thread pairs = " + incrExpStats.getCountOfTimedoutRunsOverThreadPairs() + ", failed runs over thread pairs = " + incrExpStats.getCountOfFailedRuns() + ", skipped runs over thread pairs = " + incrExpStats.getCountOfSkippedRunsOverThreadPairs() + ", symmetric runs over thread pairs = " + incrExpStats.getCountOfSymmetricRunsOverThreadPairs() + ", average running time over modified code fragments = " + formatRunningTime(incrRunningTimesOverCodeFragments.getMean()) + " ms, standard deviation for running time over modified code fragments = " + formatRunningTime(incrRunningTimesOverCodeFragments.getStandardDeviation()) + " ms \n");
+
+		printRunningTimeDistributions("incremental verification", "thread pair", incrExpStats.getRunningTimesOverThreadPairs());
+	
+		RunTimeDistribution fullRunningTimesOverCodeFragments = fullExpStats.getRunningTimesOverAllThreads().getFragmentTimes();
+
+		System.out.print("\n\n");
+		System.out.println("[JPF SUMMARY] full verification: total number of code fragments = " + fullExpStats.getNumberOfProcessedCodeFragments() + ", total runs over all threads = " + fullExpStats.getTotalCountOfRunsOverAllThreads() + ", timedout runs over all threads = " + fullExpStats.getCountOfTimedoutRunsOverAllThreads() + ", failed runs over all threads = " + fullExpStats.getCountOfFailedRuns() + ", average running time over modified code fragments = " + formatRunningTime(fullRunningTimesOverCodeFragments.getMean()) + " ms, standard deviation for running time over modified code fragments = " + formatRunningTime(fullRunningTimesOverCodeFragments.getStandardDeviation()) + " ms \n");
+
+		printRunningTimeDistributions("full verification", "run", fullExpStats.getRunningTimesOverAllThreads());
+
+		if ( ! uncoveredModifiedCodeFragments.isEmpty() )
+		{
+			// statistics above cover only code fragments whose JPF runs all finished before the campaign was stopped
+			System.out.print("\n\n");
+			System.out.println("[JPF SUMMARY] campaign stopped early (" + getCampaignStopReason() + "): code fragments not covered = " + uncoveredModifiedCodeFragments.size());
+
+			for (CodeBlockBoundary modifiedCBB : uncoveredModifiedCodeFragments)
+			{
+				System.out.println("[LOG] not covered: methodSig = " + modifiedCBB.getMethodSignature() + ", startLoc = (bcidx:" + modifiedCBB.startLoc.insnBcIndex + ",bcpos:" + modifiedCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + modifiedCBB.endLoc.insnBcIndex + ",bcpos:" + modifiedCBB.endLoc.insnBcPos + ")");
+			}
+		}
+
+		if ( ! missingModifiedCodeFragments.isEmpty() )
+		{
+			// no program version without these code fragments exists, so they are not included in the statistics above
+			System.out.print("\n\n");
+			System.out.println("[JPF SUMMARY] class or method does not exist in the subject program: code fragments not covered = " + missingModifiedCodeFragments.size());
+
+			for (CodeBlockBoundary modifiedCBB : missingModifiedCodeFragments)
+			{
+				System.out.println("[LOG] not covered: methodSig = " + modifiedCBB.getMethodSignature() + ", startLoc = (bcidx:" + modifiedCBB.startLoc.insnBcIndex + ",bcpos:" + modifiedCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + modifiedCBB.endLoc.insnBcIndex + ",bcpos:" + modifiedCBB.endLoc.insnBcPos + ")");
+			}
+		}
+
+		if ( (runCancellation != null) && (runCancellation.getFirstErrorSpec() != null) )
+		{
+			JPFRunSpec errorSpec = runCancellation.getFirstErrorSpec();
+
+			String errorOrigin = "full verification";
+
+			if (errorSpec.modifiedCBB != null) errorOrigin = "methodSig = " + errorSpec.modifiedCBB.getMethodSignature() + ", startLoc = (bcidx:" + errorSpec.modifiedCBB.startLoc.insnBcIndex + ",bcpos:" + errorSpec.modifiedCBB.startLoc.insnBcPos + "), modified thread = " + errorSpec.modifiedThreadID + ", other thread = " + errorSpec.otherThreadID;
+
+			System.out.print("\n\n");
+			System.out.println("[JPF SUMMARY] first error: " + errorOrigin);
+			System.out.println(runCancellation.getFirstErrorResult().errorInfo);
+		}
+	}
+
+	/**
+	 * Makes every campaign keep results of the static analysis in memory, so that the next campaign for the same subject program can reuse them when all methods keep their sequences of calls and interfering actions (see RetainedAnalysis).
+	 * The reuse is unsound, because changes of the data flow may change results of the pointer analysis, and therefore it must be enabled explicitly (WatchMain does that only with the option "--watch-reuse-analysis").
+	 */
+	public static void enableAnalysisRetention()
+	{
+		analysisRetention = true;
+	}
+
+	private static void resetCampaignState()
+	{
+		TIME_LIMIT_SEC_INCR = 60;
+		TIME_LIMIT_SEC_FULL = 3600;
+
+		forkedJPFRunner = null;
+		jpfResultCache = null;
+		campaignJournal = null;
+		resultsStream = null;
+		timeBudgetModel = null;
+		runCancellation = null;
+
+		uncoveredModifiedCodeFragments = new ArrayList<CodeBlockBoundary>();
+
+		missingModifiedCodeFragments = new ArrayList<CodeBlockBoundary>();
+
+		jpfResultStores = new ArrayList<JPFRunResultStore>();
+
+		threadPairFilter = null;
+		skipUnreachableThreadPairs = true;
+
+		origThreads = new ThreadPairFilter.VersionThreads();
+
+		threadCensusEnabled = true;
+		threadSymmetryEnabled = true;
+		batchOtherThreads = false;
+
+		origThreadCensus = null;
+
+		numAnalysisThreads = 1;
+
+		bytecodeAllClasses = false;
+	}
+
+	private static Set<CodeBlockBoundary> determineAffectedCodeBlocksForInterferingActions(WALAContext walaCtx, String mainClassName, String targetClassPath, String walaExclusionFilePath) throws Exception
+	{
+		// just to keep the argument lists compact (avoid the prefix "walaCtx")
+		IClassHierarchy classHierarchy = walaCtx.classHierarchy;
+		AnalysisScope scope = walaCtx.scope;
+		AnalysisOptions options = walaCtx.options;
+		AnalysisCache cache = walaCtx.cache;  
+
+		// compute necessary information about updates (write accesses) of variables and method calls (that return "void")
+			// both collectors are fed by a single pass over the bytecode of classes in the subject program, which also creates maps from bytecode positions to indexes for these classes
+
+		VariableUpdateLocationsCollector updateColl = new VariableUpdateLocationsCollector();
+		MethodInvokeLocationsCollector invokeColl = new MethodInvokeLocationsCollector(true);
+
+		// instructions relevant for the call graph and interfering actions are recorded only for the reuse of the results by the next campaign
+		ActionInstructionsCollector actionInsnsColl = analysisRetention ? new ActionInstructionsCollector() : null;
+
+		BytecodeScanner bcScanner = new BytecodeScanner(bytecodeAllClasses);
+		bcScanner.addVisitor(updateColl);
+		bcScanner.addVisitor(invokeColl);
+		if (actionInsnsColl != null) bcScanner.addVisitor(actionInsnsColl);
+		bcScanner.analyzeProgram(walaCtx);
+
+		// build call graph and compute pointer analysis to identify heap objects (for aliasing)
+
+		// standard context-insensitive exhaustive pointer analysis (andersen)
+		SSAPropagationCallGraphBuilder cgBuilder = com.ibm.wala.ipa.callgraph.impl.Util.makeVanillaZeroOneCFABuilder(options, cache, classHierarchy, scope);
+	
+		walaCtx.callGraph = cgBuilder.makeCallGraph(options, null);
+
+		WALAUtils.loadMethodNodesCache(walaCtx);
+
+		walaCtx.mthSig2CalleeSigs = WALAUtils.createCallEdgesMap(walaCtx);
+	
+		walaCtx.pointerAnalysis = cgBuilder.getPointerAnalysis();
+
+		walaCtx.allocSitesData = new AllocationSitesData();
+		walaCtx.allocSitesData.initializeData(walaCtx);
+
+		walaCtx.typeData = new TypeAnalysisData();
+
+		// simple static thread escape analysis that identifies possibly shared objects
+
+		ThreadEscapeAnalysis thEscAnalysis = new ThreadEscapeAnalysis();
+		thEscAnalysis.analyzeProgram(walaCtx);
+
+		Set<AllocationSite> sharedObjects = thEscAnalysis.escapedAllocSites;
+
+		// identify all possible interfering actions by static analysis
+
+		// collect field accesses, array object accesses, and synchronization events that may occur during program execution in a flow-insensitive way
+			// all three collectors are fed by a single pass over the code of each method (methods may be processed in parallel)
+		
+		FieldAccessCollector fieldsColl = new FieldAccessCollector();
+		ArrayObjectAccessCollector arraysColl = new ArrayObjectAccessCollector();
+		SynchEventCollector synchColl = new SynchEventCollector();
+
+		ProgramCodeScanner codeScanner = new ProgramCodeScanner(numAnalysisThreads);
+		codeScanner.addVisitor(fieldsColl);
+		codeScanner.addVisitor(arraysColl);
+		codeScanner.addVisitor(synchColl);
+		codeScanner.analyzeProgram(walaCtx);
+
+		// we ignore actions on thread local objects
+
+		fieldsColl.dropThreadLocalAccesses(sharedObjects);
+		arraysColl.dropThreadLocalAccesses(sharedObjects);
+		synchColl.dropThreadLocalEvents(sharedObjects);
+
+		// aggregating program points of all possibly interfering actions (statements)
+		// for each interfering action, it returns the range of program points that represent boundaries of the affected code block
+
+		InterferingActionsCollector actionsColl = new InterferingActionsCollector(walaCtx, fieldsColl, arraysColl, synchColl, updateColl, invokeColl);
+
+		Set<CodeBlockBoundary> codeBlocks = actionsColl.getAffectedCodeBlockBoundaries();
+
+		if (actionInsnsColl != null) retainedAnalysis = new RetainedAnalysis(RetainedAnalysis.createProgramKey(mainClassName, targetClassPath, walaExclusionFilePath, bytecodeAllClasses), walaCtx, actionInsnsColl, fieldsColl, arraysColl, synchColl);
+
+		return codeBlocks;
+	}
+
+	private static boolean isProcessedCodeFragment(CodeBlockBoundary modifiedCBB, WALAContext walaCtx) throws Exception
+	{
+		// here we assume that both ends of the modified code fragment lie within the same method
+		// otherwise the "modified code fragment" is not valid
+
+		if ( ! modifiedCBB.isValid() ) return false;
+
+		String cbbFullMethodSig = modifiedCBB.getMethodSignature();
+
+		// we do not want to modify classes from the Java core standard library
+		if (Utils.isJavaStandardLibraryMethod(cbbFullMethodSig)) return false;
+
+		// we ignore code fragments that contain unmatched pairs of bytecode instructions "monitor enter" and "monitor exit"
+		if (WALAUtils.isMethodCodeFragmentWithUnmatchedMonitorEnterExit(cbbFullMethodSig, modifiedCBB.startLoc, modifiedCBB.endLoc, walaCtx)) return false;
+
+		// we ignore every code fragment that covers/represents all instructions within the given method
+		if (WALAUtils.isCodeFragmentRepresentingWholeMethod(cbbFullMethodSig, modifiedCBB.startLoc, modifiedCBB.endLoc, walaCtx)) return false;
+
+		return true;
+	}
+
+	private static Config createIncrementalConfig(Config jpfConfigBase, String algorithm, int modifiedThreadID, int otherThreadID, ProgramVersion version, String runClass)
+	{
+		String origBaseCfgListeners = jpfConfigBase.getProperty("listener");
+
+		// we have to keep the base configuration intact (since it will be used many times)
+		Config jpfConfigIncr = (Config) jpfConfigBase.clone();
+
+		jpfConfigIncr.setProperty("listener", "cz.cuni.mff.d3s.incverif.pairwise.DynamicHappensBeforeOrdering," + origBaseCfgListeners);
+
+		if (algorithm.equals("thpairwise"))
+		{
+			jpfConfigIncr.setProperty("vm.scheduler.sync.class", "cz.cuni.mff.d3s.incverif.pairwise.PairwiseSyncPolicy");
+			jpfConfigIncr.setProperty("vm.scheduler.sharedness.class", "cz.cuni.mff.d3s.incverif.pairwise.PairwiseSharednessPolicy");
+		}
+
+		jpfConfigIncr.setProperty("incverif.pairwise.thread.modified.id", String.valueOf(modifiedThreadID));
+		jpfConfigIncr.setProperty("incverif.pairwise.thread.other.id", String.valueOf(otherThreadID));
+
+		jpfConfigIncr.setProperty("jpf.time_limit", String.valueOf(TIME_LIMIT_SEC_INCR));
+		jpfConfigIncr.setProperty(TimeBudgetModel.CFG_RUN_CLASS, runClass);
+
+		version.applyTo(jpfConfigIncr);
+
+		return jpfConfigIncr;
+	}
+
+	private static Config createCensusConfig(Config jpfConfigBase, ProgramVersion version)
+	{
+		// we have to keep the base configuration intact (since it will be used many times)
+		Config jpfConfigCensus = (Config) jpfConfigBase.clone();
+
+		// a single execution should take much less time than any incremental run
+		jpfConfigCensus.setProperty("jpf.time_limit", String.valueOf(TIME_LIMIT_SEC_INCR));
+
+		version.applyTo(jpfConfigCensus);
+
+		return jpfConfigCensus;
+	}
+
+	private static ThreadCensus runThreadCensus(Config jpfConfigBase, ProgramVersion version)
+	{
+		JPFRunResult jpfRes = runJPF(JPFRunSpec.createCensus(createCensusConfig(jpfConfigBase, version)));
+
+		if (jpfRes.outputLog != null) System.out.print(jpfRes.outputLog);
+
+		return jpfRes.threadCensus;
+	}
+
+	private static void recordThreadCensus(ThreadCensus census, ThreadPairFilter.VersionThreads versionThreads, PrintStream log)
+	{
+		if (census != null)
+		{
+			for (ThreadCensus.ThreadRecord th : census.getThreads()) versionThreads.record(th.threadID, th.entryMethodSig);
+
+			versionThreads.setSymmetry(new ThreadSymmetry(census));
+		}
+
+		if (log != null) printThreadCensus(census, log);
+	}
+
+	private static void printThreadCensus(ThreadCensus census, PrintStream log)
+	{
+		if (census == null)
+		{
+			log.println("[LOG] thread census failed");
+			return;
+		}
+
+		for (ThreadCensus.ThreadRecord th : census.getThreads())
+		{
+			log.println("[CENSUS] thread ID = " + th.threadID + ", class = " + th.className + ", entry method = " + th.entryMethodSig + ", target = " + th.targetClassName + ", started at = " + th.creationSite);
+		}
+	}
+
+	private static int getInitialMaxThreadID(ThreadCensus deletionThreadCensus)
+	{
+		// we assume that the subject program runs at least two concurrent threads
+		int initialMaxThreadID = 1;
+
+		if (origThreadCensus != null) initialMaxThreadID = Math.max(initialMaxThreadID, origThreadCensus.getMaxThreadID());
+
+		if (deletionThreadCensus != null) initialMaxThreadID = Math.max(initialMaxThreadID, deletionThreadCensus.getMaxThreadID());
+
+		return initialMaxThreadID;
+	}
+
+	private static Config createFullConfig(Config jpfConfigBase, ProgramVersion version, String runClass)
+	{
+		// we have to keep the base configuration intact (since it will be used many times)
+		Config jpfConfigFull = (Config) jpfConfigBase.clone();
+
+		jpfConfigFull.setProperty("jpf.time_limit", String.valueOf(TIME_LIMIT_SEC_FULL));
+		jpfConfigFull.setProperty(TimeBudgetModel.CFG_RUN_CLASS, runClass);
+
+		version.applyTo(jpfConfigFull);
+
+		return jpfConfigFull;
+	}
+
+	private static int checkProgramVersionByJPF(Config jpfConfig, String version, ThreadPairFilter.VersionThreads versionThreads, Map<Integer, JPFRunResult> batchResults, int oldGlobalMaxThreadID, int modifiedThreadID, CodeBlockBoundary modifiedCBB, int otherThreadID, WALAContext walaCtx, ExperimentsStats expStats)
+	{
+		JPFRunResult jpfRes;
+
+		jpfRes = createSkippedRunResult(versionThreads, modifiedThreadID, modifiedCBB, otherThreadID);
+
+		if ( (jpfRes == null) && (batchResults != null) )
+		{
+			if ( ! batchResults.containsKey(otherThreadID) )
+			{
+				// all remaining pairs with the same T1 (up to the current bound) are checked by a single JPF run
+				List<Integer> otherThreadIDs = new ArrayList<Integer>();
+
+				for (int toid = otherThreadID; toid <= oldGlobalMaxThreadID; toid++)
+				{
+					if (toid == modifiedThreadID) continue;
+
+					if (createSkippedRunResult(versionThreads, modifiedThreadID, modifiedCBB, toid) == null) otherThreadIDs.add(toid);
+				}
+
+				if (otherThreadIDs.size() > 1)
+				{
+					JPFRunResult batchRes = runJPF(JPFRunSpec.createIncremental(createBatchConfig(jpfConfig, otherThreadIDs), modifiedThreadID, modifiedCBB, -1));
+
+					for (int i = 0; i < otherThreadIDs.size(); i++) batchResults.put(otherThreadIDs.get(i), getBatchedPairResult(batchRes, otherThreadIDs.get(i), i == 0));
+				}
+			}
+
+			// null when the pair was not checked together with other pairs
+			jpfRes = batchResults.remove(otherThreadID);
+
+			if (jpfRes != null) versionThreads.record(modifiedThreadID, jpfRes.modifiedThreadEntryMethodSig);
+		}
+
+		if (jpfRes == null)
+		{
+			jpfRes = runJPF(JPFRunSpec.createIncremental(jpfConfig, modifiedThreadID, modifiedCBB, otherThreadID));
+
+			versionThreads.record(modifiedThreadID, jpfRes.modifiedThreadEntryMethodSig);
+		}
+
+		int newGlobalMaxThreadID = processIncrementalRunResult(jpfRes, oldGlobalMaxThreadID, version, modifiedThreadID, modifiedCBB, otherThreadID, walaCtx, expStats);
+
+		return newGlobalMaxThreadID;
+	}
+
+	private static Config createBatchConfig(Config jpfConfigPair, List<Integer> otherThreadIDs)
+	{
+		Config jpfConfigBatch = (Config) jpfConfigPair.clone();
+
+		StringBuffer otherIDsStr = new StringBuffer();
+		for (Integer toid : otherThreadIDs)
+		{
+			if (otherIDsStr.length() > 0) otherIDsStr.append(",");
+			otherIDsStr.append(toid);
+		}
+
+		// the other thread is chosen by the listener ThreadExecutionMonitor when the modified thread reaches the modified code fragment
+		jpfConfigBatch.setProperty("incverif.pairwise.thread.other.id", "-1");
+		jpfConfigBatch.setProperty("incverif.pairwise.thread.other.ids", otherIDsStr.toString());
+
+		// exploration for each other thread is limited in the same way as a separate run
+		jpfConfigBatch.setProperty("incverif.pairwise.batch.time_limit", String.valueOf(TIME_LIMIT_SEC_INCR));
+		jpfConfigBatch.setProperty("jpf.time_limit", String.valueOf(TIME_LIMIT_SEC_INCR * otherThreadIDs.size()));
+
+		// search must continue with remaining other threads when an error is found (ThreadExecutionMonitor cuts the rest of the branch with the error)
+		jpfConfigBatch.setProperty("search.multiple_errors", "true");
+
+		return jpfConfigBatch;
+	}
+
+	private static JPFRunResult getBatchedPairResult(JPFRunResult batchRes, int otherThreadID, boolean withOutput)
+	{
+		JPFRunResult pairRes = batchRes.getOtherThreadResult(otherThreadID);
+
+		// output of the whole run is printed just once
+		if (withOutput) pairRes.outputLog = batchRes.outputLog;
+
+		return pairRes;
+	}
+
+	/**
+	 * Returns the result for a JPF run that does not have to be executed, or null if the run must be executed.
+	 */
+	private static JPFRunResult createSkippedRunResult(ThreadPairFilter.VersionThreads versionThreads, int modifiedThreadID, CodeBlockBoundary modifiedCBB, int otherThreadID)
+	{
+		if (skipUnreachableThreadPairs && threadPairFilter.canSkipRun(versionThreads, modifiedThreadID, modifiedCBB)) return JPFRunResult.createSkipped(null);
+
+		ThreadSymmetry symmetry = versionThreads.getSymmetry();
+
+		if (threadSymmetryEnabled && (symmetry != null) && ( ! symmetry.isRepresentativePair(modifiedThreadID, otherThreadID) )) return JPFRunResult.createSkipped(symmetry.getRepresentativePair(modifiedThreadID, otherThreadID));
+
+		return null;
+	}
+
+	/**
+	 * Returns the bound on thread IDs after the given JPF run, which is shared by the sequential and concurrent processing of pairs of threads (so that both enumerate the same pairs).
+	 */
+	private static int updateGlobalMaxThreadID(int oldGlobalMaxThreadID, JPFRunResult jpfRes)
+	{
+		// skipped runs and failed runs do not observe any threads
+		if (jpfRes.failed || jpfRes.skipped) return oldGlobalMaxThreadID;
+
+		// the bound never shrinks, because a run may observe fewer threads (e.g., after an early error, a timeout, or when a call of "Thread.start()" belongs to the removed code fragment)
+		return Math.max(oldGlobalMaxThreadID, jpfRes.maxThreadID);
+	}
+
+	private static int processIncrementalRunResult(JPFRunResult jpfRes, int oldGlobalMaxThreadID, String version, int modifiedThreadID, CodeBlockBoundary modifiedCBB, int otherThreadID, WALAContext walaCtx, ExperimentsStats expStats)
+	{
+		int newGlobalMaxThreadID = oldGlobalMaxThreadID;
+
+		if (resultsStream != null) resultsStream.writeRunRecord(expStats.getNumberOfProcessedCodeFragments(), "incremental", version, modifiedCBB, modifiedThreadID, otherThreadID, jpfRes);
 
-			jpfConfigFullDeletion.setProperty("classpath", ".," + genVersionsPathUniqueStr + File.separator + "stripped");
+		if (jpfRes.skipped && (jpfRes.symmetricPair != null))
+		{
+			System.out.println("[LOG] JPF run skipped (pair of threads is symmetric to the pair " + jpfRes.symmetricPair + ") \n");
+
+			expStats.incCountOfSymmetricRunsOverThreadPairs();
+
+			return newGlobalMaxThreadID;
+		}
+
+		if (jpfRes.skipped)
+		{
+			System.out.println("[LOG] JPF run skipped (modified code fragment is not reachable from the entry method of the modified thread) \n");
+
+			expStats.incCountOfSkippedRunsOverThreadPairs();
+
+			return newGlobalMaxThreadID;
+		}
+
+		// output of a forked JPF run is printed only now, so that outputs of concurrent runs are not interleaved
+		if (jpfRes.outputLog != null) System.out.print(jpfRes.outputLog);
+
+		// get the updated maximum thread ID at the end of each JPF run
+		newGlobalMaxThreadID = updateGlobalMaxThreadID(oldGlobalMaxThreadID, jpfRes);
+
+		if (jpfRes.memoryLimitReached) expStats.incCountOfFailedRuns();
+
+		long jpfUsedTimeInMS = jpfRes.usedTimeMS;
+
+		System.out.println("[JPF] time = " + jpfUsedTimeInMS + " ms \n");
 	
-			checkFullProgramByJPF(jpfConfigFullDeletion, walaCtx, fullExpStats);
+		try
+		{
+			// we need to ignore all JPF runs where the modified code fragment is actually not reachable in the call graph from the entry method of a thread marked as modified (through ID)
+			// recorded signature of the entry method is null, for example, when the respective thread is not started at all (i.e., when the call of its "Thread.start()" method belongs to the modified code fragment and therefore has been removed)
+			if ( (jpfRes.modifiedThreadEntryMethodSig != null) && threadPairFilter.isReachableFromThreadEntry(jpfRes.modifiedThreadEntryMethodSig, modifiedCBB) )
+			{
+				expStats.incTotalCountOfRunsOverThreadPairs();
 
+				if (isTimedOut(jpfRes, TIME_LIMIT_SEC_INCR))
+				{
+					expStats.incCountOfTimedoutRunsOverThreadPairs();
+				}
+				else if ( ! jpfRes.memoryLimitReached )
+				{
+					expStats.addRunningTimeForThreadPair(version, jpfUsedTimeInMS);
+				}
+			}
+		}
+		catch (Exception ex)
+		{
+			System.err.println("[ERROR] cannot process results of JPF");
+			ex.printStackTrace();
+			if (ex.getCause() != null) ex.getCause().printStackTrace();
+		}
+
+		return newGlobalMaxThreadID;
+	}
+
+	private static boolean isCampaignStopped()
+	{
+		if ( (runCancellation != null) && runCancellation.isCancelled() ) return true;
+
+		return (timeBudgetModel != null) && timeBudgetModel.isCampaignBudgetExhausted();
+	}
+
+	private static String getCampaignStopReason()
+	{
+		if ( (runCancellation != null) && runCancellation.isCancelled() ) return runCancellation.getReason();
+
+		return "campaign budget exhausted";
+	}
+
+	private static boolean isTimedOut(JPFRunResult jpfRes, int defaultLimitSec)
+	{
+		// limits of individual runs differ from the default when they are adaptive
+		if (timeBudgetModel != null) return jpfRes.timedOut;
+
+		return (jpfRes.usedTimeMS / 1000) >= defaultLimitSec;
+	}
+
+	private static void checkFullProgramByJPF(Config jpfConfig, String version, CodeBlockBoundary modifiedCBB, WALAContext walaCtx, ExperimentsStats expStats)
+	{
+		JPFRunResult jpfRes = runJPF(JPFRunSpec.createFull(jpfConfig));
+
+		processFullRunResult(jpfRes, version, modifiedCBB, expStats);
+	}
+
+	private static JPFRunResult runJPF(JPFRunSpec spec)
+	{
+		JPFRunResult jpfRes = null;
+
+		if ( (runCancellation != null) && runCancellation.isCancelled() ) return JPFRunResult.createCancelled();
+
+		for (JPFRunResultStore store : jpfResultStores)
+		{
+			jpfRes = store.lookup(spec);
+
+			if (jpfRes != null)
+			{
+				if (runCancellation != null) runCancellation.onRunFinished(spec, jpfRes);
+
+				return jpfRes;
+			}
+		}
+
+		// stored results are looked up with the nominal time limit, since their verdicts do not depend on it
+		if (timeBudgetModel != null) timeBudgetModel.allocate(spec);
+
+		if ( (timeBudgetModel != null) && ( ! timeBudgetModel.cutToDeadline(spec) ) ) return JPFRunResult.createNotStarted();
+
+		if (forkedJPFRunner != null)
+		{
+			jpfRes = forkedJPFRunner.run(spec, runCancellation);
+		}
+		else
+		{
+			jpfRes = JPFRunner.run(spec, runCancellation);
+
+			// in-process runs leave a lot of garbage behind
+			System.gc();
+		}
+
+		// results of cancelled runs are not complete
+		if (jpfRes.cancelled) return jpfRes;
+
+		for (JPFRunResultStore store : jpfResultStores) store.store(spec, jpfRes);
+
+		if (timeBudgetModel != null) timeBudgetModel.record(spec, jpfRes);
+
+		if (runCancellation != null) runCancellation.onRunFinished(spec, jpfRes);
+
+		return jpfRes;
+	}
+
+	private static void processFullRunResult(JPFRunResult jpfRes, String version, CodeBlockBoundary modifiedCBB, ExperimentsStats expStats)
+	{
+		if (resultsStream != null) resultsStream.writeRunRecord(expStats.getNumberOfProcessedCodeFragments(), "full", version, modifiedCBB, -1, -1, jpfRes);
+
+		// output of a forked JPF run is printed only now, so that outputs of concurrent runs are not interleaved
+		if (jpfRes.outputLog != null) System.out.print(jpfRes.outputLog);
+
+		if (jpfRes.memoryLimitReached) expStats.incCountOfFailedRuns();
+
+		long jpfUsedTimeInMS = jpfRes.usedTimeMS;
+
+		System.out.println("[JPF] time = " + jpfUsedTimeInMS + " ms \n");
+
+		expStats.incTotalCountOfRunsOverAllThreads();
+
+		if (isTimedOut(jpfRes, TIME_LIMIT_SEC_FULL))
+		{
+			expStats.incCountOfTimedoutRunsOverAllThreads();
+		}
+		else if ( ( ! jpfRes.failed ) && ( ! jpfRes.memoryLimitReached ) )
+		{
+			expStats.addRunningTimeForAllThreads(version, jpfUsedTimeInMS);
+		}
+	}
+
+	private static Callable<CodeFragmentResults> createCodeFragmentTask(final VerificationWorkerPool workerPool, final Config jpfConfigBase, final String algorithm, final ProgramVersion deletionVersion, final ThreadPairFilter.VersionThreads deletionThreads, final CodeBlockBoundary deletionCBB, final ProgramVersion additionVersion, final CodeBlockBoundary additionCBB)
+	{
+		return new Callable<CodeFragmentResults>()
+		{
+			public CodeFragmentResults call()
+			{
+				CodeFragmentResults fragmentRes = new CodeFragmentResults();
 
-			// original program version (current affected "modified code fragment" is present, simulating addition)
+				if (threadCensusEnabled)
+				{
+					fragmentRes.deletionThreadCensus = waitForRunResult(workerPool.submit(JPFRunSpec.createCensus(createCensusConfig(jpfConfigBase, deletionVersion)))).threadCensus;
 
-			System.out.println("[LOG] checking original program version (current affected code fragment is present, simulating addition)");
-			System.out.println("[LOG] additionCBB: methodSig = " + additionCBB.getMethodSignature() + ", startLoc = (bcidx:" + additionCBB.startLoc.insnBcIndex + ",bcpos:" + additionCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + additionCBB.endLoc.insnBcIndex + ",bcpos:" + additionCBB.endLoc.insnBcPos + ")");
+					// entries must be known before the runs for pairs of threads are submitted
+					recordThreadCensus(fragmentRes.deletionThreadCensus, deletionThreads, null);
+				}
 
-			// update the JPF configuration to reflect the directory that contains the received original version of the subject program (with "modified code fragment")
-	
-			Config jpfConfigFullAddition = (Config) jpfConfigFull.clone();
+				fragmentRes.threadPairRuns = runThreadPairsConcurrently(workerPool, jpfConfigBase, algorithm, getInitialMaxThreadID(fragmentRes.deletionThreadCensus), deletionVersion, deletionThreads, deletionCBB, additionVersion, additionCBB);
 
-			jpfConfigFullAddition.setProperty("classpath", ".," + targetClassPathStr);
-	
-			checkFullProgramByJPF(jpfConfigFullAddition, walaCtx, fullExpStats);
-		}
+				// full verification of both program versions
+				Future<JPFRunResult> fullDeletionRun = workerPool.submit(JPFRunSpec.createFull(createFullConfig(jpfConfigBase, deletionVersion, TimeBudgetModel.getRunClass("full deletion", additionCBB))));
+				Future<JPFRunResult> fullAdditionRun = workerPool.submit(JPFRunSpec.createFull(createFullConfig(jpfConfigBase, additionVersion, TimeBudgetModel.getRunClass("full addition", null))));
 
-		long incrAvgRunningTimeOverCodeFragments = computeAverageOverRunningTimes(incrExpStats.getSumRunningTimesForThreadPairsOverCodeFragments());
-		double incrStddevRunningTimeOverCodeFragments = computeStandardDeviationOverRunningTimes(incrExpStats.getSumRunningTimesForThreadPairsOverCodeFragments(), incrAvgRunningTimeOverCodeFragments);
+				fragmentRes.fullDeletionRes = waitForRunResult(fullDeletionRun);
+				fragmentRes.fullAdditionRes = waitForRunResult(fullAdditionRun);
 
-		System.out.print("\n\n");
-		System.out.println("[JPF SUMMARY] incremental verification: total number of code fragments = " + incrExpStats.getNumberOfProcessedCodeFragments() + ", total runs over thread pairs = " + incrExpStats.getTotalCountOfRunsOverThreadPairs() + ", timedout runs over thread pairs = " + incrExpStats.getCountOfTimedoutRunsOverThreadPairs() + ", failed runs over thread pairs = " + incrExpStats.getCountOfFailedRuns() + ", average running time over modified code fragments = " + incrAvgRunningTimeOverCodeFragments + " ms, standard deviation for running time over modified code fragments = " + incrStddevRunningTimeOverCodeFragments + " ms \n");
-	
-		long fullAvgRunningTimeOverCodeFragments = computeAverageOverRunningTimes(fullExpStats.getSumRunningTimesForAllThreadsOverCodeFragments());
-		double fullStddevRunningTimeOverCodeFragments = computeStandardDeviationOverRunningTimes(fullExpStats.getSumRunningTimesForAllThreadsOverCodeFragments(), fullAvgRunningTimeOverCodeFragments);
+				// the code fragment is covered only when all its JPF runs finished before the campaign was stopped
+				fragmentRes.interrupted = isCampaignStopped();
 
-		System.out.print("\n\n");
-		System.out.println("[JPF SUMMARY] full verification: total number of code fragments = " + fullExpStats.getNumberOfProcessedCodeFragments() + ", total runs over all threads = " + fullExpStats.getTotalCountOfRunsOverAllThreads() + ", timedout runs over all threads = " + fullExpStats.getCountOfTimedoutRunsOverAllThreads() + ", failed runs over all threads = " + fullExpStats.getCountOfFailedRuns() + ", average running time over modified code fragments = " + fullAvgRunningTimeOverCodeFragments + " ms, standard deviation for running time over modified code fragments = " + fullStddevRunningTimeOverCodeFragments + " ms \n");
+				return fragmentRes;
+			}
+		};
 	}
 
-	private static Set<CodeBlockBoundary> determineAffectedCodeBlocksForInterferingActions(WALAContext walaCtx, String mainClassName, String targetClassPath, String walaExclusionFilePath) throws Exception
+	private static List<ThreadPairRuns> runThreadPairsConcurrently(VerificationWorkerPool workerPool, Config jpfConfigBase, String algorithm, int initialMaxThreadID, ProgramVersion deletionVersion, ThreadPairFilter.VersionThreads deletionThreads, CodeBlockBoundary deletionCBB, ProgramVersion additionVersion, CodeBlockBoundary additionCBB)
 	{
-		// just to keep the argument lists compact (avoid the prefix "walaCtx")
-		IClassHierarchy classHierarchy = walaCtx.classHierarchy;
-		AnalysisScope scope = walaCtx.scope;
-		AnalysisOptions options = walaCtx.options;
-		AnalysisCache cache = walaCtx.cache;  
-
-		// build call graph and compute pointer analysis to identify heap objects (for aliasing)
-
-		// standard context-insensitive exhaustive pointer analysis (andersen)
-		SSAPropagationCallGraphBuilder cgBuilder = com.ibm.wala.ipa.callgraph.impl.Util.makeVanillaZeroOneCFABuilder(options, cache, classHierarchy, scope);
-	
-		walaCtx.callGraph = cgBuilder.makeCallGraph(options, null);
+		// thread pairs are processed in rounds
+			// every round dispatches JPF runs for all pairs <T1, T2> within the current bound on thread IDs that were not processed yet
+			// the bound is updated when all JPF runs of the round are finished
+		// results are recorded in the same order as in the sequential mode (T1 in the outer loop, T2 in the inner loop), and therefore the statistics do not depend on the order in which the concurrent runs finish
 
-		WALAUtils.loadMethodNodesCache(walaCtx);
-	
-		walaCtx.pointerAnalysis = cgBuilder.getPointerAnalysis();
+		List<ThreadPairRuns> allThreadPairRuns = new ArrayList<ThreadPairRuns>();
 
-		walaCtx.allocSitesData = new AllocationSitesData();
-		walaCtx.allocSitesData.initializeData(walaCtx);
+		int globalMaxThreadID = initialMaxThreadID;
 
-		walaCtx.typeData = new TypeAnalysisData();
+		// all pairs of thread IDs up to this bound were already processed
+		int processedMaxThreadID = -1;
 
-		walaCtx.interprocCFG = ExplodedInterproceduralCFG.make(walaCtx.callGraph);
+		// no more rounds are dispatched when the campaign is stopped
+		while ( (processedMaxThreadID < globalMaxThreadID) && ( ! isCampaignStopped() ) )
+		{
+			List<ThreadPairRuns> roundThreadPairRuns = new ArrayList<ThreadPairRuns>();
+			List<Future<JPFRunResult>> roundDeletionRuns = new ArrayList<Future<JPFRunResult>>();
+			List<Future<JPFRunResult>> roundAdditionRuns = new ArrayList<Future<JPFRunResult>>();
 
-		// simple static thread escape analysis that identifies possibly shared objects
+			for (int outerLoopThreadID = 0; outerLoopThreadID <= globalMaxThreadID; outerLoopThreadID++)
+			{
+				List<JPFRunSpec> deletionSpecs = new ArrayList<JPFRunSpec>();
+				List<JPFRunSpec> additionSpecs = new ArrayList<JPFRunSpec>();
 
-		ThreadEscapeAnalysis thEscAnalysis = new ThreadEscapeAnalysis();
-		thEscAnalysis.analyzeProgram(walaCtx);
+				for (int innerLoopThreadID = 0; innerLoopThreadID <= globalMaxThreadID; innerLoopThreadID++)
+				{
+					if (innerLoopThreadID == outerLoopThreadID) continue;
 
-		Set<AllocationSite> sharedObjects = thEscAnalysis.escapedAllocSites;
+					if ( (outerLoopThreadID <= processedMaxThreadID) && (innerLoopThreadID <= processedMaxThreadID) ) continue;
 
-		// identify all possible interfering actions by static analysis
+					ThreadPairRuns thPairRuns = new ThreadPairRuns();
+					thPairRuns.globalMaxThreadID = globalMaxThreadID;
+					thPairRuns.outerLoopThreadID = outerLoopThreadID;
+					thPairRuns.innerLoopThreadID = innerLoopThreadID;
 
-		// collect field accesses that may occur during program execution in a flow-insensitive way
-		
-		FieldAccessCollector fieldsColl = new FieldAccessCollector();
-		fieldsColl.analyzeProgram(walaCtx);
+					roundThreadPairRuns.add(thPairRuns);
 
-		// collect array object accesses that may occur during program execution in a flow-insensitive way
-	
-		ArrayObjectAccessCollector arraysColl = new ArrayObjectAccessCollector();
-		arraysColl.analyzeProgram(walaCtx);
-	
-		// collect synchronization events that may occur during program execution in a flow-insensitive way
+					Config jpfConfigIncrDeletion = createIncrementalConfig(jpfConfigBase, algorithm, outerLoopThreadID, innerLoopThreadID, deletionVersion, TimeBudgetModel.getRunClass("incr deletion", additionCBB));
+					deletionSpecs.add(JPFRunSpec.createIncremental(jpfConfigIncrDeletion, outerLoopThreadID, deletionCBB, innerLoopThreadID));
 
-		SynchEventCollector synchColl = new SynchEventCollector();
-		synchColl.analyzeProgram(walaCtx);
+					Config jpfConfigIncrAddition = createIncrementalConfig(jpfConfigBase, algorithm, outerLoopThreadID, innerLoopThreadID, additionVersion, TimeBudgetModel.getRunClass("incr addition", additionCBB));
+					additionSpecs.add(JPFRunSpec.createIncremental(jpfConfigIncrAddition, outerLoopThreadID, additionCBB, innerLoopThreadID));
+				}
 
-		// we ignore actions on thread local objects
+				roundDeletionRuns.addAll(submitIncrementalRuns(workerPool, deletionSpecs, deletionThreads));
+				roundAdditionRuns.addAll(submitIncrementalRuns(workerPool, additionSpecs, origThreads));
+			}
 
-		fieldsColl.dropThreadLocalAccesses(sharedObjects);
-		arraysColl.dropThreadLocalAccesses(sharedObjects);
-		synchColl.dropThreadLocalEvents(sharedObjects);
+			processedMaxThreadID = globalMaxThreadID;
 
-		// compute necessary information about updates (write accesses) of variables and method calls (that return "void")
+			// runs of a single round cannot influence each other, so the bound is updated by all of them at the end of the round
+			int roundMaxThreadID = globalMaxThreadID;
 
-		VariableUpdateLocationsCollector updateColl = new VariableUpdateLocationsCollector();
-		updateColl.analyzeProgram(walaCtx);
+			for (int i = 0; i < roundThreadPairRuns.size(); i++)
+			{
+				ThreadPairRuns thPairRuns = roundThreadPairRuns.get(i);
 
-		MethodInvokeLocationsCollector invokeColl = new MethodInvokeLocationsCollector(true);
-		invokeColl.analyzeProgram(walaCtx);
+				thPairRuns.deletionRes = waitForRunResult(roundDeletionRuns.get(i));
+				deletionThreads.record(thPairRuns.outerLoopThreadID, thPairRuns.deletionRes.modifiedThreadEntryMethodSig);
+				roundMaxThreadID = updateGlobalMaxThreadID(roundMaxThreadID, thPairRuns.deletionRes);
 
-		// aggregating program points of all possibly interfering actions (statements)
-		// for each interfering action, it returns the range of program points that represent boundaries of the affected code block
+				thPairRuns.additionRes = waitForRunResult(roundAdditionRuns.get(i));
+				origThreads.record(thPairRuns.outerLoopThreadID, thPairRuns.additionRes.modifiedThreadEntryMethodSig);
+				roundMaxThreadID = updateGlobalMaxThreadID(roundMaxThreadID, thPairRuns.additionRes);
+			}
 
-		InterferingActionsCollector actionsColl = new InterferingActionsCollector(walaCtx, fieldsColl, arraysColl, synchColl, updateColl, invokeColl);
+			allThreadPairRuns.addAll(roundThreadPairRuns);
 
-		Set<CodeBlockBoundary> codeBlocks = actionsColl.getAffectedCodeBlockBoundaries();
+			globalMaxThreadID = roundMaxThreadID;
+		}
 
-		return codeBlocks;
+		return allThreadPairRuns;
 	}
 
-	private static int checkProgramVersionByJPF(Config jpfConfig, int oldGlobalMaxThreadID, int modifiedThreadID, CodeBlockBoundary modifiedCBB, int otherThreadID, WALAContext walaCtx, ExperimentsStats expStats)
+	/**
+	 * Submits JPF runs for the given pairs of threads with the same modified thread (T1), and returns futures for all of them in the same order.
+	 */
+	private static List<Future<JPFRunResult>> submitIncrementalRuns(VerificationWorkerPool workerPool, List<JPFRunSpec> pairSpecs, ThreadPairFilter.VersionThreads versionThreads)
 	{
-		int newGlobalMaxThreadID = oldGlobalMaxThreadID;
+		List<Future<JPFRunResult>> pairRuns = new ArrayList<Future<JPFRunResult>>();
 
-		String modifiedThreadEntryMethodSig = null;
-	
-		MemoryConstrainedJPF memConstr = null;
+		List<Integer> otherThreadIDs = new ArrayList<Integer>();
+
+		for (JPFRunSpec spec : pairSpecs)
+		{
+			// entry methods are known only from rounds that are already finished
+			JPFRunResult skippedRes = createSkippedRunResult(versionThreads, spec.modifiedThreadID, spec.modifiedCBB, spec.otherThreadID);
+
+			if (skippedRes != null) pairRuns.add(CompletableFuture.completedFuture(skippedRes));
+			else pairRuns.add(null);
 
-		Date jpfStartTime = new Date();
+			if (skippedRes == null) otherThreadIDs.add(spec.otherThreadID);
+		}
 
-		JPF jpf = new JPF(jpfConfig);
+		Future<JPFRunResult> batchRun = null;
 
-		try
+		if (batchOtherThreads && (otherThreadIDs.size() > 1))
 		{
-			// we use the listener ThreadExecutionMonitor to record thread IDs and determine the maximum possible dynamic thread ID
-				// parameters: ID of the modified thread, boundaries of the modified code fragment (two program points), ID of the other thread
-			ThreadExecutionMonitor thExecMon = new ThreadExecutionMonitor(jpfConfig, modifiedThreadID, modifiedCBB, otherThreadID);
+			JPFRunSpec firstSpec = pairSpecs.get(0);
 
-			jpf.addListener(thExecMon);
+			batchRun = workerPool.submit(JPFRunSpec.createIncremental(createBatchConfig(firstSpec.jpfConfig, otherThreadIDs), firstSpec.modifiedThreadID, firstSpec.modifiedCBB, -1));
+		}
 
-			jpf.addListener(new ErrorInfoPrinter("INCR VERIF ERROR"));
+		for (int i = 0; i < pairSpecs.size(); i++)
+		{
+			if (pairRuns.get(i) != null) continue;
 
-			jpf.run();
+			JPFRunSpec spec = pairSpecs.get(i);
 
-			// get the updated maximum thread ID at the end of each JPF run
-			newGlobalMaxThreadID = thExecMon.getMaxThreadID();
-		
-			modifiedThreadEntryMethodSig = thExecMon.getModifiedThreadEntryMethodSig();
+			if (batchRun != null) pairRuns.set(i, new BatchedPairRun(batchRun, spec.otherThreadID, spec.otherThreadID == otherThreadIDs.get(0)));
+			else pairRuns.set(i, workerPool.submit(spec));
+		}
+
+		return pairRuns;
+	}
+
+	private static void reportFinishedCodeFragments(List<CodeFragmentJob> pendingFragmentJobs, boolean waitForAll, WALAContext walaCtx, ExperimentsStats incrExpStats, ExperimentsStats fullExpStats)
+	{
+		// code fragments are always reported in the order of processing, and therefore we stop at the first one that is not finished yet (unless we have to wait for all of them)
+		while ( ! pendingFragmentJobs.isEmpty() )
+		{
+			CodeFragmentJob fragmentJob = pendingFragmentJobs.get(0);
+
+			if ( ( ! waitForAll ) && (fragmentJob.results != null) && ( ! fragmentJob.results.isDone() ) ) break;
 
-			memConstr = jpf.getListenerOfType(MemoryConstrainedJPF.class);
+			pendingFragmentJobs.remove(0);
 
-			if (memConstr.isLimitReached()) expStats.incCountOfFailedRuns();
+			reportCodeFragment(fragmentJob, walaCtx, incrExpStats, fullExpStats);
 		}
-		catch (Exception ex)
+	}
+
+	private static void reportCodeFragment(CodeFragmentJob fragmentJob, WALAContext walaCtx, ExperimentsStats incrExpStats, ExperimentsStats fullExpStats)
+	{
+		fragmentJob.log.flush();
+		System.out.print(fragmentJob.logBuffer.toString());
+
+		incrExpStats.initForNewCodeFragment();
+		fullExpStats.initForNewCodeFragment();
+
+		if (fragmentJob.journalFragmentStats != null)
 		{
-			System.err.println("[ERROR] cannot start JPF");
-			ex.printStackTrace();
-			if (ex.getCause() != null) ex.getCause().printStackTrace();
+			replayFragmentStats(fragmentJob.journalFragmentStats, incrExpStats, fullExpStats);
+			return;
 		}
 
-		Date jpfFinishTime = new Date();
+		if ( ! fragmentJob.processed ) return;
 
-		long jpfUsedTimeInMS = computeTimeDiffInMS(jpfStartTime, jpfFinishTime);
-		long jpfUsedTimeInSec = computeTimeDiffInSec(jpfStartTime, jpfFinishTime);
+		incrExpStats.incNumberOfProcessedCodeFragments();
+		fullExpStats.incNumberOfProcessedCodeFragments();
+
+		// no JPF runs were dispatched for the code fragment
+		if (fragmentJob.results == null) return;
+
+		CodeFragmentResults fragmentRes;
 
-		System.out.println("[JPF] time = " + jpfUsedTimeInMS + " ms \n");
-	
 		try
 		{
-			// we need to ignore all JPF runs where the modified code fragment is actually not reachable in the call graph from the entry method of a thread marked as modified (through ID)
-			// recorded signature of the entry method is null, for example, when the respective thread is not started at all (i.e., when the call of its "Thread.start()" method belongs to the modified code fragment and therefore has been removed)
-			if ( (modifiedThreadEntryMethodSig != null) && WALAUtils.isMethodReachableInThreadCallGraph(modifiedThreadEntryMethodSig, modifiedCBB.getMethodSignature(), walaCtx) )
-			{
-				expStats.incTotalCountOfRunsOverThreadPairs();
-
-				if (jpfUsedTimeInSec >= TIME_LIMIT_SEC_INCR)
-				{
-					expStats.incCountOfTimedoutRunsOverThreadPairs();
-				}
-				else if ( ! memConstr.isLimitReached() )
-				{
-					expStats.addRunningTimeForThreadPair(jpfUsedTimeInMS);
-				}
-			}
+			fragmentRes = fragmentJob.results.get();
 		}
 		catch (Exception ex)
 		{
-			System.err.println("[ERROR] cannot process results of JPF");
+			System.err.println("[ERROR] concurrent processing of code fragment failed");
 			ex.printStackTrace();
-			if (ex.getCause() != null) ex.getCause().printStackTrace();
+			return;
 		}
 
-		System.gc();
+		if (fragmentRes.interrupted)
+		{
+			System.out.print("\n");
+			System.out.println("[LOG] campaign stopped (" + getCampaignStopReason() + "), code fragment not covered");
 
-		return newGlobalMaxThreadID;
-	}
+			incrExpStats.discardCurrentFragment();
+			fullExpStats.discardCurrentFragment();
 
-	private static void checkFullProgramByJPF(Config jpfConfig, WALAContext walaCtx, ExperimentsStats expStats)
-	{
-		MemoryConstrainedJPF memConstr = null;
+			uncoveredModifiedCodeFragments.add(fragmentJob.modifiedCBB);
 
-		Date jpfStartTime = new Date();
-	
-		JPF jpf = new JPF(jpfConfig);
+			return;
+		}
 
-		try
-		{
-			jpf.addListener(new ErrorInfoPrinter("FULL VERIF ERROR"));
+		CodeBlockBoundary deletionCBB = fragmentJob.deletionCBB;
+		CodeBlockBoundary additionCBB = fragmentJob.additionCBB;
 
-			jpf.run();
-		
-			memConstr = jpf.getListenerOfType(MemoryConstrainedJPF.class);
+		if (threadCensusEnabled)
+		{
+			System.out.print("\n");
+			System.out.println("[LOG] thread census for the modified program version");
 
-			if (memConstr.isLimitReached()) expStats.incCountOfFailedRuns();
+			printThreadCensus(fragmentRes.deletionThreadCensus, System.out);
 		}
-		catch (Exception ex)
+
+		for (ThreadPairRuns thPairRuns : fragmentRes.threadPairRuns)
 		{
-			System.err.println("[ERROR] cannot start JPF");
-			ex.printStackTrace();
-			if (ex.getCause() != null) ex.getCause().printStackTrace();
+			System.out.print("\n");
+			System.out.println("[LOG] globalMaxThreadID = " + thPairRuns.globalMaxThreadID + ", outerLoopThreadID = " + thPairRuns.outerLoopThreadID + ", innerLoopThreadID = " + thPairRuns.innerLoopThreadID);
+
+			System.out.println("[LOG] checking modified program version (current affected code fragment is removed, simulating deletion)");
+			System.out.println("[LOG] deletionCBB: methodSig = " + deletionCBB.getMethodSignature() + ", startLoc = (bcidx:" + deletionCBB.startLoc.insnBcIndex + ",bcpos:" + deletionCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + deletionCBB.endLoc.insnBcIndex + ",bcpos:" + deletionCBB.endLoc.insnBcPos + ")");
+
+			processIncrementalRunResult(thPairRuns.deletionRes, thPairRuns.globalMaxThreadID, "deletion", thPairRuns.outerLoopThreadID, deletionCBB, thPairRuns.innerLoopThreadID, walaCtx, incrExpStats);
+
+			System.out.println("[LOG] checking original program version (current affected code fragment is present, simulating addition)");
+			System.out.println("[LOG] additionCBB: methodSig = " + additionCBB.getMethodSignature() + ", startLoc = (bcidx:" + additionCBB.startLoc.insnBcIndex + ",bcpos:" + additionCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + additionCBB.endLoc.insnBcIndex + ",bcpos:" + additionCBB.endLoc.insnBcPos + ")");
+
+			processIncrementalRunResult(thPairRuns.additionRes, thPairRuns.globalMaxThreadID, "addition", thPairRuns.outerLoopThreadID, additionCBB, thPairRuns.innerLoopThreadID, walaCtx, incrExpStats);
 		}
 
-		Date jpfFinishTime = new Date();
+		System.out.print("\n");
+		System.out.println("[LOG] full verification");
+
+		System.out.println("[LOG] checking modified program version (current affected code fragment is removed, simulating deletion)");
+		System.out.println("[LOG] deletionCBB: methodSig = " + deletionCBB.getMethodSignature() + ", startLoc = (bcidx:" + deletionCBB.startLoc.insnBcIndex + ",bcpos:" + deletionCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + deletionCBB.endLoc.insnBcIndex + ",bcpos:" + deletionCBB.endLoc.insnBcPos + ")");
 
-		long jpfUsedTimeInMS = computeTimeDiffInMS(jpfStartTime, jpfFinishTime);
-		long jpfUsedTimeInSec = computeTimeDiffInSec(jpfStartTime, jpfFinishTime);
+		processFullRunResult(fragmentRes.fullDeletionRes, "deletion", deletionCBB, fullExpStats);
 
-		System.out.println("[JPF] time = " + jpfUsedTimeInMS + " ms \n");
+		System.out.println("[LOG] checking original program version (current affected code fragment is present, simulating addition)");
+		System.out.println("[LOG] additionCBB: methodSig = " + additionCBB.getMethodSignature() + ", startLoc = (bcidx:" + additionCBB.startLoc.insnBcIndex + ",bcpos:" + additionCBB.startLoc.insnBcPos + "), endLoc = (bcidx:" + additionCBB.endLoc.insnBcIndex + ",bcpos:" + additionCBB.endLoc.insnBcPos + ")");
+
+		processFullRunResult(fragmentRes.fullAdditionRes, "addition", additionCBB, fullExpStats);
+
+		if (campaignJournal != null) campaignJournal.storeFragmentStats(fragmentJob.modifiedCBB, createFragmentStatsRecord(incrExpStats, fullExpStats));
+	}
+
+	private static String createFragmentStatsRecord(ExperimentsStats incrExpStats, ExperimentsStats fullExpStats)
+	{
+		return incrExpStats.getCurrentFragmentRecord() + " " + fullExpStats.getCurrentFragmentRecord();
+	}
 
+	private static void replayFragmentStats(String statsRecord, ExperimentsStats incrExpStats, ExperimentsStats fullExpStats)
+	{
+		String[] parts = statsRecord.split(" ");
+
+		incrExpStats.replayFragmentRecord(parts[0]);
+		fullExpStats.replayFragmentRecord(parts[1]);
+	}
+
+	private static JPFRunResult waitForRunResult(Future<JPFRunResult> jpfRun)
+	{
 		try
 		{
-			expStats.incTotalCountOfRunsOverAllThreads();
-
-			if (jpfUsedTimeInSec >= TIME_LIMIT_SEC_FULL)
-			{
-				expStats.incCountOfTimedoutRunsOverAllThreads();
-			}
-			else if ( ! memConstr.isLimitReached() )
-			{
-				expStats.addRunningTimeForAllThreads(jpfUsedTimeInMS);
-			}
+			return jpfRun.get();
 		}
 		catch (Exception ex)
 		{
-			System.err.println("[ERROR] cannot process results of JPF");
+			System.err.println("[ERROR] concurrent JPF run failed");
 			ex.printStackTrace();
-			if (ex.getCause() != null) ex.getCause().printStackTrace();
-		}
 
-		// we need to make sure it is processed by the garbage collector
-		jpf = null;
+			JPFRunResult failedRes = new JPFRunResult();
+			failedRes.failed = true;
 
-		System.gc();
+			return failedRes;
+		}
 	}
 
 	private static CodeBlockBoundary findLeastWrappingCBB(CodeBlockBoundary inputCBB, Set<CodeBlockBoundary> candidateCBBs, WALAContext walaCtx) throws Exception
@@ -675,6 +1847,26 @@ public class Main
 		return wrapperCBB;
 	}
 	
+	static String[] extractToolOptions(String[] args, List<String> toolOptionsAsProps)
+	{
+		List<String> otherArgs = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].startsWith("--") && (i + 1 < args.length))
+			{
+				toolOptionsAsProps.add("+incverif." + args[i].substring(2).replace('-', '.') + "=" + args[i+1]);
+				i++;
+			}
+			else
+			{
+				otherArgs.add(args[i]);
+			}
+		}
+
+		return otherArgs.toArray(new String[otherArgs.size()]);
+	}
+
 	private static long computeTimeDiffInMS(Date start, Date finish)
 	{
 		long startMS = start.getTime();
@@ -694,80 +1886,244 @@ public class Main
 		return diffSeconds;
 	}
 	
-	private static long computeAverageOverRunningTimes(List<Long> runningTimes)
+	private static String formatRunningTime(double rt)
+	{
+		return String.format(Locale.ROOT, "%.1f", rt);
+	}
+
+	private static void printRunningTimeDistributions(String verifKind, String runKind, RunTimeStatistics runningTimes)
+	{
+		System.out.println("[JPF SUMMARY] " + verifKind + ": running time per code fragment: " + runningTimes.getFragmentTimes().toSummary());
+
+		for (Map.Entry<String, RunTimeDistribution> me : runningTimes.getFragmentTimesByVersion().entrySet())
+		{
+			System.out.println("[JPF SUMMARY] " + verifKind + ": running time per code fragment (" + me.getKey() + "): " + me.getValue().toSummary());
+		}
+
+		System.out.println("[JPF SUMMARY] " + verifKind + ": running time per " + runKind + ": " + runningTimes.getRunTimes().toSummary());
+
+		for (Map.Entry<String, RunTimeDistribution> me : runningTimes.getRunTimesByVersion().entrySet())
+		{
+			System.out.println("[JPF SUMMARY] " + verifKind + ": running time per " + runKind + " (" + me.getKey() + "): " + me.getValue().toSummary());
+		}
+
+		System.out.print("\n");
+	}
+
+
+	static class CodeFragmentJob
 	{
-		long totalSumRunningTimes = 0;
+		// buffered output printed during preparation of the code fragment
+		public ByteArrayOutputStream logBuffer = new ByteArrayOutputStream();
+		public PrintStream log = new PrintStream(logBuffer, true);
+
+		// false when the code fragment was skipped
+		public boolean processed = false;
 
-		for (Long rt : runningTimes) totalSumRunningTimes += rt.longValue();
+		public CodeBlockBoundary deletionCBB;
+		public CodeBlockBoundary additionCBB;
 
-		long avgRunningTime = totalSumRunningTimes / runningTimes.size();
+		// null when no JPF runs were dispatched for the code fragment
+		public Future<CodeFragmentResults> results;
 
-		return avgRunningTime;
+		public CodeBlockBoundary modifiedCBB;
+
+		// statistics of the code fragment restored from the journal (null if the code fragment was not finished before)
+		public String journalFragmentStats;
 	}
-	
-	private static double computeStandardDeviationOverRunningTimes(List<Long> runningTimes, long avgRunningTime)
+
+	/**
+	 * Result of a single pair of threads that was checked by a JPF run together with other pairs.
+	 */
+	static class BatchedPairRun implements Future<JPFRunResult>
 	{
-		long[] sqrDiffAvg = new long[runningTimes.size()];
+		private Future<JPFRunResult> batchRun;
+
+		private int otherThreadID;
+
+		private boolean withOutput;
+
 
-		for (int i = 0; i < runningTimes.size(); i++)
+		public BatchedPairRun(Future<JPFRunResult> batchRun, int otherThreadID, boolean withOutput)
 		{
-			long rt = runningTimes.get(i);
+			this.batchRun = batchRun;
 
-			sqrDiffAvg[i] = (rt - avgRunningTime) * (rt - avgRunningTime);
+			this.otherThreadID = otherThreadID;
+
+			this.withOutput = withOutput;
+		}
+
+		public JPFRunResult get() throws InterruptedException, ExecutionException
+		{
+			return getBatchedPairResult(batchRun.get(), otherThreadID, withOutput);
+		}
+
+		public JPFRunResult get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+		{
+			return getBatchedPairResult(batchRun.get(timeout, unit), otherThreadID, withOutput);
+		}
+
+		public boolean cancel(boolean mayInterruptIfRunning)
+		{
+			return batchRun.cancel(mayInterruptIfRunning);
+		}
+
+		public boolean isCancelled()
+		{
+			return batchRun.isCancelled();
+		}
+
+		public boolean isDone()
+		{
+			return batchRun.isDone();
 		}
+	}
+
+	static class CodeFragmentResults
+	{
+		// null if the census is disabled or it failed
+		public ThreadCensus deletionThreadCensus;
+
+		// ordered in the same way as JPF runs in the sequential mode
+		public List<ThreadPairRuns> threadPairRuns;
 
-		long sumSqrDiff = 0;
-		for (int i = 0; i < runningTimes.size(); i++) sumSqrDiff += sqrDiffAvg[i];
-		long avgSqrDiff = sumSqrDiff / runningTimes.size();
+		public JPFRunResult fullDeletionRes;
+		public JPFRunResult fullAdditionRes;
 
-		return Math.sqrt(avgSqrDiff);
+		// some JPF runs did not finish before the campaign was stopped
+		public boolean interrupted;
 	}
 
+	static class ThreadPairRuns
+	{
+		// bound on thread IDs at the time the runs were dispatched
+		public int globalMaxThreadID;
+
+		public int outerLoopThreadID;
+		public int innerLoopThreadID;
+
+		public JPFRunResult deletionRes;
+		public JPFRunResult additionRes;
+	}
 
 	static class ExperimentsStats
 	{
 		private int totalNumProcessedCodeFragments = 0;
 
-		private long sumRunningTimesOverThreadPairsForCurrentFragment = -1;
-		private List<Long> allRunningTimesForThreadPairsOverFragments = new ArrayList<Long>();
+		// running times of runs over thread pairs (incremental verification), per run and summed over each code fragment
+		private RunTimeStatistics runningTimesOverThreadPairs = new RunTimeStatistics();
 		
 		private int totalCountRunsOverThreadPairs = 0;
 		private int countTimedoutRunsOverThreadPairs = 0;
 	
-		private long sumRunningTimesOverAllThreadsForCurrentFragment = -1;
-		private List<Long> allRunningTimesForAllThreadsOverFragments = new ArrayList<Long>();
+		// running times of runs over all threads (full verification), per run and summed over each code fragment
+		private RunTimeStatistics runningTimesOverAllThreads = new RunTimeStatistics();
 	
 		private int totalCountRunsOverAllThreads = 0;
 		private int countTimedoutRunsOverAllThreads = 0;
 
 		private int totalCountFailedRuns = 0;
 
+		private int countSkippedRunsOverThreadPairs = 0;
+
+		private int countSymmetricRunsOverThreadPairs = 0;
+
+		// values of counters at the start of the current code fragment
+		private int[] countersAtFragmentStart = new int[8];
+
 
 		public void initForNewCodeFragment()
 		{
-			if (sumRunningTimesOverThreadPairsForCurrentFragment != -1)
-			{
-				allRunningTimesForThreadPairsOverFragments.add(sumRunningTimesOverThreadPairsForCurrentFragment);
-			}
-	
-			sumRunningTimesOverThreadPairsForCurrentFragment = 0;
-		
-			if (sumRunningTimesOverAllThreadsForCurrentFragment != -1)
+			runningTimesOverThreadPairs.startFragment();
+			runningTimesOverAllThreads.startFragment();
+
+			countersAtFragmentStart = getCounters();
+		}
+
+		/**
+		 * Adds running times of the last code fragment into the statistics (must be called before the statistics are reported).
+		 */
+		public void finishCodeFragments()
+		{
+			runningTimesOverThreadPairs.finishFragment();
+			runningTimesOverAllThreads.finishFragment();
+		}
+
+		/**
+		 * Removes the contribution of the current code fragment from all statistics (used when the code fragment was not finished).
+		 */
+		public void discardCurrentFragment()
+		{
+			totalNumProcessedCodeFragments = countersAtFragmentStart[0];
+			totalCountRunsOverThreadPairs = countersAtFragmentStart[1];
+			countTimedoutRunsOverThreadPairs = countersAtFragmentStart[2];
+			totalCountRunsOverAllThreads = countersAtFragmentStart[3];
+			countTimedoutRunsOverAllThreads = countersAtFragmentStart[4];
+			totalCountFailedRuns = countersAtFragmentStart[5];
+			countSkippedRunsOverThreadPairs = countersAtFragmentStart[6];
+			countSymmetricRunsOverThreadPairs = countersAtFragmentStart[7];
+
+			// running times of the code fragment are not recorded at all
+			runningTimesOverThreadPairs.discardFragment();
+			runningTimesOverAllThreads.discardFragment();
+		}
+
+		private int[] getCounters()
+		{
+			return new int[] { totalNumProcessedCodeFragments, totalCountRunsOverThreadPairs, countTimedoutRunsOverThreadPairs, totalCountRunsOverAllThreads, countTimedoutRunsOverAllThreads, totalCountFailedRuns, countSkippedRunsOverThreadPairs, countSymmetricRunsOverThreadPairs };
+		}
+
+		/**
+		 * Returns the contribution of the current code fragment to all statistics (as a single string without spaces).
+		 */
+		public String getCurrentFragmentRecord()
+		{
+			int[] curCounters = getCounters();
+
+			StringBuffer strbuf = new StringBuffer();
+
+			for (int i = 0; i < curCounters.length; i++)
 			{
-				allRunningTimesForAllThreadsOverFragments.add(sumRunningTimesOverAllThreadsForCurrentFragment);
+				strbuf.append(curCounters[i] - countersAtFragmentStart[i]);
+				strbuf.append(",");
 			}
-	
-			sumRunningTimesOverAllThreadsForCurrentFragment = 0;
+
+			strbuf.append(runningTimesOverThreadPairs.getCurrentFragmentRecord());
+			strbuf.append(",");
+			strbuf.append(runningTimesOverAllThreads.getCurrentFragmentRecord());
+
+			return strbuf.toString();
+		}
+
+		/**
+		 * Adds the contribution of a code fragment (recorded by getCurrentFragmentRecord) to the current code fragment.
+		 */
+		public void replayFragmentRecord(String record)
+		{
+			// running times may be empty
+			String[] values = record.split(",", -1);
+
+			totalNumProcessedCodeFragments += Integer.parseInt(values[0]);
+			totalCountRunsOverThreadPairs += Integer.parseInt(values[1]);
+			countTimedoutRunsOverThreadPairs += Integer.parseInt(values[2]);
+			totalCountRunsOverAllThreads += Integer.parseInt(values[3]);
+			countTimedoutRunsOverAllThreads += Integer.parseInt(values[4]);
+			totalCountFailedRuns += Integer.parseInt(values[5]);
+			countSkippedRunsOverThreadPairs += Integer.parseInt(values[6]);
+			countSymmetricRunsOverThreadPairs += Integer.parseInt(values[7]);
+
+			runningTimesOverThreadPairs.replayFragmentRecord(values[8]);
+			runningTimesOverAllThreads.replayFragmentRecord(values[9]);
 		}
 		
-		public List<Long> getSumRunningTimesForThreadPairsOverCodeFragments()
+		public RunTimeStatistics getRunningTimesOverThreadPairs()
 		{
-			return allRunningTimesForThreadPairsOverFragments;
+			return runningTimesOverThreadPairs;
 		}
 		
-		public List<Long> getSumRunningTimesForAllThreadsOverCodeFragments()
+		public RunTimeStatistics getRunningTimesOverAllThreads()
 		{
-			return allRunningTimesForAllThreadsOverFragments;
+			return runningTimesOverAllThreads;
 		}
 
 		public int getNumberOfProcessedCodeFragments()
@@ -820,20 +2176,20 @@ public class Main
 			countTimedoutRunsOverAllThreads += 1;
 		}
 
-		public void addRunningTimeForThreadPair(long rt)
+		public void addRunningTimeForThreadPair(String version, long rt)
 		{
 			// if the actual running time is 0 (e.g., several microseconds) then we report 1 millisecond
 			if (rt == 0) rt = 1;
 
-			sumRunningTimesOverThreadPairsForCurrentFragment += rt;
+			runningTimesOverThreadPairs.add(version, rt);
 		}
 		
-		public void addRunningTimeForAllThreads(long rt)
+		public void addRunningTimeForAllThreads(String version, long rt)
 		{
 			// if the actual running time is 0 (e.g., several microseconds) then we report 1 millisecond
 			if (rt == 0) rt = 1;
 
-			sumRunningTimesOverAllThreadsForCurrentFragment += rt;
+			runningTimesOverAllThreads.add(version, rt);
 		}
 	
 		public int getCountOfFailedRuns()
@@ -845,6 +2201,26 @@ public class Main
 		{
 			totalCountFailedRuns += 1;
 		}
+
+		public int getCountOfSkippedRunsOverThreadPairs()
+		{
+			return countSkippedRunsOverThreadPairs;
+		}
+
+		public void incCountOfSkippedRunsOverThreadPairs()
+		{
+			countSkippedRunsOverThreadPairs += 1;
+		}
+
+		public int getCountOfSymmetricRunsOverThreadPairs()
+		{
+			return countSymmetricRunsOverThreadPairs;
+		}
+
+		public void incCountOfSymmetricRunsOverThreadPairs()
+		{
+			countSymmetricRunsOverThreadPairs += 1;
+		}
 	}
 
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.Date;
+
+import java.io.File;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+
+import cz.cuni.mff.d3s.incverif.wala.WALAUtils;
+import cz.cuni.mff.d3s.incverif.versions.ClassChangeWatcher;
+
+
+/**
+ * Long-running mode for developers, which watches the directory with class files of the subject program ("analysis.target.dir") and verifies only code fragments in methods whose code was changed.
+ * Arguments are the same as for Main, and the tool options "--watch-interval" and "--watch-quiet" set the polling interval and the quiet period that marks the end of a build (both in milliseconds).
+ * Library classes for the static analysis stay loaded between campaigns (see WALAUtils.enableLibrarySharing), and only the class hierarchy of the subject program is created again for the changed classes.
+ * The tool option "--watch-reuse-analysis true" keeps also results of the static analysis in memory (see Main.enableAnalysisRetention), so that the call graph and the pointer analysis are not computed again when methods keep their calls and interfering actions.
+ * This reuse is unsound (changes of data flow are not detected), and therefore it is disabled by default.
+ */
+public class WatchMain
+{
+	public static void main(String[] args)
+	{
+		List<String> toolOptionsAsProps = new ArrayList<String>();
+		String[] otherArgs = Main.extractToolOptions(args, toolOptionsAsProps);
+
+		if (otherArgs.length < 4)
+		{
+			System.err.println("usage: WatchMain <algorithm> <mode> <versions path prefix> <JPF arguments and tool options>");
+			return;
+		}
+
+		List<String> jpfArgs = new ArrayList<String>();
+		for (int i = 3; i < otherArgs.length; i++) jpfArgs.add(otherArgs[i]);
+		jpfArgs.addAll(toolOptionsAsProps);
+
+		Config jpfConfig = JPF.createConfig(jpfArgs.toArray(new String[jpfArgs.size()]));
+
+		String targetClassPathStr = jpfConfig.getString("analysis.target.dir", "");
+
+		long pollIntervalMS = jpfConfig.getLong("incverif.watch.interval", 1000);
+		long quietPeriodMS = jpfConfig.getLong("incverif.watch.quiet", 500);
+
+		boolean reuseAnalysis = jpfConfig.getBoolean("incverif.watch.reuse.analysis", false);
+
+		WALAUtils.enableLibrarySharing();
+
+		if (reuseAnalysis)
+		{
+			System.out.println("[WARNING] results of the static analysis are reused for changed methods, which may miss interfering actions");
+
+			Main.enableAnalysisRetention();
+		}
+
+		try
+		{
+			ClassChangeWatcher watcher = new ClassChangeWatcher(new File(targetClassPathStr));
+
+			System.out.println("[LOG] watching class files in the directory " + targetClassPathStr);
+
+			while (true)
+			{
+				Set<String> changedMethodSigs = watcher.waitForChangedMethods(pollIntervalMS, quietPeriodMS);
+
+				System.out.print("\n");
+				System.out.println("[LOG] changed methods = " + changedMethodSigs.size());
+				for (String mthSig : changedMethodSigs) System.out.println("[LOG] changed method: " + mthSig);
+
+				StringBuffer methodsStr = new StringBuffer();
+				for (String mthSig : changedMethodSigs)
+				{
+					if (methodsStr.length() > 0) methodsStr.append(",");
+					methodsStr.append(mthSig);
+				}
+
+				String[] campaignArgs = new String[args.length + 2];
+				System.arraycopy(args, 0, campaignArgs, 0, args.length);
+				campaignArgs[args.length] = "--fragment-methods";
+				campaignArgs[args.length + 1] = methodsStr.toString();
+
+				Date campaignStartTime = new Date();
+
+				try
+				{
+					Main.runCampaign(campaignArgs);
+				}
+				catch (Throwable ex)
+				{
+					// the next change may fix the problem
+					System.err.println("[ERROR] campaign for the changed methods failed");
+					ex.printStackTrace();
+				}
+
+				long campaignTimeMS = new Date().getTime() - campaignStartTime.getTime();
+
+				System.out.print("\n");
+				System.out.println("[LOG] campaign for the changed methods finished: time = " + campaignTimeMS + " ms");
+				System.out.println("[LOG] watching class files in the directory " + targetClassPathStr);
+			}
+		}
+		catch (Exception ex)
+		{
+			System.err.println("[ERROR] watching class files failed");
+			ex.printStackTrace();
+		}
+	}
+}
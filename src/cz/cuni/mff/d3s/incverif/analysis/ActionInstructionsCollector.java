@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.analysis;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.shrikeBT.*;
+
+import cz.cuni.mff.d3s.incverif.common.ProgramPoint;
+import cz.cuni.mff.d3s.incverif.wala.WALAContext;
+
+
+/**
+ * Records the sequence of bytecode instructions in each method that matter for the call graph and for the interfering actions (method calls, field accesses, array element accesses, monitors, and allocations).
+ * Program points of actions can be moved from one version of a method to the other when both versions have the same sequence.
+ * The sequence does not capture the data flow between the instructions (e.g., which object is the receiver of a call), and so equal sequences do not imply equal results of the pointer analysis.
+ */
+public class ActionInstructionsCollector implements BytecodeInstructionVisitor
+{
+	// method signature -> textual forms of the instructions (including their operands like target methods and fields)
+	private Map<String, List<String>> mthSig2InsnTexts;
+
+	// method signature -> locations of the instructions (in the same order)
+	private Map<String, List<ProgramPoint>> mthSig2InsnPPs;
+
+
+	public ActionInstructionsCollector()
+	{
+		mthSig2InsnTexts = new HashMap<String, List<String>>();
+		mthSig2InsnPPs = new HashMap<String, List<ProgramPoint>>();
+	}
+
+
+	public void visitBytecodeInstruction(IBytecodeMethod bcMth, IInstruction[] mthInstructions, int insnIndex, ProgramPoint insnPP, WALAContext walaCtx) throws Exception
+	{
+		IInstruction insn = mthInstructions[insnIndex];
+
+		if ( ! ( (insn instanceof IInvokeInstruction) || (insn instanceof IGetInstruction) || (insn instanceof IPutInstruction) || (insn instanceof IArrayLoadInstruction) || (insn instanceof IArrayStoreInstruction) || (insn instanceof MonitorInstruction) || (insn instanceof NewInstruction) ) ) return;
+
+		List<String> insnTexts = mthSig2InsnTexts.get(insnPP.methodSig);
+		List<ProgramPoint> insnPPs = mthSig2InsnPPs.get(insnPP.methodSig);
+
+		if (insnTexts == null)
+		{
+			insnTexts = new ArrayList<String>();
+			mthSig2InsnTexts.put(insnPP.methodSig, insnTexts);
+
+			insnPPs = new ArrayList<ProgramPoint>();
+			mthSig2InsnPPs.put(insnPP.methodSig, insnPPs);
+		}
+
+		insnTexts.add(insn.toString());
+		insnPPs.add(insnPP);
+	}
+
+	/**
+	 * Returns the map from locations of recorded instructions to their locations in the new version of the program, or null if some method has a different sequence of instructions in the new version (or exists only in one version).
+	 * Instructions of unchanged methods may be moved too (e.g., when the constant pool of their class changes).
+	 */
+	public Map<ProgramPoint, ProgramPoint> mapToNewVersion(ActionInstructionsCollector newVersionColl)
+	{
+		Map<ProgramPoint, ProgramPoint> oldPP2NewPP = new HashMap<ProgramPoint, ProgramPoint>();
+
+		// methods without any such instructions are not recorded at all
+		if ( ! mthSig2InsnTexts.keySet().equals(newVersionColl.mthSig2InsnTexts.keySet()) ) return null;
+
+		for (String mthSig : mthSig2InsnTexts.keySet())
+		{
+			if ( ! mthSig2InsnTexts.get(mthSig).equals(newVersionColl.mthSig2InsnTexts.get(mthSig)) ) return null;
+
+			List<ProgramPoint> oldInsnPPs = mthSig2InsnPPs.get(mthSig);
+			List<ProgramPoint> newInsnPPs = newVersionColl.mthSig2InsnPPs.get(mthSig);
+
+			for (int i = 0; i < oldInsnPPs.size(); i++)
+			{
+				if ( ! oldInsnPPs.get(i).equals(newInsnPPs.get(i)) ) oldPP2NewPP.put(oldInsnPPs.get(i), newInsnPPs.get(i));
+			}
+		}
+
+		return oldPP2NewPP;
+	}
+}
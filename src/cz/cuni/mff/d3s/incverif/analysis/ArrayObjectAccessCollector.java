@@ -19,6 +19,7 @@ import java.util.Iterator;
 import java.util.Collection;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.Map;
 
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.ipa.callgraph.CallGraph;
@@ -48,7 +49,7 @@ import cz.cuni.mff.d3s.incverif.wala.AllocationSitesData;
 import cz.cuni.mff.d3s.incverif.wala.ArrayAccessCodeInfo;
 
 
-public class ArrayObjectAccessCollector
+public class ArrayObjectAccessCollector implements InstructionVisitor
 {
 	// set of array objects accesses for reading (xALOAD) 
 	public Set<ArrayObjectAccess> arrayReads; 
@@ -66,64 +67,56 @@ public class ArrayObjectAccessCollector
 
 	public void analyzeProgram(WALAContext walaCtx) throws Exception
 	{
-		for (BasicBlockInContext<IExplodedBasicBlock> bb : walaCtx.interprocCFG)
-		{
-			CGNode mthNode = bb.getNode();
-
-			if (WALAUtils.isSyntheticMethod(mthNode.getMethod())) continue;
+		ProgramCodeScanner scanner = new ProgramCodeScanner();
+		scanner.addVisitor(this);
+		scanner.analyzeProgram(walaCtx);
+	}
 
-			IR methodIR = mthNode.getIR();
+	public void visitInstruction(CGNode mthNode, IR methodIR, SSAInstruction insn, ProgramPoint insnPP, WALAContext walaCtx) throws Exception
+	{
+		if (insn instanceof SSAArrayReferenceInstruction) 
+		{
+			SSAArrayReferenceInstruction arrInsn = (SSAArrayReferenceInstruction) insn;
 				
-			if (methodIR == null) continue;
-
-			int firstInsnIdx = bb.getFirstInstructionIndex();
-			int lastInsnIdx = bb.getLastInstructionIndex();
-   
-			// basic block without instructions
-			if ((firstInsnIdx < 0) || (lastInsnIdx < 0)) continue;
+			try
+			{
+				Set<ArrayID> arrayIDs = ArrayAccessCodeInfo.getArraysAccessedByInsn(mthNode, arrInsn, walaCtx);
 
-			SSAInstruction[] instructions = methodIR.getInstructions();
+				if (arrInsn instanceof SSAArrayLoadInstruction)
+				{
+					for (ArrayID aID : arrayIDs)
+					{
+						ArrayObjectAccess aoAcc = new ArrayObjectAccess(aID, insnPP);
 
-			for (int insnIndex = firstInsnIdx; insnIndex <= lastInsnIdx; insnIndex++) 
-			{
-				SSAInstruction insn = instructions[insnIndex];
+						arrayReads.add(aoAcc);
+					}
+				}
 
-				if (insn instanceof SSAArrayReferenceInstruction) 
+				if (arrInsn instanceof SSAArrayStoreInstruction)
 				{
-					SSAArrayReferenceInstruction arrInsn = (SSAArrayReferenceInstruction) insn;
-						
-					try
+					for (ArrayID aID : arrayIDs)
 					{
-						int insnBcPos = WALAUtils.getInsnBytecodePos(mthNode, insnIndex);
-						int insnBcIndex = WALAUtils.getInsnBytecodeIndex(mthNode, insnBcPos, walaCtx);
-						ProgramPoint insnPP = new ProgramPoint(mthNode.getMethod().getSignature(), insnIndex, insnBcPos, insnBcIndex);
-
-						Set<ArrayID> arrayIDs = ArrayAccessCodeInfo.getArraysAccessedByInsn(mthNode, arrInsn, walaCtx);
-
-						if (arrInsn instanceof SSAArrayLoadInstruction)
-						{
-							for (ArrayID aID : arrayIDs)
-							{
-								ArrayObjectAccess aoAcc = new ArrayObjectAccess(aID, insnPP);
-
-								arrayReads.add(aoAcc);
-							}
-						}
-
-						if (arrInsn instanceof SSAArrayStoreInstruction)
-						{
-							for (ArrayID aID : arrayIDs)
-							{
-								ArrayObjectAccess aoAcc = new ArrayObjectAccess(aID, insnPP);
-
-								arrayWrites.add(aoAcc);
-							}
-						}
+						ArrayObjectAccess aoAcc = new ArrayObjectAccess(aID, insnPP);
+
+						arrayWrites.add(aoAcc);
 					}
-					catch (Exception ex) { ex.printStackTrace(); }						
-				} 
+				}
 			}
-		}
+			catch (Exception ex) { ex.printStackTrace(); }						
+		} 
+	}
+
+	public InstructionVisitor createPartialVisitor()
+	{
+		return new ArrayObjectAccessCollector();
+	}
+
+	public void mergePartialResults(InstructionVisitor partialVisitor)
+	{
+		ArrayObjectAccessCollector partialColl = (ArrayObjectAccessCollector) partialVisitor;
+
+		arrayReads.addAll(partialColl.arrayReads);
+		arrayWrites.addAll(partialColl.arrayWrites);
 	}
 
 	public void dropThreadLocalAccesses(Set<AllocationSite> sharedObjects)
@@ -143,5 +136,29 @@ public class ArrayObjectAccessCollector
 		}
 	}
 
+	/**
+	 * Moves accesses to their locations in a new version of the program (accesses at other locations are not changed).
+	 */
+	public void moveProgramPoints(Map<ProgramPoint, ProgramPoint> oldPP2NewPP)
+	{
+		arrayReads = moveAccesses(arrayReads, oldPP2NewPP);
+		arrayWrites = moveAccesses(arrayWrites, oldPP2NewPP);
+	}
+
+	private static Set<ArrayObjectAccess> moveAccesses(Set<ArrayObjectAccess> accesses, Map<ProgramPoint, ProgramPoint> oldPP2NewPP)
+	{
+		Set<ArrayObjectAccess> movedAccesses = new HashSet<ArrayObjectAccess>();
+
+		for (ArrayObjectAccess aoAcc : accesses)
+		{
+			ProgramPoint newPP = oldPP2NewPP.get(aoAcc.progPoint);
+
+			if (newPP != null) movedAccesses.add(new ArrayObjectAccess(aoAcc.targetArray, newPP));
+			else movedAccesses.add(aoAcc);
+		}
+
+		return movedAccesses;
+	}
+
 }
 
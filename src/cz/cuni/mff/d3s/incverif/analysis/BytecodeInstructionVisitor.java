@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.analysis;
+
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.shrikeBT.IInstruction;
+
+import cz.cuni.mff.d3s.incverif.common.ProgramPoint;
+import cz.cuni.mff.d3s.incverif.wala.WALAContext;
+
+
+/**
+ * Collector that processes individual bytecode (Shrike) instructions of the program, which are supplied by BytecodeScanner.
+ */
+public interface BytecodeInstructionVisitor
+{
+	void visitBytecodeInstruction(IBytecodeMethod bcMth, IInstruction[] mthInstructions, int insnIndex, ProgramPoint insnPP, WALAContext walaCtx) throws Exception;
+}
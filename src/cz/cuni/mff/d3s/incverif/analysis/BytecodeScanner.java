@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.analysis;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.types.ClassLoaderReference;
+
+import cz.cuni.mff.d3s.incverif.common.ProgramPoint;
+import cz.cuni.mff.d3s.incverif.wala.WALAContext;
+import cz.cuni.mff.d3s.incverif.wala.WALAUtils;
+
+
+/**
+ * Decodes the bytecode of every method just once, creates the map from bytecode positions to bytecode indexes (see WALAContext.mthSig2BcPosIdx), and supplies each instruction to all registered collectors.
+ * By default, only classes loaded by the application loader are processed, because modified code fragments are located only in the subject program (maps for library methods are created on demand).
+ */
+public class BytecodeScanner
+{
+	private List<BytecodeInstructionVisitor> visitors;
+
+	// process also library classes (JDK, JPF models)
+	private boolean allClasses;
+
+
+	public BytecodeScanner(boolean allClasses)
+	{
+		visitors = new ArrayList<BytecodeInstructionVisitor>();
+
+		this.allClasses = allClasses;
+	}
+
+
+	public void addVisitor(BytecodeInstructionVisitor v)
+	{
+		visitors.add(v);
+	}
+
+	public void analyzeProgram(WALAContext walaCtx) throws Exception
+	{
+		for (IClass cls : walaCtx.classHierarchy)
+		{
+			if ( ( ! allClasses ) && ( ! cls.getClassLoader().getReference().equals(ClassLoaderReference.Application) ) ) continue;
+
+			for (IMethod mth : cls.getDeclaredMethods())
+			{
+				if ( ! (mth instanceof IBytecodeMethod) ) continue;
+
+				IBytecodeMethod bcMth = (IBytecodeMethod) mth;
+
+				Map<Integer, Integer> mthBcPos2Idx = WALAUtils.getBytecodePositionToIndexMap(bcMth, walaCtx);
+
+				if (WALAUtils.isSyntheticMethod(mth)) continue;
+
+				if (mth.isNative() || mth.isAbstract()) continue;
+
+				String mthSig = mth.getSignature();
+
+				IInstruction[] mthInstructions = bcMth.getInstructions();
+
+				for (int insnIndex = 0; insnIndex < mthInstructions.length; insnIndex++)
+				{
+					int insnBcPos = WALAUtils.getInsnBytecodePos(mth, insnIndex);
+
+					Integer insnBcIdx = mthBcPos2Idx.get(insnBcPos);
+					int insnBcIndex = (insnBcIdx != null) ? insnBcIdx.intValue() : -1;
+
+					ProgramPoint insnPP = new ProgramPoint(mthSig, insnIndex, insnBcPos, insnBcIndex);
+
+					for (BytecodeInstructionVisitor v : visitors) v.visitBytecodeInstruction(bcMth, mthInstructions, insnIndex, insnPP, walaCtx);
+				}
+			}
+		}
+	}
+}
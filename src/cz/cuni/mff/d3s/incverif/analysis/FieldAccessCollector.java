@@ -19,6 +19,7 @@ import java.util.Iterator;
 import java.util.Collection;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.Map;
 
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.ipa.callgraph.CallGraph;
@@ -48,7 +49,7 @@ import cz.cuni.mff.d3s.incverif.wala.AllocationSitesData;
 import cz.cuni.mff.d3s.incverif.wala.FieldAccessCodeInfo;
 
 
-public class FieldAccessCollector
+public class FieldAccessCollector implements InstructionVisitor
 {
 	// set of field read accesses (getfield, getstatic)
 	public Set<FieldAccess> fieldReads; 
@@ -66,66 +67,58 @@ public class FieldAccessCollector
 
 	public void analyzeProgram(WALAContext walaCtx) throws Exception
 	{
-		for (BasicBlockInContext<IExplodedBasicBlock> bb : walaCtx.interprocCFG)
-		{
-			CGNode mthNode = bb.getNode();
-
-			if (WALAUtils.isSyntheticMethod(mthNode.getMethod())) continue;
+		ProgramCodeScanner scanner = new ProgramCodeScanner();
+		scanner.addVisitor(this);
+		scanner.analyzeProgram(walaCtx);
+	}
 
-			IR methodIR = mthNode.getIR();
+	public void visitInstruction(CGNode mthNode, IR methodIR, SSAInstruction insn, ProgramPoint insnPP, WALAContext walaCtx) throws Exception
+	{
+		if (insn instanceof SSAFieldAccessInstruction) 
+		{
+			SSAFieldAccessInstruction faInsn = (SSAFieldAccessInstruction) insn;
 				
-			if (methodIR == null) continue;
-
-			int firstInsnIdx = bb.getFirstInstructionIndex();
-			int lastInsnIdx = bb.getLastInstructionIndex();
-   
-			// basic block without instructions
-			if ((firstInsnIdx < 0) || (lastInsnIdx < 0)) continue;
+			try
+			{
+				Set<FieldID> fieldIDs = FieldAccessCodeInfo.getFieldsForInsn(mthNode, faInsn, walaCtx);
 
-			SSAInstruction[] instructions = methodIR.getInstructions();
+				if (faInsn instanceof SSAGetInstruction)
+				{
+					for (FieldID fID : fieldIDs)
+					{
+						FieldAccess fAcc = new FieldAccess(fID, insnPP);
 
-			for (int insnIndex = firstInsnIdx; insnIndex <= lastInsnIdx; insnIndex++) 
-			{
-				SSAInstruction insn = instructions[insnIndex];
+						fieldReads.add(fAcc);
+					}
+				}
 
-				if (insn instanceof SSAFieldAccessInstruction) 
+				if (faInsn instanceof SSAPutInstruction)
 				{
-					SSAFieldAccessInstruction faInsn = (SSAFieldAccessInstruction) insn;
-						
-					try
+					for (FieldID fID : fieldIDs)
 					{
-						int insnBcPos = WALAUtils.getInsnBytecodePos(mthNode, insnIndex);
-						int insnBcIndex = WALAUtils.getInsnBytecodeIndex(mthNode, insnBcPos, walaCtx);
-						ProgramPoint insnPP = new ProgramPoint(mthNode.getMethod().getSignature(), insnIndex, insnBcPos, insnBcIndex);
-
-						Set<FieldID> fieldIDs = FieldAccessCodeInfo.getFieldsForInsn(mthNode, faInsn, walaCtx);
-
-						if (faInsn instanceof SSAGetInstruction)
-						{
-							for (FieldID fID : fieldIDs)
-							{
-								FieldAccess fAcc = new FieldAccess(fID, insnPP);
-
-								fieldReads.add(fAcc);
-							}
-						}
-
-						if (faInsn instanceof SSAPutInstruction)
-						{
-							for (FieldID fID : fieldIDs)
-							{
-								FieldAccess fAcc = new FieldAccess(fID, insnPP);
-
-								fieldWrites.add(fAcc);
-							}
-						}
+						FieldAccess fAcc = new FieldAccess(fID, insnPP);
+
+						fieldWrites.add(fAcc);
 					}
-					catch (Exception ex) { ex.printStackTrace(); }						
 				}
 			}
+			catch (Exception ex) { ex.printStackTrace(); }						
 		}
 	}
 
+	public InstructionVisitor createPartialVisitor()
+	{
+		return new FieldAccessCollector();
+	}
+
+	public void mergePartialResults(InstructionVisitor partialVisitor)
+	{
+		FieldAccessCollector partialColl = (FieldAccessCollector) partialVisitor;
+
+		fieldReads.addAll(partialColl.fieldReads);
+		fieldWrites.addAll(partialColl.fieldWrites);
+	}
+
 	public void dropThreadLocalAccesses(Set<AllocationSite> sharedObjects)
 	{
 		for (Iterator<FieldAccess> frIt = fieldReads.iterator(); frIt.hasNext(); )
@@ -143,5 +136,29 @@ public class FieldAccessCollector
 		}
 	}
 
+	/**
+	 * Moves accesses to their locations in a new version of the program (accesses at other locations are not changed).
+	 */
+	public void moveProgramPoints(Map<ProgramPoint, ProgramPoint> oldPP2NewPP)
+	{
+		fieldReads = moveAccesses(fieldReads, oldPP2NewPP);
+		fieldWrites = moveAccesses(fieldWrites, oldPP2NewPP);
+	}
+
+	private static Set<FieldAccess> moveAccesses(Set<FieldAccess> accesses, Map<ProgramPoint, ProgramPoint> oldPP2NewPP)
+	{
+		Set<FieldAccess> movedAccesses = new HashSet<FieldAccess>();
+
+		for (FieldAccess fAcc : accesses)
+		{
+			ProgramPoint newPP = oldPP2NewPP.get(fAcc.progPoint);
+
+			if (newPP != null) movedAccesses.add(new FieldAccess(fAcc.targetField, newPP));
+			else movedAccesses.add(fAcc);
+		}
+
+		return movedAccesses;
+	}
+
 }
 
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.analysis;
+
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAInstruction;
+
+import cz.cuni.mff.d3s.incverif.common.ProgramPoint;
+import cz.cuni.mff.d3s.incverif.wala.WALAContext;
+
+
+/**
+ * Collector that processes individual SSA instructions of the program, which are supplied by ProgramCodeScanner.
+ * Methods may be processed concurrently by partial collectors (one for each chunk of methods), so a collector must not modify any shared state other than its own results.
+ */
+public interface InstructionVisitor
+{
+	void visitInstruction(CGNode mthNode, IR methodIR, SSAInstruction insn, ProgramPoint insnPP, WALAContext walaCtx) throws Exception;
+
+	/**
+	 * Returns an empty collector of the same kind, which gathers results for a subset of methods when the program is scanned in parallel.
+	 */
+	InstructionVisitor createPartialVisitor();
+
+	/**
+	 * Adds the results gathered by the given partial collector (created by createPartialVisitor).
+	 */
+	void mergePartialResults(InstructionVisitor partialVisitor);
+}
@@ -32,7 +32,7 @@ import cz.cuni.mff.d3s.incverif.wala.WALAContext;
 import cz.cuni.mff.d3s.incverif.wala.WALAUtils;
 
 
-public class MethodInvokeLocationsCollector
+public class MethodInvokeLocationsCollector implements BytecodeInstructionVisitor
 {
 	// we need to have a sorted set of locations (program points)
 	public TreeSet<ProgramPoint> mthInvokeLocs;
@@ -50,46 +50,29 @@ public class MethodInvokeLocationsCollector
 
 	public void analyzeProgram(WALAContext walaCtx) throws Exception
 	{
-		for (IClass cls : walaCtx.classHierarchy)
-		{
-			for (IMethod mth : cls.getDeclaredMethods()) 
-			{
-				String mthSig = mth.getSignature();
-
-				if (WALAUtils.isSyntheticMethod(mth)) continue;
-				
-				if (mth.isNative() || mth.isAbstract()) continue;
-
-				IBytecodeMethod bcMth = (IBytecodeMethod) mth;
-
-				IInstruction[] mthInstructions = bcMth.getInstructions();
-
-				for (int insnIndex = 0; insnIndex < mthInstructions.length; insnIndex++)
-				{
-					Instruction insn = (Instruction) mthInstructions[insnIndex];
-
-					int insnBcPos = WALAUtils.getInsnBytecodePos(mth, insnIndex);
-					int insnBcIndex = WALAUtils.getInsnBytecodeIndex(mth, insnBcPos, walaCtx);
+		BytecodeScanner scanner = new BytecodeScanner(true);
+		scanner.addVisitor(this);
+		scanner.analyzeProgram(walaCtx);
+	}
 
-					ProgramPoint insnPP = new ProgramPoint(mthSig, insnIndex, insnBcPos, insnBcIndex);
+	public void visitBytecodeInstruction(IBytecodeMethod bcMth, IInstruction[] mthInstructions, int insnIndex, ProgramPoint insnPP, WALAContext walaCtx) throws Exception
+	{
+		Instruction insn = (Instruction) mthInstructions[insnIndex];
 
-					if (insn instanceof InvokeInstruction)
-					{
-						InvokeInstruction invokeInsn = (InvokeInstruction) insn;
+		if (insn instanceof InvokeInstruction)
+		{
+			InvokeInstruction invokeInsn = (InvokeInstruction) insn;
 
-						boolean skip = false;
+			boolean skip = false;
 
-						if (considerJustMethodsWithoutResult)
-						{
-							if (mth.getReturnType() != TypeReference.Void) skip = true;
-						}
+			if (considerJustMethodsWithoutResult)
+			{
+				if (bcMth.getReturnType() != TypeReference.Void) skip = true;
+			}
 
-						if ( ! skip )
-						{
-							mthInvokeLocs.add(insnPP);
-						}
-					}
-				}
+			if ( ! skip )
+			{
+				mthInvokeLocs.add(insnPP);
 			}
 		}
 	}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.analysis;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAInstruction;
+
+import cz.cuni.mff.d3s.incverif.common.ProgramPoint;
+import cz.cuni.mff.d3s.incverif.wala.WALAContext;
+import cz.cuni.mff.d3s.incverif.wala.WALAUtils;
+
+
+/**
+ * Walks the IR of every method in the call graph just once and supplies each instruction, together with its program point, to all registered collectors.
+ * Call graph nodes can be processed in parallel by a fork-join pool, when more than one thread is requested.
+ * In that case, every fixed-size chunk of nodes is processed by partial collectors (see InstructionVisitor.createPartialVisitor) whose results are merged in the order of chunks, so the output does not depend on the number of threads and on their scheduling.
+ */
+public class ProgramCodeScanner
+{
+	// number of call graph nodes processed by a single task in the parallel mode (it must not depend on the number of threads)
+	private static final int NODES_PER_CHUNK = 16;
+
+	private List<InstructionVisitor> visitors;
+
+	private int numThreads;
+
+
+	public ProgramCodeScanner()
+	{
+		this(1);
+	}
+
+	public ProgramCodeScanner(int numThreads)
+	{
+		visitors = new ArrayList<InstructionVisitor>();
+
+		this.numThreads = numThreads;
+	}
+
+
+	public void addVisitor(InstructionVisitor v)
+	{
+		visitors.add(v);
+	}
+
+	public void analyzeProgram(WALAContext walaCtx) throws Exception
+	{
+		// the interprocedural CFG contains basic blocks of all call graph nodes, and every basic block in the exploded CFG corresponds to a single instruction
+
+		// IRs are retrieved up front by a single thread, because the cache of IRs in WALA is not thread-safe
+		List<CGNode> mthNodes = new ArrayList<CGNode>();
+		List<IR> mthIRs = new ArrayList<IR>();
+
+		for (CGNode mthNode : walaCtx.callGraph)
+		{
+			if (WALAUtils.isSyntheticMethod(mthNode.getMethod())) continue;
+
+			IR methodIR = mthNode.getIR();
+
+			if (methodIR == null) continue;
+
+			mthNodes.add(mthNode);
+			mthIRs.add(methodIR);
+		}
+
+		if ((numThreads <= 1) || (mthNodes.size() <= NODES_PER_CHUNK))
+		{
+			for (int i = 0; i < mthNodes.size(); i++) analyzeMethod(mthNodes.get(i), mthIRs.get(i), visitors, walaCtx);
+
+			return;
+		}
+
+		int numChunks = (mthNodes.size() + NODES_PER_CHUNK - 1) / NODES_PER_CHUNK;
+
+		// partial collectors for each chunk of nodes
+		List<List<InstructionVisitor>> chunkVisitors = new ArrayList<List<InstructionVisitor>>();
+
+		for (int c = 0; c < numChunks; c++)
+		{
+			List<InstructionVisitor> partialVisitors = new ArrayList<InstructionVisitor>();
+			for (InstructionVisitor v : visitors) partialVisitors.add(v.createPartialVisitor());
+
+			chunkVisitors.add(partialVisitors);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+
+		try
+		{
+			pool.invoke(new ScanTask(mthNodes, mthIRs, chunkVisitors, 0, numChunks, walaCtx));
+		}
+		catch (ScanException ex)
+		{
+			throw (Exception) ex.getCause();
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+
+		for (List<InstructionVisitor> partialVisitors : chunkVisitors)
+		{
+			for (int k = 0; k < visitors.size(); k++) visitors.get(k).mergePartialResults(partialVisitors.get(k));
+		}
+	}
+
+	private static void analyzeMethod(CGNode mthNode, IR methodIR, List<InstructionVisitor> visitors, WALAContext walaCtx) throws Exception
+	{
+		String mthSig = mthNode.getMethod().getSignature();
+
+		SSAInstruction[] instructions = methodIR.getInstructions();
+
+		for (int insnIndex = 0; insnIndex < instructions.length; insnIndex++)
+		{
+			SSAInstruction insn = instructions[insnIndex];
+
+			// empty slots (e.g., for bytecode instructions that do not have SSA counterparts)
+			if (insn == null) continue;
+
+			int insnBcPos = WALAUtils.getInsnBytecodePos(mthNode, insnIndex);
+			int insnBcIndex = WALAUtils.getInsnBytecodeIndex(mthNode, insnBcPos, walaCtx);
+			ProgramPoint insnPP = new ProgramPoint(mthSig, insnIndex, insnBcPos, insnBcIndex);
+
+			for (InstructionVisitor v : visitors) v.visitInstruction(mthNode, methodIR, insn, insnPP, walaCtx);
+		}
+	}
+
+
+	// processes the given range of chunks (splitting it in halves)
+	private static class ScanTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private List<CGNode> mthNodes;
+		private List<IR> mthIRs;
+
+		private List<List<InstructionVisitor>> chunkVisitors;
+
+		private int firstChunk;
+		private int endChunk;
+
+		private WALAContext walaCtx;
+
+
+		public ScanTask(List<CGNode> mthNodes, List<IR> mthIRs, List<List<InstructionVisitor>> chunkVisitors, int firstChunk, int endChunk, WALAContext walaCtx)
+		{
+			this.mthNodes = mthNodes;
+			this.mthIRs = mthIRs;
+
+			this.chunkVisitors = chunkVisitors;
+
+			this.firstChunk = firstChunk;
+			this.endChunk = endChunk;
+
+			this.walaCtx = walaCtx;
+		}
+
+		protected void compute()
+		{
+			if (endChunk - firstChunk > 1)
+			{
+				int midChunk = (firstChunk + endChunk) / 2;
+
+				invokeAll(new ScanTask(mthNodes, mthIRs, chunkVisitors, firstChunk, midChunk, walaCtx), new ScanTask(mthNodes, mthIRs, chunkVisitors, midChunk, endChunk, walaCtx));
+
+				return;
+			}
+
+			int firstNode = firstChunk * NODES_PER_CHUNK;
+			int endNode = Math.min(firstNode + NODES_PER_CHUNK, mthNodes.size());
+
+			try
+			{
+				for (int i = firstNode; i < endNode; i++) analyzeMethod(mthNodes.get(i), mthIRs.get(i), chunkVisitors.get(firstChunk), walaCtx);
+			}
+			catch (Exception ex)
+			{
+				throw new ScanException(ex);
+			}
+		}
+	}
+
+	// carries checked exceptions out of the fork-join pool
+	private static class ScanException extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		public ScanException(Exception cause)
+		{
+			super(cause);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.analysis;
+
+import java.util.Set;
+import java.util.Map;
+
+import cz.cuni.mff.d3s.incverif.common.ProgramPoint;
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+import cz.cuni.mff.d3s.incverif.wala.WALAContext;
+
+
+/**
+ * Results of the static analysis that are kept in memory between campaigns for the same subject program (see WatchMain).
+ * When the code of some methods changes, the results are reused if every method still has the same sequence of method calls, field accesses, array element accesses, monitors, and allocations (see ActionInstructionsCollector).
+ * Then the call edges (WALAContext.mthSig2CalleeSigs) and the interfering actions are assumed not to change, and only their locations are moved to the new bytecode, so that the call graph and the pointer analysis are not computed again.
+ * The reuse is unsound: results of the pointer analysis (targets of calls, shared objects, lock objects) depend on the data flow, which is not compared (e.g., a different local variable loaded before "putfield" or "invokeinterface").
+ */
+public class RetainedAnalysis
+{
+	// identifies the subject program and the inputs that influence the analysis
+	public String programKey;
+
+	// context for the current version of the subject program (the call graph and the pointer analysis are available only when they were computed for this version)
+	public WALAContext walaCtx;
+
+	private ActionInstructionsCollector actionInsnsColl;
+
+	// interfering actions on shared objects (and all synchronization events in the map used to match locks with unlocks)
+	private FieldAccessCollector fieldAccessColl;
+	private ArrayObjectAccessCollector arrayObjAccessColl;
+	private SynchEventCollector synchEventColl;
+
+
+	public RetainedAnalysis(String programKey, WALAContext walaCtx, ActionInstructionsCollector actionInsnsColl, FieldAccessCollector fieldAccessColl, ArrayObjectAccessCollector arrayObjAccessColl, SynchEventCollector synchEventColl)
+	{
+		this.programKey = programKey;
+
+		this.walaCtx = walaCtx;
+
+		this.actionInsnsColl = actionInsnsColl;
+
+		this.fieldAccessColl = fieldAccessColl;
+		this.arrayObjAccessColl = arrayObjAccessColl;
+		this.synchEventColl = synchEventColl;
+	}
+
+	public static String createProgramKey(String mainClassName, String targetClassPath, String exclusionFilePath, boolean bytecodeAllClasses)
+	{
+		return mainClassName + " " + targetClassPath + " " + exclusionFilePath + " " + bytecodeAllClasses;
+	}
+
+	/**
+	 * Computes modified code fragments for the new version of the subject program, or returns null if the retained results cannot be used for the new version.
+	 * The given context is created for the new version, and it gets the call edges of the previous version.
+	 */
+	public Set<CodeBlockBoundary> updateForNewVersion(WALAContext newWalaCtx, boolean bytecodeAllClasses) throws Exception
+	{
+		// a single pass over the bytecode of the new version (cheap when compared to the call graph)
+
+		VariableUpdateLocationsCollector updateColl = new VariableUpdateLocationsCollector();
+		MethodInvokeLocationsCollector invokeColl = new MethodInvokeLocationsCollector(true);
+		ActionInstructionsCollector newActionInsnsColl = new ActionInstructionsCollector();
+
+		BytecodeScanner bcScanner = new BytecodeScanner(bytecodeAllClasses);
+		bcScanner.addVisitor(updateColl);
+		bcScanner.addVisitor(invokeColl);
+		bcScanner.addVisitor(newActionInsnsColl);
+		bcScanner.analyzeProgram(newWalaCtx);
+
+		// every method must have the same sequence of calls and actions (including methods that the caller does not consider changed)
+		Map<ProgramPoint, ProgramPoint> oldPP2NewPP = actionInsnsColl.mapToNewVersion(newActionInsnsColl);
+
+		if (oldPP2NewPP == null) return null;
+
+		fieldAccessColl.moveProgramPoints(oldPP2NewPP);
+		arrayObjAccessColl.moveProgramPoints(oldPP2NewPP);
+		synchEventColl.moveProgramPoints(oldPP2NewPP);
+
+		newWalaCtx.mthSig2CalleeSigs = walaCtx.mthSig2CalleeSigs;
+
+		this.walaCtx = newWalaCtx;
+		this.actionInsnsColl = newActionInsnsColl;
+
+		// boundaries of the affected code blocks depend only on the bytecode of each method
+
+		InterferingActionsCollector actionsColl = new InterferingActionsCollector(newWalaCtx, fieldAccessColl, arrayObjAccessColl, synchEventColl, updateColl, invokeColl);
+
+		return actionsColl.getAffectedCodeBlockBoundaries();
+	}
+}
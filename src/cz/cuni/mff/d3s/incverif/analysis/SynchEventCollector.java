@@ -50,7 +50,7 @@ import cz.cuni.mff.d3s.incverif.wala.AllocationSitesData;
 import cz.cuni.mff.d3s.incverif.wala.SynchEventCodeInfo;
 
 
-public class SynchEventCollector
+public class SynchEventCollector implements InstructionVisitor
 {
 	public Set<SynchEventExec> synchEvents;
 
@@ -68,60 +68,76 @@ public class SynchEventCollector
 
 	public void analyzeProgram(WALAContext walaCtx) throws Exception
 	{
-		for (BasicBlockInContext<IExplodedBasicBlock> bb : walaCtx.interprocCFG)
-		{
-			CGNode mthNode = bb.getNode();
+		ProgramCodeScanner scanner = new ProgramCodeScanner();
+		scanner.addVisitor(this);
+		scanner.analyzeProgram(walaCtx);
+	}
+
+	public void visitInstruction(CGNode mthNode, IR methodIR, SSAInstruction insn, ProgramPoint insnPP, WALAContext walaCtx) throws Exception
+	{
+		String mthSig = insnPP.methodSig;
 
-			if (WALAUtils.isSyntheticMethod(mthNode.getMethod())) continue;
+		Set<SynchEventID> eventIDs = SynchEventCodeInfo.getSynchEventsForInsn(mthNode, methodIR, insn, walaCtx);
 
-			IR methodIR = mthNode.getIR();
-				
-			if (methodIR == null) continue;
+		for (SynchEventID evID : eventIDs)
+		{
+			SynchEventExec evExec = new SynchEventExec(evID, insnPP);
 
-			int firstInsnIdx = bb.getFirstInstructionIndex();
-			int lastInsnIdx = bb.getLastInstructionIndex();
-   
-			// basic block without instructions
-			if ((firstInsnIdx < 0) || (lastInsnIdx < 0)) continue;
+			synchEvents.add(evExec);
 
-			SSAInstruction[] instructions = methodIR.getInstructions();
+			SortedMap<ProgramPoint, Set<SynchEventExec>> mthEvents = mthSig2EventsByPP.get(mthSig);
 
-			for (int insnIndex = firstInsnIdx; insnIndex <= lastInsnIdx; insnIndex++) 
+			if (mthEvents == null)
 			{
-				SSAInstruction insn = instructions[insnIndex];
+				mthEvents = new TreeMap<ProgramPoint, Set<SynchEventExec>>();
+				mthSig2EventsByPP.put(mthSig, mthEvents);
+			}
 
-				String mthSig = mthNode.getMethod().getSignature();
+			Set<SynchEventExec> ppEvents = mthEvents.get(insnPP);
 
-				int insnBcPos = WALAUtils.getInsnBytecodePos(mthNode, insnIndex);
-				int insnBcIndex = WALAUtils.getInsnBytecodeIndex(mthNode, insnBcPos, walaCtx);
-				ProgramPoint insnPP = new ProgramPoint(mthSig, insnIndex, insnBcPos, insnBcIndex);
+			if (ppEvents == null)
+			{
+				ppEvents = new HashSet<SynchEventExec>();
+				mthEvents.put(insnPP, ppEvents);
+			}
 
-				Set<SynchEventID> eventIDs = SynchEventCodeInfo.getSynchEventsForInsn(mthNode, methodIR, insn, walaCtx);
+			ppEvents.add(evExec);
+		}
+	}
 
-				for (SynchEventID evID : eventIDs)
-				{
-					SynchEventExec evExec = new SynchEventExec(evID, insnPP);
+	public InstructionVisitor createPartialVisitor()
+	{
+		return new SynchEventCollector();
+	}
 
-					synchEvents.add(evExec);
+	public void mergePartialResults(InstructionVisitor partialVisitor)
+	{
+		SynchEventCollector partialColl = (SynchEventCollector) partialVisitor;
 
-					SortedMap<ProgramPoint, Set<SynchEventExec>> mthEvents = mthSig2EventsByPP.get(mthSig);
+		synchEvents.addAll(partialColl.synchEvents);
 
-					if (mthEvents == null)
-					{
-						mthEvents = new TreeMap<ProgramPoint, Set<SynchEventExec>>();
-						mthSig2EventsByPP.put(mthSig, mthEvents);
-					}
+		// the same method may be represented by multiple call graph nodes (in different chunks)
+		for (Map.Entry<String, SortedMap<ProgramPoint, Set<SynchEventExec>>> mthMe : partialColl.mthSig2EventsByPP.entrySet())
+		{
+			SortedMap<ProgramPoint, Set<SynchEventExec>> mthEvents = mthSig2EventsByPP.get(mthMe.getKey());
 
-					Set<SynchEventExec> ppEvents = mthEvents.get(insnPP);
+			if (mthEvents == null)
+			{
+				mthEvents = new TreeMap<ProgramPoint, Set<SynchEventExec>>();
+				mthSig2EventsByPP.put(mthMe.getKey(), mthEvents);
+			}
 
-					if (ppEvents == null)
-					{
-						ppEvents = new HashSet<SynchEventExec>();
-						mthEvents.put(insnPP, ppEvents);
-					}
+			for (Map.Entry<ProgramPoint, Set<SynchEventExec>> ppMe : mthMe.getValue().entrySet())
+			{
+				Set<SynchEventExec> ppEvents = mthEvents.get(ppMe.getKey());
 
-					ppEvents.add(evExec);
+				if (ppEvents == null)
+				{
+					ppEvents = new HashSet<SynchEventExec>();
+					mthEvents.put(ppMe.getKey(), ppEvents);
 				}
+
+				ppEvents.addAll(ppMe.getValue());
 			}
 		}
 	}
@@ -136,6 +152,46 @@ public class SynchEventCollector
 		}
 	}
 
+	/**
+	 * Moves events to their locations in a new version of the program (events at other locations are not changed).
+	 */
+	public void moveProgramPoints(Map<ProgramPoint, ProgramPoint> oldPP2NewPP)
+	{
+		Set<SynchEventExec> movedEvents = new HashSet<SynchEventExec>();
+
+		for (SynchEventExec evExec : synchEvents) movedEvents.add(moveEvent(evExec, oldPP2NewPP));
+
+		synchEvents = movedEvents;
+
+		// the map contains also thread local events (they are needed to match locks with unlocks)
+		for (Map.Entry<String, SortedMap<ProgramPoint, Set<SynchEventExec>>> mthMe : mthSig2EventsByPP.entrySet())
+		{
+			SortedMap<ProgramPoint, Set<SynchEventExec>> movedMthEvents = new TreeMap<ProgramPoint, Set<SynchEventExec>>();
+
+			for (Map.Entry<ProgramPoint, Set<SynchEventExec>> ppMe : mthMe.getValue().entrySet())
+			{
+				Set<SynchEventExec> movedPPEvents = new HashSet<SynchEventExec>();
+
+				for (SynchEventExec evExec : ppMe.getValue()) movedPPEvents.add(moveEvent(evExec, oldPP2NewPP));
+
+				ProgramPoint newPP = oldPP2NewPP.get(ppMe.getKey());
+
+				movedMthEvents.put((newPP != null) ? newPP : ppMe.getKey(), movedPPEvents);
+			}
+
+			mthMe.setValue(movedMthEvents);
+		}
+	}
+
+	private static SynchEventExec moveEvent(SynchEventExec evExec, Map<ProgramPoint, ProgramPoint> oldPP2NewPP)
+	{
+		ProgramPoint newPP = oldPP2NewPP.get(evExec.progPoint);
+
+		if (newPP == null) return evExec;
+
+		return new SynchEventExec(evExec.targetEvent, newPP);
+	}
+
 	public SynchEventExec findMatchingUnlockEvent(SynchEventExec inLockEv, WALAContext walaCtx) throws Exception
 	{
 		// select lock and unlock events from the same method
@@ -31,7 +31,7 @@ import cz.cuni.mff.d3s.incverif.wala.WALAContext;
 import cz.cuni.mff.d3s.incverif.wala.WALAUtils;
 
 
-public class VariableUpdateLocationsCollector
+public class VariableUpdateLocationsCollector implements BytecodeInstructionVisitor
 {
 	// we need to have a sorted set of locations (program points)
 	public TreeSet<ProgramPoint> varUpdateLocs; 
@@ -45,52 +45,35 @@ public class VariableUpdateLocationsCollector
 
 	public void analyzeProgram(WALAContext walaCtx) throws Exception
 	{
-		for (IClass cls : walaCtx.classHierarchy)
-		{
-			for (IMethod mth : cls.getDeclaredMethods()) 
-			{
-				String mthSig = mth.getSignature();
-
-				if (WALAUtils.isSyntheticMethod(mth)) continue;
-				
-				if (mth.isNative() || mth.isAbstract()) continue;
-
-				IBytecodeMethod bcMth = (IBytecodeMethod) mth;
-
-				IInstruction[] mthInstructions = bcMth.getInstructions();
-
-				for (int insnIndex = 0; insnIndex < mthInstructions.length; insnIndex++)
-				{
-					Instruction insn = (Instruction) mthInstructions[insnIndex];
-
-					int insnBcPos = WALAUtils.getInsnBytecodePos(mth, insnIndex);
-					int insnBcIndex = WALAUtils.getInsnBytecodeIndex(mth, insnBcPos, walaCtx);
+		BytecodeScanner scanner = new BytecodeScanner(true);
+		scanner.addVisitor(this);
+		scanner.analyzeProgram(walaCtx);
+	}
 
-					ProgramPoint insnPP = new ProgramPoint(mthSig, insnIndex, insnBcPos, insnBcIndex);
+	public void visitBytecodeInstruction(IBytecodeMethod bcMth, IInstruction[] mthInstructions, int insnIndex, ProgramPoint insnPP, WALAContext walaCtx) throws Exception
+	{
+		Instruction insn = (Instruction) mthInstructions[insnIndex];
 
-					if (insn instanceof ArrayStoreInstruction)
-					{
-						varUpdateLocs.add(insnPP);
-					}
+		if (insn instanceof ArrayStoreInstruction)
+		{
+			varUpdateLocs.add(insnPP);
+		}
 
-					if (insn instanceof PutInstruction)
-					{
-						varUpdateLocs.add(insnPP);
-					}
+		if (insn instanceof PutInstruction)
+		{
+			varUpdateLocs.add(insnPP);
+		}
 
-					if (insn instanceof StoreInstruction)
-					{
-						boolean skip = false;
-				
-						// this takes care of the way javac compiles synchronized blocks
-						if ((insnIndex + 1 < mthInstructions.length) && (mthInstructions[insnIndex + 1] instanceof MonitorInstruction)) skip = true;
+		if (insn instanceof StoreInstruction)
+		{
+			boolean skip = false;
+	
+			// this takes care of the way javac compiles synchronized blocks
+			if ((insnIndex + 1 < mthInstructions.length) && (mthInstructions[insnIndex + 1] instanceof MonitorInstruction)) skip = true;
 
-						if ( ! skip )
-						{
-							varUpdateLocs.add(insnPP);
-						}
-					}
-				}
+			if ( ! skip )
+			{
+				varUpdateLocs.add(insnPP);
 			}
 		}
 	}
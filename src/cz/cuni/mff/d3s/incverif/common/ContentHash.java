@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.common;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+/**
+ * Hashing of class files and other content, used to identify program versions on disk.
+ */
+public class ContentHash
+{
+	public static MessageDigest createDigest()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+	}
+
+	public static void update(MessageDigest md, String str)
+	{
+		md.update(str.getBytes(StandardCharsets.UTF_8));
+
+		// separator, so that concatenated strings cannot collide
+		md.update((byte) 0);
+	}
+
+	public static String toHex(byte[] bytes)
+	{
+		StringBuffer strbuf = new StringBuffer();
+
+		for (byte b : bytes) strbuf.append(String.format("%02x", b & 0xFF));
+
+		return strbuf.toString();
+	}
+
+	public static String hashString(String str)
+	{
+		MessageDigest md = createDigest();
+
+		update(md, str);
+
+		return toHex(md.digest());
+	}
+
+	/**
+	 * Computes the hash over all class files in the given directory (recursively, including their relative paths), or over the content of the given file (e.g., a jar archive).
+	 */
+	public static String hashClassPathEntry(File cpEntry) throws IOException
+	{
+		MessageDigest md = createDigest();
+
+		if (cpEntry.isDirectory())
+		{
+			List<String> classFileNames = new ArrayList<String>();
+			collectClassFiles(cpEntry, "", classFileNames);
+
+			// ordering must not depend on the file system
+			Collections.sort(classFileNames);
+
+			for (String cfName : classFileNames)
+			{
+				update(md, cfName);
+				md.update(Files.readAllBytes(new File(cpEntry, cfName).toPath()));
+			}
+		}
+		else if (cpEntry.isFile())
+		{
+			md.update(Files.readAllBytes(cpEntry.toPath()));
+		}
+
+		return toHex(md.digest());
+	}
+
+	private static void collectClassFiles(File dir, String relPathPrefix, List<String> classFileNames)
+	{
+		File[] children = dir.listFiles();
+		if (children == null) return;
+
+		for (File child : children)
+		{
+			String relPath = relPathPrefix + child.getName();
+
+			if (child.isDirectory()) collectClassFiles(child, relPath + "/", classFileNames);
+			else if (child.getName().endsWith(".class")) classFileNames.add(relPath);
+		}
+	}
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.Map;
+import java.util.HashMap;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import cz.cuni.mff.d3s.incverif.common.ContentHash;
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+import cz.cuni.mff.d3s.incverif.versions.ProgramVersion;
+
+
+/**
+ * Append-only journal of a verification campaign, which records every finished JPF run and every finished code fragment.
+ * When the tool is started again with an existing journal, the recorded results are replayed instead of running JPF again.
+ *
+ * Every line of the journal has one of the following forms, followed by the checksum of the line content (CRC32 in hex):
+ *   C <campaign id>
+ *   R <run id> <result record>
+ *   F <fragment id> <statistics record>
+ * The last line may be incomplete when the tool was killed, and such a line is removed from the file before new records are appended.
+ */
+public class CampaignJournal implements JPFRunResultStore
+{
+	// records are written to the operating system immediately, but forced to the disk only in batches
+	private static final int SYNC_BATCH_RECORDS = 64;
+	private static final long SYNC_BATCH_TIME_MS = 2000;
+
+	private FileOutputStream journalOutput;
+
+	private Map<String, JPFRunResult> runID2Result;
+
+	private Map<String, String> fragmentID2Stats;
+
+	private int unsyncedRecords;
+	private long lastSyncTime;
+
+
+	/**
+	 * Opens the journal in the given file and replays its content (if the file exists).
+	 * Throws an exception when the existing journal belongs to a campaign with a different identification (subject program, mode, etc).
+	 */
+	public CampaignJournal(File journalFile, String campaignDesc) throws IOException
+	{
+		this.runID2Result = new HashMap<String, JPFRunResult>();
+		this.fragmentID2Stats = new HashMap<String, String>();
+
+		String campaignID = ContentHash.hashString(campaignDesc);
+
+		boolean newJournal = ( ! journalFile.isFile() ) || (journalFile.length() == 0);
+
+		if ( ! newJournal )
+		{
+			removeIncompleteRecord(journalFile);
+
+			replay(journalFile, campaignID);
+		}
+
+		this.journalOutput = new FileOutputStream(journalFile, true);
+
+		if (newJournal) appendRecord("C " + campaignID);
+
+		// the campaign identification is always persisted immediately
+		sync();
+	}
+
+	private void replay(File journalFile, String campaignID) throws IOException
+	{
+		boolean campaignMatched = false;
+
+		// all lines are complete (see removeIncompleteRecord)
+		for (String line : Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8))
+		{
+			String record = getCheckedRecord(line);
+
+			if (record == null)
+			{
+				System.err.println("[WARNING] corrupted record in journal " + journalFile.getPath() + " ignored");
+				continue;
+			}
+
+			String[] parts = record.split(" ", 3);
+
+			if (parts[0].equals("C") && (parts.length == 2))
+			{
+				if ( ! parts[1].equals(campaignID) ) throw new IOException("journal " + journalFile.getPath() + " belongs to a different campaign");
+
+				campaignMatched = true;
+			}
+			else if (parts[0].equals("R") && (parts.length == 3))
+			{
+				try
+				{
+					runID2Result.put(parts[1], JPFRunResult.parseRecord(parts[2]));
+				}
+				catch (Exception ex)
+				{
+					System.err.println("[WARNING] invalid result record in journal " + journalFile.getPath() + " ignored");
+				}
+			}
+			else if (parts[0].equals("F") && (parts.length == 3))
+			{
+				fragmentID2Stats.put(parts[1], parts[2]);
+			}
+		}
+
+		if ( ! campaignMatched ) throw new IOException("journal " + journalFile.getPath() + " does not identify its campaign");
+	}
+
+	// records are appended after the last line break, and so a record written only partially must be removed first
+	private static void removeIncompleteRecord(File journalFile) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(journalFile, "rw");
+
+		try
+		{
+			long completeLength = raf.length();
+
+			while (completeLength > 0)
+			{
+				raf.seek(completeLength - 1);
+
+				if (raf.read() == '\n') break;
+
+				completeLength--;
+			}
+
+			if (completeLength < raf.length())
+			{
+				System.out.println("[LOG] incomplete last record removed from journal " + journalFile.getPath());
+
+				raf.setLength(completeLength);
+			}
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	// returns the content of the given line if its checksum matches, or null otherwise
+	private static String getCheckedRecord(String line)
+	{
+		int k = line.lastIndexOf(' ');
+
+		if (k < 0) return null;
+
+		String record = line.substring(0, k);
+
+		if ( ! line.substring(k + 1).equals(computeChecksum(record)) ) return null;
+
+		return record;
+	}
+
+	private static String computeChecksum(String record)
+	{
+		CRC32 crc = new CRC32();
+
+		crc.update(record.getBytes(StandardCharsets.UTF_8));
+
+		return Long.toHexString(crc.getValue());
+	}
+
+	public synchronized int getNumberOfFinishedRuns()
+	{
+		return runID2Result.size();
+	}
+
+	public synchronized int getNumberOfFinishedFragments()
+	{
+		return fragmentID2Stats.size();
+	}
+
+	public synchronized JPFRunResult lookup(JPFRunSpec spec)
+	{
+		JPFRunResult storedRes = runID2Result.get(getRunID(spec));
+
+		if (storedRes == null) return null;
+
+		// every caller gets its own copy, because the output log is set for each of them
+		JPFRunResult res = JPFRunResult.parseRecord(storedRes.toRecord());
+
+		res.outputLog = "[LOG] result of the JPF run restored from journal\n";
+		if (res.errorInfo != null) res.outputLog += res.errorInfo + "\n";
+
+		return res;
+	}
+
+	public synchronized void store(JPFRunSpec spec, JPFRunResult res)
+	{
+		// runs stopped by the campaign deadline must be executed again when the campaign is resumed
+		if (res.timedOut && spec.jpfConfig.getBoolean(TimeBudgetModel.CFG_DEADLINE_CUT, false)) return;
+
+		String runID = getRunID(spec);
+
+		runID2Result.put(runID, res);
+
+		appendRecord("R " + runID + " " + res.toRecord());
+	}
+
+	/**
+	 * Returns the statistics record stored for the given code fragment, or null if the code fragment was not finished yet.
+	 */
+	public synchronized String getFragmentStats(CodeBlockBoundary modifiedCBB)
+	{
+		return fragmentID2Stats.get(getFragmentID(modifiedCBB));
+	}
+
+	public synchronized void storeFragmentStats(CodeBlockBoundary modifiedCBB, String statsRecord)
+	{
+		String fragmentID = getFragmentID(modifiedCBB);
+
+		fragmentID2Stats.put(fragmentID, statsRecord);
+
+		appendRecord("F " + fragmentID + " " + statsRecord);
+	}
+
+	public synchronized void close()
+	{
+		try
+		{
+			sync();
+
+			journalOutput.close();
+		}
+		catch (IOException ex)
+		{
+			System.err.println("[ERROR] cannot close journal: " + ex.getMessage());
+		}
+	}
+
+	private void appendRecord(String record)
+	{
+		try
+		{
+			journalOutput.write((record + " " + computeChecksum(record) + "\n").getBytes(StandardCharsets.UTF_8));
+
+			unsyncedRecords++;
+
+			if ( (unsyncedRecords >= SYNC_BATCH_RECORDS) || (System.currentTimeMillis() - lastSyncTime >= SYNC_BATCH_TIME_MS) ) sync();
+		}
+		catch (IOException ex)
+		{
+			System.err.println("[ERROR] cannot write into journal: " + ex.getMessage());
+		}
+	}
+
+	private void sync() throws IOException
+	{
+		journalOutput.getFD().sync();
+
+		unsyncedRecords = 0;
+		lastSyncTime = System.currentTimeMillis();
+	}
+
+	private static String getRunID(JPFRunSpec spec)
+	{
+		StringBuffer strbuf = new StringBuffer();
+
+		for (String arg : spec.toArgs())
+		{
+			strbuf.append(arg);
+			strbuf.append(" ");
+		}
+
+		// the classpath identifies the program version (each code fragment has its own directory)
+		strbuf.append(spec.jpfConfig.getProperty("classpath", ""));
+
+		// in-memory versions share the classpath with the original program
+		strbuf.append(" ");
+		strbuf.append(spec.jpfConfig.getProperty(ProgramVersion.CFG_STRIPPED_METHOD, ""));
+		strbuf.append(" ");
+		strbuf.append(spec.jpfConfig.getProperty(ProgramVersion.CFG_STRIPPED_START, ""));
+		strbuf.append(" ");
+		strbuf.append(spec.jpfConfig.getProperty(ProgramVersion.CFG_STRIPPED_END, ""));
+
+		// all other threads checked by a single run
+		strbuf.append(" ");
+		strbuf.append(spec.jpfConfig.getProperty("incverif.pairwise.thread.other.ids", ""));
+
+		return ContentHash.hashString(strbuf.toString());
+	}
+
+	private static String getFragmentID(CodeBlockBoundary modifiedCBB)
+	{
+		return ContentHash.hashString(modifiedCBB.toString());
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.List;
+
+import java.io.File;
+import java.io.IOException;
+
+
+/**
+ * Runs JPF on some worker node by publishing the run into a shared work queue and waiting for the result (see DistributedWorkerMain).
+ * Worker nodes must see the same files (classpath of the tool, subject program, generated program versions) at the same paths as the coordinator, which holds for a shared file system and also for workers on the same host.
+ */
+public class DistributedJPFRunner extends ForkedJPFRunner
+{
+	// how often the queue is checked for the result
+	private static final long POLL_INTERVAL_MS = 500;
+
+	// claimed work items are returned back to the queue when the worker did not send any heartbeat for this long
+	private static final long STALE_CLAIM_MS = 60 * 1000;
+
+	private WorkQueue queue;
+
+	// prefix of IDs of work items, which is unique for the campaign
+	private String campaignID;
+
+	private long itemCounter;
+
+
+	public DistributedJPFRunner(String[] jpfCmdArgs, String heapSize, File workDir) throws IOException
+	{
+		super(jpfCmdArgs, heapSize);
+
+		this.queue = new WorkQueue(workDir);
+
+		this.queue.open();
+
+		this.campaignID = String.valueOf(System.currentTimeMillis());
+
+		this.itemCounter = 0;
+	}
+
+	public JPFRunResult run(JPFRunSpec spec, RunCancellation cancellation)
+	{
+		long startTime = System.currentTimeMillis();
+
+		String itemID;
+
+		synchronized (this)
+		{
+			// fixed width of the counter means that workers can claim work items in the order of publishing just by sorting their IDs
+			itemID = campaignID + "-" + String.format("%08d", itemCounter++);
+		}
+
+		try
+		{
+			queue.publish(itemID, createRunnerArgs(spec));
+
+			// last heartbeat of the worker and the local time when it was observed (clocks of different nodes are not synchronized)
+			long lastHeartbeat = -1;
+			long lastHeartbeatSeenTime = System.currentTimeMillis();
+
+			while (true)
+			{
+				JPFRunResult res = queue.takeResult(itemID);
+
+				if (res != null) return res;
+
+				if ( (cancellation != null) && cancellation.isCancelled() )
+				{
+					if (queue.withdraw(itemID)) return JPFRunResult.createCancelled();
+
+					// the run has already been started by some worker
+					queue.cancelAll();
+				}
+
+				long heartbeat = queue.getClaimHeartbeat(itemID);
+
+				if (heartbeat != lastHeartbeat)
+				{
+					lastHeartbeat = heartbeat;
+					lastHeartbeatSeenTime = System.currentTimeMillis();
+				}
+				else if ( (heartbeat != -1) && (System.currentTimeMillis() - lastHeartbeatSeenTime > STALE_CLAIM_MS) )
+				{
+					// the worker has most likely crashed
+					if (queue.requeue(itemID)) System.out.println("[WARNING] worker stopped responding, JPF run returned to the queue");
+
+					lastHeartbeatSeenTime = System.currentTimeMillis();
+				}
+
+				Thread.sleep(POLL_INTERVAL_MS);
+			}
+		}
+		catch (Exception ex)
+		{
+			JPFRunResult res = new JPFRunResult();
+			res.failed = true;
+
+			res.usedTimeMS = System.currentTimeMillis() - startTime;
+
+			res.outputLog = "[ERROR] cannot run distributed JPF: " + ex.getMessage() + "\n";
+
+			return res;
+		}
+	}
+
+	/**
+	 * Tells the workers that the campaign is finished.
+	 */
+	public void shutdown()
+	{
+		try
+		{
+			queue.shutdown();
+		}
+		catch (IOException ex)
+		{
+			System.err.println("[ERROR] cannot shut down the work queue");
+			ex.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.List;
+
+import java.io.File;
+
+
+/**
+ * Entry point of a worker that executes JPF runs published by the coordinator into a shared work queue (see DistributedJPFRunner).
+ * Arguments: path to the shared work directory, optionally the heap limit for forked JVMs (in the format of the option "-Xmx").
+ * Every JPF run is executed in a separate forked JVM, and multiple workers can run on the same node.
+ * The worker terminates when the coordinator finishes the campaign and there are no more pending work items.
+ */
+public class DistributedWorkerMain
+{
+	// how often the queue is checked for new work items
+	private static final long POLL_INTERVAL_MS = 1000;
+
+	// how often the worker signals that it is alive and checks whether the coordinator cancelled all runs
+	private static final long HEARTBEAT_INTERVAL_MS = 2000;
+
+
+	public static void main(String[] args)
+	{
+		if (args.length < 1)
+		{
+			System.err.println("usage: DistributedWorkerMain <work dir> [<heap size>]");
+			return;
+		}
+
+		String heapSize = (args.length > 1) ? args[1] : "";
+
+		try
+		{
+			final WorkQueue queue = new WorkQueue(new File(args[0]));
+
+			// the shutdown marker may be left behind by the previous campaign when the worker is started before the coordinator
+			boolean campaignOpen = ! queue.isShutdown();
+
+			int numFinishedRuns = 0;
+
+			System.out.println("[LOG] worker started: work dir = " + args[0]);
+
+			while (true)
+			{
+				if ( ( ! campaignOpen ) && ( ! queue.isShutdown() ) ) campaignOpen = true;
+
+				final String itemID = queue.claim();
+
+				if (itemID == null)
+				{
+					if (campaignOpen && queue.isShutdown()) break;
+
+					Thread.sleep(POLL_INTERVAL_MS);
+
+					continue;
+				}
+
+				List<String> runnerArgs = queue.readClaimedItem(itemID);
+
+				System.out.println("[LOG] worker: running JPF for work item " + itemID);
+
+				final RunCancellation cancellation = new RunCancellation();
+
+				Thread heartbeat = new Thread(new Runnable()
+				{
+					public void run()
+					{
+						try
+						{
+							while (true)
+							{
+								queue.heartbeat(itemID);
+
+								if (queue.isCancelled()) cancellation.cancel("cancelled by the coordinator");
+
+								Thread.sleep(HEARTBEAT_INTERVAL_MS);
+							}
+						}
+						catch (InterruptedException ex)
+						{
+							// the run has finished
+						}
+					}
+				});
+
+				heartbeat.setDaemon(true);
+				heartbeat.start();
+
+				JPFRunResult res = ForkedJPFRunner.runForked(runnerArgs, heapSize, cancellation);
+
+				heartbeat.interrupt();
+				heartbeat.join();
+
+				queue.complete(itemID, res);
+
+				numFinishedRuns++;
+
+				System.out.println("[LOG] worker: finished work item " + itemID + ", time = " + res.usedTimeMS + " ms, error = " + (res.errorInfo != null));
+			}
+
+			System.out.println("[LOG] worker finished: number of JPF runs = " + numFinishedRuns);
+		}
+		catch (Exception ex)
+		{
+			System.err.println("[ERROR] worker failed");
+			ex.printStackTrace();
+		}
+	}
+}
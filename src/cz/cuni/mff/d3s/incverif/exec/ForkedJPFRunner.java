@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.TreeSet;
+
+import java.io.File;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+
+
+/**
+ * Runs JPF in a separate short-lived JVM, optionally with its own heap limit.
+ * The forked JVM reports the outcome of the run through a single result record (see JPFRunnerMain), and therefore no state of JPF can leak from one run into the next one.
+ */
+public class ForkedJPFRunner
+{
+	// part of the heap limit of the forked JVM that JPF may use before the search is terminated by the listener MemoryConstrainedJPF
+	private static final double USED_MEMORY_LIMIT_FRACTION = 0.9;
+
+	// original command-line arguments for JPF (before any modification by JPF)
+	private String[] jpfArgs;
+
+	// configuration created just from the original command-line arguments
+	// forked runs receive all the properties that differ from this configuration
+	private Config pristineConfig;
+
+	// value of the option "-Xmx" for forked JVMs (empty string means the same settings as for the main process)
+	private String heapSize;
+
+
+	public ForkedJPFRunner(String[] jpfCmdArgs, String heapSize)
+	{
+		this.jpfArgs = jpfCmdArgs.clone();
+
+		// we have to pass a copy because JPF may change the array
+		this.pristineConfig = JPF.createConfig(jpfCmdArgs.clone());
+
+		this.heapSize = heapSize;
+	}
+
+	public JPFRunResult run(JPFRunSpec spec)
+	{
+		return run(spec, null);
+	}
+
+	/**
+	 * Runs JPF in a forked JVM that can be cancelled through the given object (null means that the run cannot be cancelled).
+	 */
+	public JPFRunResult run(JPFRunSpec spec, RunCancellation cancellation)
+	{
+		return runForked(createRunnerArgs(spec), heapSize, cancellation);
+	}
+
+	/**
+	 * Returns the command-line arguments for JPFRunnerMain that describe the given run completely.
+	 */
+	protected List<String> createRunnerArgs(JPFRunSpec spec)
+	{
+		List<String> runnerArgs = new ArrayList<String>();
+
+		runnerArgs.addAll(spec.toArgs());
+
+		for (String arg : jpfArgs) runnerArgs.add(arg);
+
+		runnerArgs.addAll(getConfigOverrides(spec.jpfConfig));
+
+		return runnerArgs;
+	}
+
+	/**
+	 * Runs JPFRunnerMain with the given arguments in a forked JVM (empty heap size means the same settings as for the main process).
+	 */
+	public static JPFRunResult runForked(List<String> runnerArgs, String heapSize, RunCancellation cancellation)
+	{
+		List<String> command = new ArrayList<String>();
+
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+
+		// forked JVMs use the same settings (stack size, system properties) as the main process, except for the heap limit
+		for (String jvmArg : ManagementFactory.getRuntimeMXBean().getInputArguments())
+		{
+			if ( (heapSize.length() > 0) && (jvmArg.startsWith("-Xmx") || jvmArg.startsWith("-Xms")) ) continue;
+
+			command.add(jvmArg);
+		}
+
+		if (heapSize.length() > 0) command.add("-Xmx" + heapSize);
+
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+
+		command.add(JPFRunnerMain.class.getName());
+
+		command.addAll(runnerArgs);
+
+		StringBuffer outputLog = new StringBuffer();
+
+		JPFRunResult res = null;
+
+		boolean outOfMemory = false;
+
+		long forkStartTime = System.currentTimeMillis();
+
+		try
+		{
+			ProcessBuilder pb = new ProcessBuilder(command);
+			pb.redirectErrorStream(true);
+
+			Process proc = pb.start();
+
+			if (cancellation != null) cancellation.registerForkedRun(proc);
+
+			try
+			{
+				BufferedReader procOutput = new BufferedReader(new InputStreamReader(proc.getInputStream()));
+
+				String line;
+				while ((line = procOutput.readLine()) != null)
+				{
+					if (line.startsWith(JPFRunResult.RECORD_PREFIX))
+					{
+						res = JPFRunResult.parseRecord(line);
+					}
+					else
+					{
+						if (line.contains("java.lang.OutOfMemoryError")) outOfMemory = true;
+
+						outputLog.append(line);
+						outputLog.append("\n");
+					}
+				}
+
+				proc.waitFor();
+			}
+			finally
+			{
+				if (cancellation != null) cancellation.unregisterForkedRun(proc);
+			}
+		}
+		catch (Exception ex)
+		{
+			outputLog.append("[ERROR] cannot run forked JPF: " + ex.getMessage() + "\n");
+		}
+
+		long forkFinishTime = System.currentTimeMillis();
+
+		if (res == null)
+		{
+			// the forked JVM crashed before reporting results
+			res = new JPFRunResult();
+			res.failed = true;
+
+			// running out of heap in the forked JVM means that the run exceeded its memory limit
+			res.memoryLimitReached = outOfMemory;
+
+			res.usedTimeMS = forkFinishTime - forkStartTime;
+		}
+
+		res.outputLog = outputLog.toString();
+
+		return res;
+	}
+
+	private List<String> getConfigOverrides(Config runConfig)
+	{
+		List<String> overrides = new ArrayList<String>();
+
+		// sorted for the sake of deterministic command lines
+		Set<String> keys = new TreeSet<String>();
+		for (Object key : runConfig.keySet())
+		{
+			if (key instanceof String) keys.add((String) key);
+		}
+
+		long heapSizeMB = parseSizeInMB(heapSize);
+
+		for (String key : keys)
+		{
+			Object value = runConfig.get(key);
+
+			if ( ! (value instanceof String) ) continue;
+
+			// the memory limit for JPF must be relative to the heap of the forked JVM
+			if ( key.equals("jpf.used_memory_limit") && (heapSizeMB > 0) ) value = String.valueOf((long) (heapSizeMB * USED_MEMORY_LIMIT_FRACTION));
+
+			if (value.equals(pristineConfig.get(key))) continue;
+
+			overrides.add("+" + key + "=" + value);
+		}
+
+		return overrides;
+	}
+
+	/**
+	 * Returns the size in megabytes for values in the format of the JVM option "-Xmx" (e.g., "512m", "4g"), or -1 when the value is empty.
+	 */
+	public static long parseSizeInMB(String sizeStr)
+	{
+		if (sizeStr.length() == 0) return -1;
+
+		char unit = Character.toLowerCase(sizeStr.charAt(sizeStr.length() - 1));
+
+		if (Character.isDigit(unit)) return Long.parseLong(sizeStr) >> 20;
+
+		long value = Long.parseLong(sizeStr.substring(0, sizeStr.length() - 1));
+
+		if (unit == 'k') return value >> 10;
+		if (unit == 'm') return value;
+		if (unit == 'g') return value << 10;
+		if (unit == 't') return value << 20;
+
+		throw new IllegalArgumentException("invalid size: " + sizeStr);
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.Collections;
+import java.util.Comparator;
+
+import cz.cuni.mff.d3s.incverif.common.ProgramPoint;
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+import cz.cuni.mff.d3s.incverif.wala.WALAContext;
+import cz.cuni.mff.d3s.incverif.wala.WALAUtils;
+
+
+/**
+ * Orders modified code fragments by their estimated value and cost, so that as many relevant code fragments as possible are covered before the campaign budget runs out.
+ * Code fragments reachable from entry methods of at least two threads (statically conflicting) come first, then code fragments reachable from a single thread (or when threads are not known), and finally code fragments not reachable from any thread.
+ * Within each group, code fragments with running times known from the history are ordered by the estimated time, and they are followed by the others ordered by the size of their method.
+ */
+public class FragmentScheduler
+{
+	private WALAContext walaCtx;
+
+	private ThreadPairFilter threadPairFilter;
+
+	// threads of the original program version (null if they are not known)
+	private ThreadCensus census;
+
+	// history of running times (null if it is not available)
+	private TimeBudgetModel budgetModel;
+
+
+	public FragmentScheduler(WALAContext walaCtx, ThreadPairFilter threadPairFilter, ThreadCensus census, TimeBudgetModel budgetModel)
+	{
+		this.walaCtx = walaCtx;
+
+		this.threadPairFilter = threadPairFilter;
+
+		this.census = census;
+
+		this.budgetModel = budgetModel;
+	}
+
+	public List<CodeBlockBoundary> schedule(Collection<CodeBlockBoundary> fragments)
+	{
+		final Map<CodeBlockBoundary, FragmentCost> fragment2Cost = new HashMap<CodeBlockBoundary, FragmentCost>();
+
+		for (CodeBlockBoundary cbb : fragments) fragment2Cost.put(cbb, estimateCost(cbb));
+
+		List<CodeBlockBoundary> orderedFragments = new ArrayList<CodeBlockBoundary>(fragments);
+
+		Collections.sort(orderedFragments, new Comparator<CodeBlockBoundary>()
+		{
+			public int compare(CodeBlockBoundary cbb1, CodeBlockBoundary cbb2)
+			{
+				FragmentCost cost1 = fragment2Cost.get(cbb1);
+				FragmentCost cost2 = fragment2Cost.get(cbb2);
+
+				if (cost1.group != cost2.group) return Integer.compare(cost1.group, cost2.group);
+
+				boolean known1 = (cost1.estimatedTimeMS >= 0);
+				boolean known2 = (cost2.estimatedTimeMS >= 0);
+
+				if (known1 != known2) return known1 ? -1 : 1;
+
+				if (known1 && (cost1.estimatedTimeMS != cost2.estimatedTimeMS)) return Long.compare(cost1.estimatedTimeMS, cost2.estimatedTimeMS);
+
+				if (cost1.methodSize != cost2.methodSize) return Integer.compare(cost1.methodSize, cost2.methodSize);
+
+				// the order must not depend on the iteration order of hash sets
+				return cbb1.toString().compareTo(cbb2.toString());
+			}
+		});
+
+		return orderedFragments;
+	}
+
+	private FragmentCost estimateCost(CodeBlockBoundary cbb)
+	{
+		FragmentCost cost = new FragmentCost();
+
+		int numReachingThreads = countReachingThreads(cbb);
+
+		if (numReachingThreads >= 2) cost.group = 0;
+		else if (numReachingThreads != 0) cost.group = 1;
+		else cost.group = 2;
+
+		cost.estimatedTimeMS = -1;
+
+		if (budgetModel != null)
+		{
+			// both program versions and the full verification of the modified version (full verification of the original version is the same for all code fragments)
+			String[] runKinds = new String[] { "incr deletion", "incr addition", "full deletion" };
+
+			cost.estimatedTimeMS = 0;
+
+			for (String runKind : runKinds)
+			{
+				long runTimeMS = budgetModel.getEstimatedRunTimeMS(TimeBudgetModel.getRunClass(runKind, cbb));
+
+				if (runTimeMS < 0)
+				{
+					cost.estimatedTimeMS = -1;
+					break;
+				}
+
+				if (runTimeMS == Long.MAX_VALUE) cost.estimatedTimeMS = Long.MAX_VALUE;
+				else if (cost.estimatedTimeMS != Long.MAX_VALUE) cost.estimatedTimeMS += runTimeMS;
+			}
+		}
+
+		cost.methodSize = Integer.MAX_VALUE;
+
+		try
+		{
+			ProgramPoint lastInsnPP = WALAUtils.getMethodLastInsnLocation(cbb.getMethodSignature(), walaCtx);
+
+			if (lastInsnPP != null) cost.methodSize = lastInsnPP.insnIndex + 1;
+		}
+		catch (Exception ex)
+		{
+			// unknown methods go last
+		}
+
+		return cost;
+	}
+
+	/**
+	 * Returns the number of threads whose entry method can reach the code fragment, or -1 if threads are not known.
+	 */
+	private int countReachingThreads(CodeBlockBoundary cbb)
+	{
+		if (census == null) return -1;
+
+		Set<Integer> reachingThreadIDs = new HashSet<Integer>();
+
+		for (ThreadCensus.ThreadRecord th : census.getThreads())
+		{
+			if (th.entryMethodSig == null) continue;
+
+			try
+			{
+				if (threadPairFilter.isReachableFromThreadEntry(th.entryMethodSig, cbb)) reachingThreadIDs.add(th.threadID);
+			}
+			catch (Exception ex)
+			{
+				// we must be conservative here
+				reachingThreadIDs.add(th.threadID);
+			}
+		}
+
+		return reachingThreadIDs.size();
+	}
+
+
+	static class FragmentCost
+	{
+		// lower groups are processed first
+		public int group;
+
+		// -1 when the running time is not known
+		public long estimatedTimeMS;
+
+		// number of bytecode instructions of the method that contains the code fragment
+		public int methodSize;
+	}
+}
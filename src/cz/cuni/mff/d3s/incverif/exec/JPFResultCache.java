@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+
+import cz.cuni.mff.d3s.incverif.common.ContentHash;
+
+
+/**
+ * Persistent cache of results of JPF runs, addressed by the content of the subject program version, by the complete configuration of the run, and by the code of the tool and JPF.
+ * Every entry is stored as a single file that contains the result record (see JPFRunResult.toRecord).
+ */
+public class JPFResultCache implements JPFRunResultStore
+{
+	// configuration properties that do not influence the outcome of a JPF run, because they are read only by the coordinator of the campaign (the classpath is represented by hashes of class files)
+	// time limits are also ignored, because only runs that finished before their limit are stored
+	private static final Set<String> IGNORED_CONFIG_KEYS = new HashSet<String>(Arrays.asList(new String[] {
+		"classpath",
+		"incverif.analysis.cache", "incverif.analysis.threads", "incverif.bytecode.all.classes", "incverif.campaign.budget", "incverif.executor", "incverif.failfast",
+		"incverif.fork.heap", "incverif.fragment.methods", "incverif.fragment.schedule", "incverif.fragment.workers", "incverif.gen.inmemory", "incverif.gen.layered", "incverif.gen.lookahead",
+		"incverif.journal", "incverif.pairs.prefilter", "incverif.pairwise.batch", "incverif.result.cache", "incverif.results.jsonl", "incverif.thread.census", "incverif.thread.symmetry",
+		"incverif.time.history", "incverif.watch.interval", "incverif.watch.quiet", "incverif.watch.reuse.analysis", "incverif.work.dir", "incverif.workers",
+		TimeBudgetModel.CFG_RUN_CLASS, TimeBudgetModel.CFG_DEADLINE_CUT, "jpf.time_limit", "incverif.pairwise.batch.time_limit"
+	}));
+
+	private File cacheDir;
+
+	// hash of the classes of the tool and JPF (null if not computed yet), so that results of older releases are never reused
+	private String toolHash;
+
+	// hashes of classpath entries computed so far (generated program versions are never modified after they are created)
+	private Map<String, String> cpEntry2Hash;
+
+
+	public JPFResultCache(File cacheDir)
+	{
+		this.cacheDir = cacheDir;
+
+		this.cpEntry2Hash = new ConcurrentHashMap<String, String>();
+	}
+
+	public JPFRunResult lookup(JPFRunSpec spec)
+	{
+		try
+		{
+			File entryFile = getEntryFile(computeKey(spec));
+
+			if ( ! entryFile.isFile() ) return null;
+
+			String recordLine = new String(Files.readAllBytes(entryFile.toPath()), StandardCharsets.UTF_8);
+
+			JPFRunResult res = JPFRunResult.parseRecord(recordLine);
+
+			// make the reported verdict visible in the log as if JPF was really executed
+			res.outputLog = "[LOG] result of the JPF run loaded from cache\n";
+			if (res.errorInfo != null) res.outputLog += res.errorInfo + "\n";
+
+			return res;
+		}
+		catch (Exception ex)
+		{
+			// broken entries are simply ignored
+			return null;
+		}
+	}
+
+	public void store(JPFRunSpec spec, JPFRunResult res)
+	{
+		// crashed runs and runs terminated because of memory or time limits depend on the environment, not only on the program and the parameters
+		// this includes runs stopped by the campaign deadline
+		if (res.failed || res.memoryLimitReached || res.timedOut) return;
+
+		if (res.otherThreadResults != null)
+		{
+			for (JPFRunResult branchRes : res.otherThreadResults.values())
+			{
+				if (branchRes.timedOut) return;
+			}
+		}
+
+		try
+		{
+			File entryFile = getEntryFile(computeKey(spec));
+
+			entryFile.getParentFile().mkdirs();
+
+			// the entry is written atomically, so that concurrent workers and interrupted runs never leave a partial entry behind
+			File tmpFile = File.createTempFile("entry", ".tmp", entryFile.getParentFile());
+
+			Files.write(tmpFile.toPath(), res.toRecord().getBytes(StandardCharsets.UTF_8));
+
+			Files.move(tmpFile.toPath(), entryFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (Exception ex)
+		{
+			System.err.println("[ERROR] cannot store result of JPF run into cache: " + ex.getMessage());
+		}
+	}
+
+	private String computeKey(JPFRunSpec spec) throws IOException
+	{
+		MessageDigest md = ContentHash.createDigest();
+
+		ContentHash.update(md, getToolHash());
+
+		for (String arg : spec.toArgs()) ContentHash.update(md, arg);
+
+		Config cfg = spec.jpfConfig;
+
+		// any property from the configuration files or the command line may change the verdict (search, scheduling, choice generators, native peers, etc)
+		String[] cfgKeys = cfg.getKeysStartingWith("");
+		Arrays.sort(cfgKeys);
+
+		for (String key : cfgKeys)
+		{
+			if (IGNORED_CONFIG_KEYS.contains(key)) continue;
+
+			ContentHash.update(md, key + "=" + cfg.getProperty(key, ""));
+		}
+
+		if (cfg.getFreeArgs() != null)
+		{
+			for (String freeArg : cfg.getFreeArgs()) ContentHash.update(md, freeArg);
+		}
+
+		for (String cpEntry : cfg.getProperty("classpath", "").split(","))
+		{
+			cpEntry = cpEntry.trim();
+
+			// the current directory is on the classpath of every run and it does not contain classes of the subject program
+			if (cpEntry.length() == 0 || cpEntry.equals(".")) continue;
+
+			ContentHash.update(md, getClassPathEntryHash(cpEntry));
+		}
+
+		return ContentHash.toHex(md.digest());
+	}
+
+	private synchronized String getToolHash() throws IOException
+	{
+		if (toolHash == null)
+		{
+			// listeners and scheduling policies of the tool are loaded from the same location as this class
+			MessageDigest md = ContentHash.createDigest();
+
+			ContentHash.update(md, ContentHash.hashClassPathEntry(new File(JPFResultCache.class.getProtectionDomain().getCodeSource().getLocation().getPath())));
+			ContentHash.update(md, ContentHash.hashClassPathEntry(new File(JPF.class.getProtectionDomain().getCodeSource().getLocation().getPath())));
+
+			toolHash = ContentHash.toHex(md.digest());
+		}
+
+		return toolHash;
+	}
+
+	private String getClassPathEntryHash(String cpEntry) throws IOException
+	{
+		String hash = cpEntry2Hash.get(cpEntry);
+
+		if (hash == null)
+		{
+			hash = ContentHash.hashClassPathEntry(new File(cpEntry));
+
+			cpEntry2Hash.put(cpEntry, hash);
+		}
+
+		return hash;
+	}
+
+	private File getEntryFile(String key)
+	{
+		// two-level layout keeps directories reasonably small
+		return new File(new File(cacheDir, key.substring(0, 2)), key + ".result");
+	}
+}
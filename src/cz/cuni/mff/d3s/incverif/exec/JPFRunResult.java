@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.HashSet;
+
+import java.net.URLEncoder;
+import java.net.URLDecoder;
+import java.io.UnsupportedEncodingException;
+
+
+/**
+ * Compact record of the outcome of a single JPF run.
+ * It can be printed as a single line and parsed back, which is how forked JPF runs report results to the main process.
+ */
+public class JPFRunResult
+{
+	public static final String RECORD_PREFIX = "[RUN RESULT] ";
+
+	// all items of the record created by toRecord
+	private static final List<String> RECORD_KEYS = Arrays.asList("time", "failed", "memlimit", "timedout", "cancelled", "states", "maxthid", "entry", "error", "census", "branches");
+
+	// running time of JPF (in milliseconds)
+	public long usedTimeMS;
+
+	// JPF could not be started or it crashed
+	public boolean failed;
+
+	// search was terminated by the listener MemoryConstrainedJPF (or the forked JVM ran out of heap)
+	public boolean memoryLimitReached;
+
+	// search was terminated by the listener TimeConstrainedJPF
+	public boolean timedOut;
+
+	// search was terminated (or not started at all) because all runs were cancelled (see RunCancellation)
+	public boolean cancelled;
+
+	// number of distinct states explored by JPF
+	public int numStates;
+
+	// the maximum thread ID observed during the run (used only for incremental runs)
+	public int maxThreadID;
+
+	// signature of the entry method of the modified thread (null if the thread was not started)
+	public String modifiedThreadEntryMethodSig;
+
+	// information about errors (property violations) reported by JPF, null if no error was found
+	public String errorInfo;
+
+	// all threads started during the run (used only for thread census runs)
+	public ThreadCensus threadCensus;
+
+	// partial results for each other thread when multiple pairs of threads with the same modified thread were checked by a single run (null otherwise)
+		// only the time, number of states, and the flags "timedOut" and "errorInfo" are defined for partial results
+	public Map<Integer, JPFRunResult> otherThreadResults;
+
+	// output printed by JPF during a forked run (null for runs inside the main process)
+	public String outputLog;
+
+	// JPF was not started at all because the run would be ignored (see ThreadPairFilter), never stored in the record
+	public boolean skipped;
+
+	// representative pair of threads when the run was skipped because of thread symmetry (see ThreadSymmetry), null otherwise
+	public String symmetricPair;
+
+
+	public JPFRunResult()
+	{
+		this.usedTimeMS = 0;
+
+		this.failed = false;
+		this.memoryLimitReached = false;
+		this.timedOut = false;
+		this.cancelled = false;
+
+		this.numStates = 0;
+
+		this.maxThreadID = 0;
+		this.modifiedThreadEntryMethodSig = null;
+
+		this.errorInfo = null;
+
+		this.threadCensus = null;
+
+		this.otherThreadResults = null;
+
+		this.outputLog = null;
+
+		this.skipped = false;
+		this.symmetricPair = null;
+	}
+
+	public static JPFRunResult createSkipped(String symmetricPair)
+	{
+		JPFRunResult res = new JPFRunResult();
+
+		res.skipped = true;
+		res.symmetricPair = symmetricPair;
+
+		return res;
+	}
+
+	/**
+	 * Returns the result for a JPF run that was not started because the campaign deadline has passed.
+	 */
+	public static JPFRunResult createNotStarted()
+	{
+		JPFRunResult res = new JPFRunResult();
+
+		res.timedOut = true;
+
+		res.outputLog = "[LOG] JPF run not started because the campaign budget is exhausted\n";
+
+		return res;
+	}
+
+	/**
+	 * Returns the result for a JPF run that was not started because all runs were cancelled.
+	 */
+	public static JPFRunResult createCancelled()
+	{
+		JPFRunResult res = new JPFRunResult();
+
+		res.cancelled = true;
+
+		res.outputLog = "[LOG] JPF run not started because all runs were cancelled\n";
+
+		return res;
+	}
+
+	public String toRecord()
+	{
+		StringBuffer strbuf = new StringBuffer();
+
+		strbuf.append(RECORD_PREFIX);
+		strbuf.append("time=" + usedTimeMS);
+		strbuf.append(";failed=" + failed);
+		strbuf.append(";memlimit=" + memoryLimitReached);
+		strbuf.append(";timedout=" + timedOut);
+		strbuf.append(";cancelled=" + cancelled);
+		strbuf.append(";states=" + numStates);
+		strbuf.append(";maxthid=" + maxThreadID);
+		strbuf.append(";entry=" + encodeText(modifiedThreadEntryMethodSig));
+		strbuf.append(";error=" + encodeText(errorInfo));
+		strbuf.append(";census=" + encodeText((threadCensus != null) ? threadCensus.toText() : null));
+		strbuf.append(";branches=" + encodeText(encodeOtherThreadResults()));
+
+		return strbuf.toString();
+	}
+
+	/**
+	 * Parses the record created by toRecord, and throws an exception when some item is missing or invalid.
+	 */
+	public static JPFRunResult parseRecord(String recordLine)
+	{
+		JPFRunResult res = new JPFRunResult();
+
+		String recordBody = recordLine.substring(recordLine.indexOf(RECORD_PREFIX) + RECORD_PREFIX.length()).trim();
+
+		Set<String> keys = new HashSet<String>();
+
+		for (String item : recordBody.split(";"))
+		{
+			int k = item.indexOf('=');
+
+			String key = item.substring(0, k);
+			String value = item.substring(k + 1);
+
+			if ( ! RECORD_KEYS.contains(key) ) throw new IllegalArgumentException("unknown item in result record: " + key);
+
+			if (key.equals("time")) res.usedTimeMS = Long.parseLong(value);
+			if (key.equals("failed")) res.failed = parseBooleanStrict(value);
+			if (key.equals("memlimit")) res.memoryLimitReached = parseBooleanStrict(value);
+			if (key.equals("timedout")) res.timedOut = parseBooleanStrict(value);
+			if (key.equals("cancelled")) res.cancelled = parseBooleanStrict(value);
+			if (key.equals("states")) res.numStates = Integer.parseInt(value);
+			if (key.equals("maxthid")) res.maxThreadID = Integer.parseInt(value);
+			if (key.equals("entry")) res.modifiedThreadEntryMethodSig = decodeText(value);
+			if (key.equals("error")) res.errorInfo = decodeText(value);
+			if (key.equals("census") && (value.length() > 0)) res.threadCensus = ThreadCensus.parseText(decodeText(value));
+			if (key.equals("branches") && (value.length() > 0)) res.parseOtherThreadResults(decodeText(value));
+
+			keys.add(key);
+		}
+
+		if (keys.size() != RECORD_KEYS.size()) throw new IllegalArgumentException("incomplete result record");
+
+		return res;
+	}
+
+	private static boolean parseBooleanStrict(String value)
+	{
+		if (value.equals("true")) return true;
+		if (value.equals("false")) return false;
+
+		throw new IllegalArgumentException("invalid boolean value in result record: " + value);
+	}
+
+	/**
+	 * Returns the result for the pair of threads with the given other thread, when multiple pairs were checked by a single run.
+	 * Time spent outside of branches for individual other threads (e.g., in the common execution prefix) is divided evenly among all the pairs.
+	 */
+	public JPFRunResult getOtherThreadResult(int otherThreadID)
+	{
+		// partial results are not available when the run failed or when it was not reported by a forked JVM
+		if ( (otherThreadResults == null) || ( ! otherThreadResults.containsKey(otherThreadID) ) ) return createCopyWithoutOutput();
+
+		long branchesTimeMS = 0;
+		for (JPFRunResult branchRes : otherThreadResults.values()) branchesTimeMS += branchRes.usedTimeMS;
+
+		JPFRunResult branchRes = otherThreadResults.get(otherThreadID);
+
+		JPFRunResult res = new JPFRunResult();
+
+		res.usedTimeMS = branchRes.usedTimeMS + Math.max(0, usedTimeMS - branchesTimeMS) / otherThreadResults.size();
+
+		res.failed = failed;
+		res.memoryLimitReached = memoryLimitReached;
+		// the time limit of the whole run is taken into account for each branch (see JPFRunner)
+		res.timedOut = branchRes.timedOut;
+		res.cancelled = cancelled;
+
+		res.numStates = branchRes.numStates;
+
+		res.maxThreadID = maxThreadID;
+		res.modifiedThreadEntryMethodSig = modifiedThreadEntryMethodSig;
+
+		res.errorInfo = branchRes.errorInfo;
+
+		return res;
+	}
+
+	private JPFRunResult createCopyWithoutOutput()
+	{
+		JPFRunResult res = new JPFRunResult();
+
+		res.usedTimeMS = usedTimeMS;
+
+		res.failed = failed;
+		res.memoryLimitReached = memoryLimitReached;
+		res.timedOut = timedOut;
+		res.cancelled = cancelled;
+
+		res.numStates = numStates;
+
+		res.maxThreadID = maxThreadID;
+		res.modifiedThreadEntryMethodSig = modifiedThreadEntryMethodSig;
+
+		res.errorInfo = errorInfo;
+
+		return res;
+	}
+
+	private String encodeOtherThreadResults()
+	{
+		if (otherThreadResults == null) return null;
+
+		StringBuffer strbuf = new StringBuffer();
+
+		for (Map.Entry<Integer, JPFRunResult> me : otherThreadResults.entrySet())
+		{
+			JPFRunResult branchRes = me.getValue();
+
+			strbuf.append(me.getKey() + " " + branchRes.usedTimeMS + " " + branchRes.numStates + " " + branchRes.timedOut + " " + encodeText(branchRes.errorInfo) + "\n");
+		}
+
+		return strbuf.toString();
+	}
+
+	private void parseOtherThreadResults(String text)
+	{
+		otherThreadResults = new LinkedHashMap<Integer, JPFRunResult>();
+
+		for (String line : text.split("\n"))
+		{
+			// the last field (encoded error info) may be empty
+			String[] fields = line.split(" ", -1);
+
+			if (fields.length != 5) throw new IllegalArgumentException("invalid branch in result record: " + line);
+
+			JPFRunResult branchRes = new JPFRunResult();
+
+			branchRes.usedTimeMS = Long.parseLong(fields[1]);
+			branchRes.numStates = Integer.parseInt(fields[2]);
+			branchRes.timedOut = Boolean.parseBoolean(fields[3]);
+			branchRes.errorInfo = decodeText(fields[4]);
+
+			otherThreadResults.put(Integer.parseInt(fields[0]), branchRes);
+		}
+	}
+
+	// free-form text (method signatures, error messages) may contain the separator ';' and line breaks, so it must be encoded
+	private static String encodeText(String text)
+	{
+		if (text == null) return "";
+
+		try
+		{
+			return URLEncoder.encode(text, "UTF-8");
+		}
+		catch (UnsupportedEncodingException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+	}
+
+	private static String decodeText(String value)
+	{
+		if (value.length() == 0) return null;
+
+		try
+		{
+			return URLDecoder.decode(value, "UTF-8");
+		}
+		catch (UnsupportedEncodingException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+	}
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+
+/**
+ * Storage of results of finished JPF runs, which makes it possible to skip runs whose results are already known.
+ */
+public interface JPFRunResultStore
+{
+	/**
+	 * Returns the stored result of the given JPF run, or null when there is none.
+	 */
+	JPFRunResult lookup(JPFRunSpec spec);
+
+	void store(JPFRunSpec spec, JPFRunResult res);
+}
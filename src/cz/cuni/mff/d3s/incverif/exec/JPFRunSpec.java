@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import gov.nasa.jpf.Config;
+
+import cz.cuni.mff.d3s.incverif.common.ProgramPoint;
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+
+
+/**
+ * Description of a single JPF run: either incremental (for a pair of threads and the given modified code fragment), full, or thread census (single execution that records all started threads).
+ */
+public class JPFRunSpec
+{
+	public boolean incremental;
+
+	public boolean census;
+
+	// complete configuration of the JPF run
+	public Config jpfConfig;
+
+	// relevant only for incremental runs
+	public int modifiedThreadID;
+	public CodeBlockBoundary modifiedCBB;
+	public int otherThreadID;
+
+
+	public static JPFRunSpec createIncremental(Config cfg, int tmid, CodeBlockBoundary mcbb, int toid)
+	{
+		JPFRunSpec spec = new JPFRunSpec();
+
+		spec.incremental = true;
+		spec.census = false;
+		spec.jpfConfig = cfg;
+
+		spec.modifiedThreadID = tmid;
+		spec.modifiedCBB = mcbb;
+		spec.otherThreadID = toid;
+
+		return spec;
+	}
+
+	public static JPFRunSpec createFull(Config cfg)
+	{
+		JPFRunSpec spec = new JPFRunSpec();
+
+		spec.incremental = false;
+		spec.census = false;
+		spec.jpfConfig = cfg;
+
+		spec.modifiedThreadID = -1;
+		spec.modifiedCBB = null;
+		spec.otherThreadID = -1;
+
+		return spec;
+	}
+
+	public static JPFRunSpec createCensus(Config cfg)
+	{
+		JPFRunSpec spec = createFull(cfg);
+
+		spec.census = true;
+
+		return spec;
+	}
+
+	/**
+	 * Encodes the run description (except the configuration) into command-line arguments for a forked JPF run.
+	 */
+	public List<String> toArgs()
+	{
+		List<String> args = new ArrayList<String>();
+
+		if (incremental)
+		{
+			args.add("incr");
+			args.add(String.valueOf(modifiedThreadID));
+			args.add(String.valueOf(otherThreadID));
+			addProgramPointArgs(args, modifiedCBB.startLoc);
+			addProgramPointArgs(args, modifiedCBB.endLoc);
+		}
+		else if (census)
+		{
+			args.add("census");
+		}
+		else
+		{
+			args.add("full");
+		}
+
+		return args;
+	}
+
+	/**
+	 * Decodes the run description from command-line arguments starting at the given position.
+	 * Returns the position of the first argument that does not belong to the run description.
+	 */
+	public static int fromArgs(String[] args, int startPos, JPFRunSpec spec)
+	{
+		int pos = startPos;
+
+		spec.incremental = args[pos].equals("incr");
+		spec.census = args[pos].equals("census");
+		pos++;
+
+		if (spec.incremental)
+		{
+			spec.modifiedThreadID = Integer.parseInt(args[pos++]);
+			spec.otherThreadID = Integer.parseInt(args[pos++]);
+
+			ProgramPoint startPP = new ProgramPoint(args[pos], Integer.parseInt(args[pos+1]), Integer.parseInt(args[pos+2]), Integer.parseInt(args[pos+3]));
+			pos += 4;
+
+			ProgramPoint endPP = new ProgramPoint(args[pos], Integer.parseInt(args[pos+1]), Integer.parseInt(args[pos+2]), Integer.parseInt(args[pos+3]));
+			pos += 4;
+
+			spec.modifiedCBB = new CodeBlockBoundary(startPP, endPP);
+		}
+		else
+		{
+			spec.modifiedThreadID = -1;
+			spec.modifiedCBB = null;
+			spec.otherThreadID = -1;
+		}
+
+		return pos;
+	}
+
+	private static void addProgramPointArgs(List<String> args, ProgramPoint pp)
+	{
+		args.add(pp.methodSig);
+		args.add(String.valueOf(pp.insnIndex));
+		args.add(String.valueOf(pp.insnBcPos));
+		args.add(String.valueOf(pp.insnBcIndex));
+	}
+}
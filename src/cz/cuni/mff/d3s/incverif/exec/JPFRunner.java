@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.LinkedHashMap;
+
+import gov.nasa.jpf.JPF;
+
+import cz.cuni.mff.d3s.incverif.pairwise.ThreadExecutionMonitor;
+import cz.cuni.mff.d3s.incverif.pairwise.ThreadCensusMonitor;
+import cz.cuni.mff.d3s.incverif.tools.ErrorInfoPrinter;
+import cz.cuni.mff.d3s.incverif.tools.CancellationMonitor;
+import cz.cuni.mff.d3s.incverif.tools.MemoryConstrainedJPF;
+import cz.cuni.mff.d3s.incverif.tools.TimeConstrainedJPF;
+
+
+/**
+ * Runs JPF inside the current process.
+ * Note that JPF keeps some of its state in static fields, and therefore at most one JPF run can be executed in a given process at the same time.
+ */
+public class JPFRunner
+{
+	public static JPFRunResult run(JPFRunSpec spec)
+	{
+		return run(spec, null);
+	}
+
+	/**
+	 * Runs JPF that can be cancelled through the given object (null means that the run cannot be cancelled).
+	 */
+	public static JPFRunResult run(JPFRunSpec spec, RunCancellation cancellation)
+	{
+		JPFRunResult res = new JPFRunResult();
+
+		long jpfStartTime = System.currentTimeMillis();
+
+		JPF jpf = new JPF(spec.jpfConfig);
+
+		try
+		{
+			ThreadExecutionMonitor thExecMon = null;
+
+			ThreadCensusMonitor thCensusMon = null;
+
+			ErrorInfoPrinter errPrinter;
+
+			if (spec.incremental)
+			{
+				// we use the listener ThreadExecutionMonitor to record thread IDs and determine the maximum possible dynamic thread ID
+					// parameters: ID of the modified thread, boundaries of the modified code fragment (two program points), ID of the other thread
+				thExecMon = new ThreadExecutionMonitor(spec.jpfConfig, spec.modifiedThreadID, spec.modifiedCBB, spec.otherThreadID);
+
+				jpf.addListener(thExecMon);
+
+				errPrinter = new ErrorInfoPrinter("INCR VERIF ERROR");
+			}
+			else if (spec.census)
+			{
+				// single execution that records all started threads
+				thCensusMon = new ThreadCensusMonitor();
+
+				jpf.addListener(thCensusMon);
+
+				errPrinter = new ErrorInfoPrinter("THREAD CENSUS ERROR");
+			}
+			else
+			{
+				errPrinter = new ErrorInfoPrinter("FULL VERIF ERROR");
+			}
+
+			jpf.addListener(errPrinter);
+
+			CancellationMonitor cancelMon = null;
+
+			if (cancellation != null)
+			{
+				cancelMon = new CancellationMonitor(cancellation);
+
+				jpf.addListener(cancelMon);
+			}
+
+			jpf.run();
+
+			if (cancelMon != null) res.cancelled = cancelMon.isCancelled();
+
+			if (thExecMon != null)
+			{
+				// get the updated maximum thread ID at the end of each JPF run
+				res.maxThreadID = thExecMon.getMaxThreadID();
+
+				res.modifiedThreadEntryMethodSig = thExecMon.getModifiedThreadEntryMethodSig();
+			}
+
+			if (thCensusMon != null)
+			{
+				res.threadCensus = thCensusMon.getCensus();
+
+				res.maxThreadID = res.threadCensus.getMaxThreadID();
+			}
+
+			MemoryConstrainedJPF memConstr = jpf.getListenerOfType(MemoryConstrainedJPF.class);
+
+			res.memoryLimitReached = memConstr.isLimitReached();
+
+			TimeConstrainedJPF timeConstr = jpf.getListenerOfType(TimeConstrainedJPF.class);
+
+			if (timeConstr != null) res.timedOut = timeConstr.isLimitReached();
+
+			res.numStates = jpf.getVM().getStateCount();
+
+			res.errorInfo = errPrinter.getErrorInfo();
+
+			if ( (thExecMon != null) && (thExecMon.getOtherThreadBranches() != null) )
+			{
+				res.otherThreadResults = new LinkedHashMap<Integer, JPFRunResult>();
+
+				for (Map.Entry<Integer, ThreadExecutionMonitor.OtherThreadBranch> me : thExecMon.getOtherThreadBranches().entrySet())
+				{
+					ThreadExecutionMonitor.OtherThreadBranch branch = me.getValue();
+
+					JPFRunResult branchRes = new JPFRunResult();
+
+					branchRes.usedTimeMS = branch.usedTimeMS;
+					branchRes.numStates = branch.numStates;
+					// the run may have been stopped after the branch was finished
+					branchRes.timedOut = branch.timedOut || (res.timedOut && ( ! branch.finished ));
+
+					List<String> errorDescs = new ArrayList<String>(thExecMon.getSharedErrorDescriptions());
+					errorDescs.addAll(branch.errorDescs);
+
+					// the same format as the error info of a separate run for the pair of threads
+					for (String errorDesc : errorDescs)
+					{
+						if (branchRes.errorInfo == null) branchRes.errorInfo = errPrinter.formatErrorInfo(errorDesc);
+						else branchRes.errorInfo = branchRes.errorInfo + "\n" + errPrinter.formatErrorInfo(errorDesc);
+					}
+
+					res.otherThreadResults.put(me.getKey(), branchRes);
+				}
+			}
+		}
+		catch (Exception ex)
+		{
+			System.err.println("[ERROR] cannot start JPF");
+			ex.printStackTrace();
+			if (ex.getCause() != null) ex.getCause().printStackTrace();
+
+			res.failed = true;
+		}
+
+		long jpfFinishTime = System.currentTimeMillis();
+
+		res.usedTimeMS = jpfFinishTime - jpfStartTime;
+
+		// we need to make sure it is processed by the garbage collector
+		jpf = null;
+
+		return res;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+
+
+/**
+ * Entry point of a forked JVM that executes a single JPF run.
+ * Arguments: run description (see JPFRunSpec.toArgs), then JPF command-line arguments (including the overridden configuration properties).
+ * The result record is printed as the last line of the standard output.
+ */
+public class JPFRunnerMain
+{
+	public static void main(String[] args)
+	{
+		JPFRunSpec spec = new JPFRunSpec();
+
+		int jpfArgsStartPos = JPFRunSpec.fromArgs(args, 0, spec);
+
+		String[] jpfArgs = new String[args.length - jpfArgsStartPos];
+		System.arraycopy(args, jpfArgsStartPos, jpfArgs, 0, args.length - jpfArgsStartPos);
+
+		JPFRunResult res;
+
+		try
+		{
+			Config jpfConfig = JPF.createConfig(jpfArgs);
+
+			spec.jpfConfig = jpfConfig;
+
+			// the main process may ask the search to terminate early (see RunCancellation)
+			RunCancellation cancellation = new RunCancellation();
+			cancellation.watchInput(System.in);
+
+			res = JPFRunner.run(spec, cancellation);
+		}
+		catch (Exception ex)
+		{
+			System.err.println("[ERROR] cannot configure JPF");
+			ex.printStackTrace();
+
+			res = new JPFRunResult();
+			res.failed = true;
+		}
+
+		System.out.flush();
+		System.err.flush();
+
+		System.out.println(res.toRecord());
+		System.out.flush();
+
+		// JPF may leave some non-daemon threads behind
+		System.exit(0);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+
+
+/**
+ * Machine-readable stream of results, which contains one JSON record per line (JSONL) for every processed JPF run.
+ * Every record is flushed as soon as it is written, so that other tools can follow the file while the campaign is running.
+ * Records are appended to an existing file, and each campaign starts with a record of the type "campaign".
+ */
+public class ResultsStreamWriter
+{
+	private Writer output;
+
+
+	public ResultsStreamWriter(File streamFile, String campaignDesc) throws IOException
+	{
+		this.output = new OutputStreamWriter(new FileOutputStream(streamFile, true), StandardCharsets.UTF_8);
+
+		StringBuffer strbuf = new StringBuffer();
+
+		strbuf.append("{\"record\":\"campaign\"");
+		strbuf.append(",\"timestamp\":" + System.currentTimeMillis());
+		strbuf.append(",\"description\":" + toJSONString(campaignDesc));
+		strbuf.append("}");
+
+		writeLine(strbuf.toString());
+	}
+
+	/**
+	 * Writes the record for a single run (the IDs of threads are -1 for full verification runs).
+	 */
+	public void writeRunRecord(int fragmentNumber, String kind, String version, CodeBlockBoundary modifiedCBB, int modifiedThreadID, int otherThreadID, JPFRunResult res)
+	{
+		StringBuffer strbuf = new StringBuffer();
+
+		strbuf.append("{\"record\":\"run\"");
+		strbuf.append(",\"timestamp\":" + System.currentTimeMillis());
+		strbuf.append(",\"fragment\":" + fragmentNumber);
+		strbuf.append(",\"kind\":" + toJSONString(kind));
+		strbuf.append(",\"version\":" + toJSONString(version));
+		strbuf.append(",\"methodSig\":" + toJSONString(modifiedCBB.getMethodSignature()));
+		strbuf.append(",\"startBcIndex\":" + modifiedCBB.startLoc.insnBcIndex);
+		strbuf.append(",\"startBcPos\":" + modifiedCBB.startLoc.insnBcPos);
+		strbuf.append(",\"endBcIndex\":" + modifiedCBB.endLoc.insnBcIndex);
+		strbuf.append(",\"endBcPos\":" + modifiedCBB.endLoc.insnBcPos);
+		strbuf.append(",\"modifiedThread\":" + ((modifiedThreadID >= 0) ? String.valueOf(modifiedThreadID) : "null"));
+		strbuf.append(",\"otherThread\":" + ((otherThreadID >= 0) ? String.valueOf(otherThreadID) : "null"));
+		strbuf.append(",\"skipped\":" + res.skipped);
+		strbuf.append(",\"symmetricPair\":" + toJSONString(res.symmetricPair));
+		strbuf.append(",\"timeMS\":" + res.usedTimeMS);
+		strbuf.append(",\"states\":" + res.numStates);
+		strbuf.append(",\"timedOut\":" + res.timedOut);
+		strbuf.append(",\"memoryLimitReached\":" + res.memoryLimitReached);
+		strbuf.append(",\"failed\":" + res.failed);
+		strbuf.append(",\"cancelled\":" + res.cancelled);
+		strbuf.append(",\"error\":" + toJSONString(res.errorInfo));
+		strbuf.append("}");
+
+		writeLine(strbuf.toString());
+	}
+
+	public synchronized void close()
+	{
+		try
+		{
+			output.close();
+		}
+		catch (IOException ex)
+		{
+			System.err.println("[ERROR] cannot close results stream");
+			ex.printStackTrace();
+		}
+	}
+
+	private synchronized void writeLine(String line)
+	{
+		try
+		{
+			output.write(line);
+			output.write("\n");
+			output.flush();
+		}
+		catch (IOException ex)
+		{
+			// the campaign itself does not depend on the stream
+			System.err.println("[ERROR] cannot write to results stream: " + ex.getMessage());
+		}
+	}
+
+	private static String toJSONString(String text)
+	{
+		if (text == null) return "null";
+
+		StringBuffer strbuf = new StringBuffer();
+
+		strbuf.append('"');
+
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+
+			if (c == '"') strbuf.append("\\\"");
+			else if (c == '\\') strbuf.append("\\\\");
+			else if (c == '\n') strbuf.append("\\n");
+			else if (c == '\r') strbuf.append("\\r");
+			else if (c == '\t') strbuf.append("\\t");
+			else if (c < 0x20) strbuf.append(String.format("\\u%04x", (int) c));
+			else strbuf.append(c);
+		}
+
+		strbuf.append('"');
+
+		return strbuf.toString();
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.Set;
+import java.util.HashSet;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Cooperative cancellation of JPF runs, used to stop the whole campaign as soon as the first error is found.
+ * Searches running inside the process observe the cancellation through the listener CancellationMonitor, and forked JVMs are asked to terminate their search by a command sent to their standard input.
+ * Cancelled runs still report their (partial) results, but they are never stored.
+ */
+public class RunCancellation
+{
+	// command understood by forked JVMs (see JPFRunnerMain)
+	public static final String CANCEL_COMMAND = "CANCEL";
+
+	private volatile boolean cancelled;
+
+	private String reason;
+
+	// forked JVMs that are running at the moment
+	private Set<Process> forkedRuns;
+
+	// the first JPF run that reported an error (null if no error was found yet)
+	private JPFRunSpec firstErrorSpec;
+	private JPFRunResult firstErrorRes;
+
+
+	public RunCancellation()
+	{
+		this.cancelled = false;
+
+		this.reason = null;
+
+		this.forkedRuns = new HashSet<Process>();
+
+		this.firstErrorSpec = null;
+		this.firstErrorRes = null;
+	}
+
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	public synchronized String getReason()
+	{
+		return reason;
+	}
+
+	public synchronized void cancel(String reason)
+	{
+		if (cancelled) return;
+
+		this.reason = reason;
+
+		cancelled = true;
+
+		for (Process proc : forkedRuns) requestCancel(proc);
+	}
+
+	/**
+	 * Cancels all runs when the given finished run reported an error (first error wins).
+	 */
+	public synchronized void onRunFinished(JPFRunSpec spec, JPFRunResult res)
+	{
+		if ( (res.errorInfo == null) || (firstErrorRes != null) ) return;
+
+		firstErrorSpec = spec;
+		firstErrorRes = res;
+
+		cancel("first error found");
+	}
+
+	public synchronized JPFRunSpec getFirstErrorSpec()
+	{
+		return firstErrorSpec;
+	}
+
+	public synchronized JPFRunResult getFirstErrorResult()
+	{
+		return firstErrorRes;
+	}
+
+	/**
+	 * Registers the forked JVM of a JPF run that was just started, which is asked to terminate immediately if the runs are already cancelled.
+	 */
+	public synchronized void registerForkedRun(Process proc)
+	{
+		forkedRuns.add(proc);
+
+		if (cancelled) requestCancel(proc);
+	}
+
+	public synchronized void unregisterForkedRun(Process proc)
+	{
+		forkedRuns.remove(proc);
+	}
+
+	private static void requestCancel(Process proc)
+	{
+		try
+		{
+			OutputStream procInput = proc.getOutputStream();
+
+			procInput.write((CANCEL_COMMAND + "\n").getBytes(StandardCharsets.UTF_8));
+			procInput.flush();
+		}
+		catch (IOException ex)
+		{
+			// the forked JVM has already finished
+		}
+	}
+
+	/**
+	 * Starts a daemon thread that cancels all runs when the cancel command appears on the given input (used inside forked JVMs).
+	 */
+	public void watchInput(final InputStream input)
+	{
+		Thread watcher = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				try
+				{
+					BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+					String line;
+					while ((line = reader.readLine()) != null)
+					{
+						if (line.trim().equals(CANCEL_COMMAND)) cancel("cancelled by the main process");
+					}
+				}
+				catch (IOException ex)
+				{
+					// the main process has closed the input
+				}
+			}
+		});
+
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+
+
+/**
+ * Distribution of running times (in milliseconds).
+ * Mean and variance are updated incrementally by the algorithm of Welford, which is numerically stable and does not overflow even for very long runs.
+ * Percentiles are exact (nearest rank), and therefore all values are kept (the number of JPF runs in a single campaign is small enough).
+ */
+public class RunTimeDistribution
+{
+	private long count;
+
+	private double mean;
+
+	// sum of squared differences from the current mean
+	private double sumSqrDiff;
+
+	private long max;
+
+	private List<Long> values;
+
+	private boolean sorted;
+
+
+	public RunTimeDistribution()
+	{
+		this.count = 0;
+		this.mean = 0.0;
+		this.sumSqrDiff = 0.0;
+		this.max = 0;
+
+		this.values = new ArrayList<Long>();
+		this.sorted = true;
+	}
+
+	public void add(long valueMS)
+	{
+		count++;
+
+		double delta = valueMS - mean;
+		mean += delta / count;
+		sumSqrDiff += delta * (valueMS - mean);
+
+		if (valueMS > max) max = valueMS;
+
+		values.add(valueMS);
+		sorted = false;
+	}
+
+	public long getCount()
+	{
+		return count;
+	}
+
+	public double getMean()
+	{
+		return mean;
+	}
+
+	/**
+	 * Returns the population variance (all runs of the campaign are the whole population).
+	 */
+	public double getVariance()
+	{
+		if (count == 0) return 0.0;
+
+		return sumSqrDiff / count;
+	}
+
+	public double getStandardDeviation()
+	{
+		return Math.sqrt(getVariance());
+	}
+
+	public long getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * Returns the smallest value such that at least the given fraction of all values is not greater (0 when there are no values).
+	 */
+	public long getPercentile(double fraction)
+	{
+		if (count == 0) return 0;
+
+		if ( ! sorted )
+		{
+			Collections.sort(values);
+			sorted = true;
+		}
+
+		int rank = (int) Math.ceil(fraction * count);
+
+		return values.get(Math.max(rank, 1) - 1);
+	}
+
+	public String toSummary()
+	{
+		if (count == 0) return "count = 0";
+
+		return "count = " + count + ", mean = " + String.format(Locale.ROOT, "%.1f", getMean()) + " ms, stddev = " + String.format(Locale.ROOT, "%.1f", getStandardDeviation()) + " ms, p50 = " + getPercentile(0.5) + " ms, p90 = " + getPercentile(0.9) + " ms, p99 = " + getPercentile(0.99) + " ms, max = " + getMax() + " ms";
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Running times of JPF runs, both for individual runs and summed over each code fragment, in total and separately for each program version (deletion, addition).
+ * Running times of the current code fragment are kept aside until the code fragment is finished, so that they can be discarded when the code fragment is not finished.
+ */
+public class RunTimeStatistics
+{
+	private RunTimeDistribution runTimes;
+	private Map<String, RunTimeDistribution> version2RunTimes;
+
+	private RunTimeDistribution fragmentTimes;
+	private Map<String, RunTimeDistribution> version2FragmentTimes;
+
+	// running times of individual runs for the current code fragment (null when no code fragment is open)
+	private Map<String, List<Long>> version2CurrentFragmentTimes;
+
+
+	public RunTimeStatistics()
+	{
+		this.runTimes = new RunTimeDistribution();
+		this.version2RunTimes = new TreeMap<String, RunTimeDistribution>();
+
+		this.fragmentTimes = new RunTimeDistribution();
+		this.version2FragmentTimes = new TreeMap<String, RunTimeDistribution>();
+
+		this.version2CurrentFragmentTimes = null;
+	}
+
+	/**
+	 * Finishes the current code fragment (if there is some) and starts the next one.
+	 */
+	public void startFragment()
+	{
+		finishFragment();
+
+		version2CurrentFragmentTimes = new TreeMap<String, List<Long>>();
+	}
+
+	/**
+	 * Adds running times of the current code fragment into the distributions.
+	 */
+	public void finishFragment()
+	{
+		if (version2CurrentFragmentTimes == null) return;
+
+		long fragmentSumMS = 0;
+
+		for (Map.Entry<String, List<Long>> me : version2CurrentFragmentTimes.entrySet())
+		{
+			long versionSumMS = 0;
+
+			for (Long rt : me.getValue())
+			{
+				runTimes.add(rt);
+				getDistribution(version2RunTimes, me.getKey()).add(rt);
+
+				versionSumMS += rt;
+			}
+
+			getDistribution(version2FragmentTimes, me.getKey()).add(versionSumMS);
+
+			fragmentSumMS += versionSumMS;
+		}
+
+		fragmentTimes.add(fragmentSumMS);
+
+		version2CurrentFragmentTimes = null;
+	}
+
+	/**
+	 * Drops running times of the current code fragment.
+	 */
+	public void discardFragment()
+	{
+		version2CurrentFragmentTimes = null;
+	}
+
+	public void add(String version, long rt)
+	{
+		List<Long> curTimes = version2CurrentFragmentTimes.get(version);
+
+		if (curTimes == null)
+		{
+			curTimes = new ArrayList<Long>();
+			version2CurrentFragmentTimes.put(version, curTimes);
+		}
+
+		curTimes.add(rt);
+	}
+
+	/**
+	 * Returns running times of the current code fragment as a single string without spaces and commas (used by the journal).
+	 */
+	public String getCurrentFragmentRecord()
+	{
+		StringBuffer strbuf = new StringBuffer();
+
+		if (version2CurrentFragmentTimes == null) return "";
+
+		for (Map.Entry<String, List<Long>> me : version2CurrentFragmentTimes.entrySet())
+		{
+			if (strbuf.length() > 0) strbuf.append("/");
+
+			strbuf.append(me.getKey());
+
+			for (Long rt : me.getValue()) strbuf.append(":" + rt);
+		}
+
+		return strbuf.toString();
+	}
+
+	/**
+	 * Adds running times recorded by getCurrentFragmentRecord to the current code fragment.
+	 */
+	public void replayFragmentRecord(String record)
+	{
+		if (record.length() == 0) return;
+
+		for (String versionRecord : record.split("/"))
+		{
+			String[] items = versionRecord.split(":");
+
+			for (int i = 1; i < items.length; i++) add(items[0], Long.parseLong(items[i]));
+		}
+	}
+
+	public RunTimeDistribution getRunTimes()
+	{
+		return runTimes;
+	}
+
+	public Map<String, RunTimeDistribution> getRunTimesByVersion()
+	{
+		return version2RunTimes;
+	}
+
+	public RunTimeDistribution getFragmentTimes()
+	{
+		return fragmentTimes;
+	}
+
+	public Map<String, RunTimeDistribution> getFragmentTimesByVersion()
+	{
+		return version2FragmentTimes;
+	}
+
+	private static RunTimeDistribution getDistribution(Map<String, RunTimeDistribution> version2Dist, String version)
+	{
+		RunTimeDistribution dist = version2Dist.get(version);
+
+		if (dist == null)
+		{
+			dist = new RunTimeDistribution();
+			version2Dist.put(version, dist);
+		}
+
+		return dist;
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.List;
+import java.util.ArrayList;
+
+
+/**
+ * Table of all threads started during a single execution of a program version: thread ID, class, entry method, class of the target Runnable object, and the location where the thread was started.
+ */
+public class ThreadCensus
+{
+	private List<ThreadRecord> threads;
+
+
+	public ThreadCensus()
+	{
+		this.threads = new ArrayList<ThreadRecord>();
+	}
+
+	public void addThread(int threadID, String className, String entryMethodSig, String targetClassName, String creationSite)
+	{
+		ThreadRecord th = new ThreadRecord();
+
+		th.threadID = threadID;
+		th.className = className;
+		th.entryMethodSig = entryMethodSig;
+		th.targetClassName = targetClassName;
+		th.creationSite = creationSite;
+
+		threads.add(th);
+	}
+
+	public List<ThreadRecord> getThreads()
+	{
+		return threads;
+	}
+
+	public int getMaxThreadID()
+	{
+		int maxThreadID = 0;
+
+		for (ThreadRecord th : threads)
+		{
+			if (th.threadID > maxThreadID) maxThreadID = th.threadID;
+		}
+
+		return maxThreadID;
+	}
+
+	/**
+	 * Encodes the census as text with one thread per line (fields are separated by spaces).
+	 */
+	public String toText()
+	{
+		StringBuffer strbuf = new StringBuffer();
+
+		for (ThreadRecord th : threads)
+		{
+			strbuf.append(th.threadID + " " + th.className + " " + th.entryMethodSig + " " + th.targetClassName + " " + th.creationSite + "\n");
+		}
+
+		return strbuf.toString();
+	}
+
+	public static ThreadCensus parseText(String text)
+	{
+		ThreadCensus census = new ThreadCensus();
+
+		for (String line : text.split("\n"))
+		{
+			String[] fields = line.trim().split(" ");
+
+			if (fields.length != 5) throw new IllegalArgumentException("invalid thread record in census: " + line);
+
+			census.addThread(Integer.parseInt(fields[0]), fields[1], fields[2], fields[3], fields[4]);
+		}
+
+		return census;
+	}
+
+
+	public static class ThreadRecord
+	{
+		public int threadID;
+
+		public String className;
+
+		// signature of the method where the thread starts its execution
+		public String entryMethodSig;
+
+		// class of the Runnable object passed to the constructor of the thread ("-" if there is none), which determines the code executed by threads of the class "java.lang.Thread"
+		public String targetClassName;
+
+		// method signature and bytecode position of the call that started the thread ("-" for the main thread)
+		public String creationSite;
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+import cz.cuni.mff.d3s.incverif.wala.WALAContext;
+import cz.cuni.mff.d3s.incverif.wala.WALAUtils;
+
+
+/**
+ * Identifies JPF runs for pairs of threads <T1, T2> that would be ignored anyway, because the modified code fragment is not reachable in the call graph from the entry method of T1.
+ * Entry methods of dynamic thread instances (identified by IDs) are recorded for each program version when they become known, and then such runs are skipped before JPF is started.
+ */
+public class ThreadPairFilter
+{
+	private WALAContext walaCtx;
+
+	// results of reachability queries ("entry method signature" + " " + "target method signature" -> reachable)
+	private Map<String, Boolean> reachabilityCache;
+
+
+	public ThreadPairFilter(WALAContext walaCtx)
+	{
+		this.walaCtx = walaCtx;
+
+		this.reachabilityCache = new HashMap<String, Boolean>();
+	}
+
+	/**
+	 * Returns true if the modified code fragment is reachable from the given entry method of a thread.
+	 */
+	public synchronized boolean isReachableFromThreadEntry(String entryMthSig, CodeBlockBoundary modifiedCBB) throws Exception
+	{
+		String queryKey = entryMthSig + " " + modifiedCBB.getMethodSignature();
+
+		Boolean reachable = reachabilityCache.get(queryKey);
+
+		if (reachable == null)
+		{
+			reachable = WALAUtils.isMethodReachableInThreadCallGraph(entryMthSig, modifiedCBB.getMethodSignature(), walaCtx);
+
+			reachabilityCache.put(queryKey, reachable);
+		}
+
+		return reachable;
+	}
+
+	/**
+	 * Returns true if the JPF run for the given modified thread (T1) and modified code fragment can be skipped, based on the entry methods known for the program version.
+	 */
+	public boolean canSkipRun(VersionThreads versionThreads, int modifiedThreadID, CodeBlockBoundary modifiedCBB)
+	{
+		String entryMthSig = versionThreads.get(modifiedThreadID);
+
+		// we do not know anything about the thread yet
+		if (entryMthSig == null) return false;
+
+		try
+		{
+			return ! isReachableFromThreadEntry(entryMthSig, modifiedCBB);
+		}
+		catch (Exception ex)
+		{
+			// the run is executed when we cannot decide
+			return false;
+		}
+	}
+
+
+	/**
+	 * Known threads of a single program version: entry methods of dynamic thread instances (indexed by thread IDs) and equivalence classes of threads (when the thread census is available).
+	 * Thread IDs are assigned by JPF deterministically in the order of thread creation, and therefore the mapping is the same for all JPF runs of the program version.
+	 */
+	public static class VersionThreads
+	{
+		private Map<Integer, String> threadID2EntryMethod = new ConcurrentHashMap<Integer, String>();
+
+		// null when there is no thread census for the program version
+		private volatile ThreadSymmetry symmetry = null;
+
+		public void record(int threadID, String entryMthSig)
+		{
+			// the thread was not started at all in the particular run
+			if (entryMthSig == null) return;
+
+			threadID2EntryMethod.put(threadID, entryMthSig);
+		}
+
+		public String get(int threadID)
+		{
+			return threadID2EntryMethod.get(threadID);
+		}
+
+		public void setSymmetry(ThreadSymmetry symmetry)
+		{
+			this.symmetry = symmetry;
+		}
+
+		public ThreadSymmetry getSymmetry()
+		{
+			return symmetry;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.Map;
+import java.util.HashMap;
+
+
+/**
+ * Groups threads of a program version into equivalence classes (same class, same entry method, same class of the target Runnable object, same creation site), based on the thread census.
+ * Only one representative pair of threads <T1, T2> is checked for each combination of equivalence classes: T1 is the thread with the lowest ID in its class, and T2 is the thread with the lowest ID in its class (except T1).
+ * The representative does not depend on the order in which pairs are processed, so the same runs are executed in the sequential and concurrent mode.
+ */
+public class ThreadSymmetry
+{
+	// thread ID -> key of the equivalence class
+	private Map<Integer, String> threadID2ClassKey;
+
+
+	public ThreadSymmetry(ThreadCensus census)
+	{
+		this.threadID2ClassKey = new HashMap<Integer, String>();
+
+		for (ThreadCensus.ThreadRecord th : census.getThreads())
+		{
+			// threads of the class "java.lang.Thread" execute the code of their target Runnable objects, which may differ for threads started at the same location
+			threadID2ClassKey.put(th.threadID, th.className + " " + th.entryMethodSig + " " + th.targetClassName + " " + th.creationSite);
+		}
+	}
+
+	/**
+	 * Returns true if the pair of threads must be checked, i.e. when it represents its combination of equivalence classes.
+	 */
+	public boolean isRepresentativePair(int threadID1, int threadID2)
+	{
+		String classKey1 = threadID2ClassKey.get(threadID1);
+		String classKey2 = threadID2ClassKey.get(threadID2);
+
+		// threads not recorded by the census are always checked
+		if ( (classKey1 == null) || (classKey2 == null) ) return true;
+
+		if (threadID1 != getLowestThreadID(classKey1, -1)) return false;
+
+		if (threadID2 != getLowestThreadID(classKey2, threadID1)) return false;
+
+		return true;
+	}
+
+	/**
+	 * Returns the representative pair for the given pair of threads (in the format "<T1, T2>").
+	 */
+	public String getRepresentativePair(int threadID1, int threadID2)
+	{
+		String classKey1 = threadID2ClassKey.get(threadID1);
+		String classKey2 = threadID2ClassKey.get(threadID2);
+
+		if ( (classKey1 == null) || (classKey2 == null) ) return "<" + threadID1 + ", " + threadID2 + ">";
+
+		int reprThreadID1 = getLowestThreadID(classKey1, -1);
+
+		return "<" + reprThreadID1 + ", " + getLowestThreadID(classKey2, reprThreadID1) + ">";
+	}
+
+	private int getLowestThreadID(String classKey, int excludedThreadID)
+	{
+		int lowestThreadID = Integer.MAX_VALUE;
+
+		for (Map.Entry<Integer, String> me : threadID2ClassKey.entrySet())
+		{
+			if (me.getKey() == excludedThreadID) continue;
+
+			if (me.getValue().equals(classKey) && (me.getKey() < lowestThreadID)) lowestThreadID = me.getKey();
+		}
+
+		return lowestThreadID;
+	}
+}
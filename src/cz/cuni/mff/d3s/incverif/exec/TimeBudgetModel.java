@@ -0,0 +1,427 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ArrayList;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
+
+import gov.nasa.jpf.Config;
+
+import cz.cuni.mff.d3s.incverif.common.ContentHash;
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+
+
+/**
+ * Adaptive limits for the running time of JPF runs, learned from previous executions of the tool on the same subject program.
+ * History is kept for every class of runs (kind of the run and the modified code fragment), and also aggregated over all runs of the same kind.
+ * Runs that always finished quickly get a shorter limit, and the time they do not need is reclaimed for runs that timed out before.
+ * The total time of all JPF runs never exceeds the sum of the default limits, so the whole campaign fits the same wall-clock window.
+ * Optionally, the whole campaign has a deadline, and every JPF run is stopped when the deadline is reached.
+ *
+ * Every line of the history file has the form:
+ *   <benchmark id> <runs> <finished runs> <max finished time ms> <sum finished time ms> <timedout runs> <run class>
+ */
+public class TimeBudgetModel
+{
+	// configuration property that identifies the class of a JPF run (runs without it always get the default limit)
+	public static final String CFG_RUN_CLASS = "incverif.budget.class";
+
+	// configuration property set for runs whose limit was cut by the campaign deadline (their timeouts do not say anything about the program)
+	public static final String CFG_DEADLINE_CUT = "incverif.budget.deadline_cut";
+
+	// shortened limit is the maximum running time observed before multiplied by this factor
+	private static final int SAFETY_FACTOR = 4;
+
+	private static final int MIN_LIMIT_SEC = 10;
+
+	// limit is shortened only when enough runs of the class have finished before
+	private static final int MIN_SAMPLES = 3;
+
+	// runs that timed out before may get at most this multiple of the default limit
+	private static final int MAX_EXTENSION_FACTOR = 4;
+
+	// null when limits are not adaptive (only the campaign deadline is enforced)
+	private File historyFile;
+
+	private String benchmarkID;
+
+	// history of the current subject program (run class -> statistics)
+	private Map<String, RunClassStats> class2Stats;
+
+	// lines of the history file that belong to other subject programs (kept without changes)
+	private List<String> otherLines;
+
+	// time that is not needed by finished or shortened runs (in milliseconds), which is available for extensions
+	private long reserveMS;
+
+	private int numShortenedRuns;
+	private int numExtendedRuns;
+	private long reclaimedTimeMS;
+
+	// absolute time in milliseconds (0 means that the campaign is not limited)
+	private long campaignDeadline;
+
+
+	/**
+	 * Loads the history of the given subject program (identified by the description) from the file, if it exists.
+	 * When the file is null, all runs get the default limits.
+	 */
+	public TimeBudgetModel(File historyFile, String benchmarkDesc) throws IOException
+	{
+		this.historyFile = historyFile;
+
+		this.benchmarkID = ContentHash.hashString(benchmarkDesc);
+
+		this.class2Stats = new HashMap<String, RunClassStats>();
+		this.otherLines = new ArrayList<String>();
+
+		this.reserveMS = 0;
+
+		this.numShortenedRuns = 0;
+		this.numExtendedRuns = 0;
+		this.reclaimedTimeMS = 0;
+
+		this.campaignDeadline = 0;
+
+		if ( (historyFile != null) && historyFile.isFile() ) load();
+	}
+
+	/**
+	 * Returns the class of JPF runs that share the history of running times.
+	 * The original code fragment identifies runs for both program versions, and runs of the original program version that do not depend on any code fragment have no fragment.
+	 */
+	public static String getRunClass(String runKind, CodeBlockBoundary fragmentCBB)
+	{
+		if (fragmentCBB == null) return runKind;
+
+		return runKind + " " + fragmentCBB.toString();
+	}
+
+	public boolean isAdaptive()
+	{
+		return (historyFile != null);
+	}
+
+	public synchronized void setCampaignDeadline(long deadline)
+	{
+		this.campaignDeadline = deadline;
+	}
+
+	public synchronized boolean isCampaignBudgetExhausted()
+	{
+		return (campaignDeadline > 0) && (System.currentTimeMillis() >= campaignDeadline);
+	}
+
+	private void load() throws IOException
+	{
+		for (String line : Files.readAllLines(historyFile.toPath(), StandardCharsets.UTF_8))
+		{
+			String[] parts = line.split(" ", 7);
+
+			if (parts.length < 7) continue;
+
+			if ( ! parts[0].equals(benchmarkID) )
+			{
+				otherLines.add(line);
+				continue;
+			}
+
+			try
+			{
+				RunClassStats stats = new RunClassStats();
+
+				stats.numRuns = Integer.parseInt(parts[1]);
+				stats.numFinished = Integer.parseInt(parts[2]);
+				stats.maxFinishedTimeMS = Long.parseLong(parts[3]);
+				stats.sumFinishedTimeMS = Long.parseLong(parts[4]);
+				stats.numTimedOut = Integer.parseInt(parts[5]);
+
+				class2Stats.put(parts[6], stats);
+			}
+			catch (NumberFormatException ex)
+			{
+				// broken lines are simply ignored
+			}
+		}
+	}
+
+	/**
+	 * Sets the time limit of the given JPF run, which must be called right before the run is executed (result stores are queried with the nominal limit).
+	 * The default limit is the one already present in the configuration.
+	 */
+	public synchronized void allocate(JPFRunSpec spec)
+	{
+		Config cfg = spec.jpfConfig;
+
+		String runClass = cfg.getProperty(CFG_RUN_CLASS);
+
+		if ( (historyFile == null) || (runClass == null) ) return;
+
+		// every other thread checked by a single run has its own limit
+		int numBranches = cfg.getIntArray("incverif.pairwise.thread.other.ids", new int[0]).length;
+
+		boolean batch = (numBranches > 0) && (cfg.getProperty("incverif.pairwise.batch.time_limit") != null);
+
+		if ( ! batch ) numBranches = 1;
+
+		int defaultLimitSec = cfg.getInt(batch ? "incverif.pairwise.batch.time_limit" : "jpf.time_limit", 0);
+
+		if (defaultLimitSec <= 0) return;
+
+		int limitSec = computeLimit(runClass, defaultLimitSec, numBranches);
+
+		if (batch)
+		{
+			cfg.setProperty("incverif.pairwise.batch.time_limit", String.valueOf(limitSec));
+			cfg.setProperty("jpf.time_limit", String.valueOf(limitSec * numBranches));
+		}
+		else
+		{
+			cfg.setProperty("jpf.time_limit", String.valueOf(limitSec));
+		}
+	}
+
+	/**
+	 * Cuts the time limit of the given JPF run so that it stops at the campaign deadline, which must be called right before the run is executed.
+	 * Returns false when the deadline has already passed and the run should not be executed at all.
+	 */
+	public synchronized boolean cutToDeadline(JPFRunSpec spec)
+	{
+		if (campaignDeadline == 0) return true;
+
+		long remainingSec = (campaignDeadline - System.currentTimeMillis()) / 1000;
+
+		if (remainingSec <= 0) return false;
+
+		Config cfg = spec.jpfConfig;
+
+		if (cfg.getInt("jpf.time_limit", 0) > remainingSec)
+		{
+			cfg.setProperty("jpf.time_limit", String.valueOf(remainingSec));
+			cfg.setProperty(CFG_DEADLINE_CUT, "true");
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the average running time of JPF runs of the given class, Long.MAX_VALUE if some of them timed out, or -1 if nothing is known.
+	 */
+	public synchronized long getEstimatedRunTimeMS(String runClass)
+	{
+		RunClassStats stats = class2Stats.get(runClass);
+
+		if ( (stats == null) || (stats.numRuns == 0) ) return -1;
+
+		if (stats.numTimedOut > 0) return Long.MAX_VALUE;
+
+		return stats.sumFinishedTimeMS / stats.numFinished;
+	}
+
+	private int computeLimit(String runClass, int defaultLimitSec, int numBranches)
+	{
+		RunClassStats stats = class2Stats.get(runClass);
+
+		if ( (stats != null) && (stats.numTimedOut > 0) )
+		{
+			// harder runs get the time reclaimed from easier runs
+			long extensionSec = Math.min(reserveMS / (1000L * numBranches), (long) defaultLimitSec * (MAX_EXTENSION_FACTOR - 1));
+
+			if (extensionSec <= 0) return defaultLimitSec;
+
+			reserveMS -= extensionSec * 1000L * numBranches;
+
+			numExtendedRuns++;
+
+			return defaultLimitSec + (int) extensionSec;
+		}
+
+		// runs of a new class are predicted from all runs of the same kind, but only when none of them timed out
+		if (stats == null)
+		{
+			stats = class2Stats.get(getRunKind(runClass));
+
+			if ( (stats != null) && (stats.numTimedOut > 0) ) stats = null;
+		}
+
+		if ( (stats == null) || (stats.numFinished < MIN_SAMPLES) ) return defaultLimitSec;
+
+		long predictedSec = Math.max(MIN_LIMIT_SEC, (stats.maxFinishedTimeMS * SAFETY_FACTOR + 999) / 1000);
+
+		if (predictedSec >= defaultLimitSec) return defaultLimitSec;
+
+		reserveMS += (defaultLimitSec - predictedSec) * 1000L * numBranches;
+
+		numShortenedRuns++;
+
+		return (int) predictedSec;
+	}
+
+	/**
+	 * Records the running time of the given finished JPF run and reclaims the part of its limit that was not used.
+	 */
+	public synchronized void record(JPFRunSpec spec, JPFRunResult res)
+	{
+		String runClass = spec.jpfConfig.getProperty(CFG_RUN_CLASS);
+
+		if (runClass == null) return;
+
+		long unusedTimeMS = spec.jpfConfig.getInt("jpf.time_limit", 0) * 1000L - res.usedTimeMS;
+
+		// runs that slightly exceed their limit take the difference from the reserve
+		reserveMS += unusedTimeMS;
+
+		if (unusedTimeMS > 0) reclaimedTimeMS += unusedTimeMS;
+
+		// running time of crashed runs and runs terminated because of memory limits does not say anything about the class
+		if (res.failed || res.memoryLimitReached) return;
+
+		if (res.timedOut && spec.jpfConfig.getBoolean(CFG_DEADLINE_CUT, false)) return;
+
+		if (res.otherThreadResults != null)
+		{
+			for (JPFRunResult branchRes : res.otherThreadResults.values()) update(runClass, branchRes.usedTimeMS, branchRes.timedOut);
+		}
+		else
+		{
+			update(runClass, res.usedTimeMS, res.timedOut);
+		}
+	}
+
+	private void update(String runClass, long usedTimeMS, boolean timedOut)
+	{
+		getStats(runClass).add(usedTimeMS, timedOut);
+
+		String runKind = getRunKind(runClass);
+
+		if ( ! runKind.equals(runClass) ) getStats(runKind).add(usedTimeMS, timedOut);
+	}
+
+	private RunClassStats getStats(String runClass)
+	{
+		RunClassStats stats = class2Stats.get(runClass);
+
+		if (stats == null)
+		{
+			stats = new RunClassStats();
+			class2Stats.put(runClass, stats);
+		}
+
+		return stats;
+	}
+
+	private static String getRunKind(String runClass)
+	{
+		// the run class starts with two words that determine the kind of the run (e.g., "incr deletion")
+		String[] words = runClass.split(" ", 3);
+
+		if (words.length < 2) return runClass;
+
+		return words[0] + " " + words[1];
+	}
+
+	public synchronized int getNumberOfShortenedRuns()
+	{
+		return numShortenedRuns;
+	}
+
+	public synchronized int getNumberOfExtendedRuns()
+	{
+		return numExtendedRuns;
+	}
+
+	public synchronized long getReclaimedTimeMS()
+	{
+		return reclaimedTimeMS;
+	}
+
+	public synchronized long getReserveMS()
+	{
+		return reserveMS;
+	}
+
+	/**
+	 * Writes the history (including the runs of the current execution) back into the file.
+	 */
+	public synchronized void save()
+	{
+		if (historyFile == null) return;
+
+		List<String> lines = new ArrayList<String>(otherLines);
+
+		for (Map.Entry<String, RunClassStats> me : class2Stats.entrySet())
+		{
+			RunClassStats stats = me.getValue();
+
+			lines.add(benchmarkID + " " + stats.numRuns + " " + stats.numFinished + " " + stats.maxFinishedTimeMS + " " + stats.sumFinishedTimeMS + " " + stats.numTimedOut + " " + me.getKey());
+		}
+
+		try
+		{
+			File parentDir = historyFile.getAbsoluteFile().getParentFile();
+
+			parentDir.mkdirs();
+
+			// the history is replaced atomically, so that an interrupted execution never leaves a partial file behind
+			File tmpFile = File.createTempFile("history", ".tmp", parentDir);
+
+			Files.write(tmpFile.toPath(), lines, StandardCharsets.UTF_8);
+
+			Files.move(tmpFile.toPath(), historyFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException ex)
+		{
+			System.err.println("[ERROR] cannot store history of running times: " + ex.getMessage());
+		}
+	}
+
+
+	static class RunClassStats
+	{
+		public int numRuns;
+
+		public int numFinished;
+		public long maxFinishedTimeMS;
+		public long sumFinishedTimeMS;
+
+		public int numTimedOut;
+
+
+		public void add(long usedTimeMS, boolean timedOut)
+		{
+			numRuns++;
+
+			if (timedOut)
+			{
+				numTimedOut++;
+			}
+			else
+			{
+				numFinished++;
+				maxFinishedTimeMS = Math.max(maxFinishedTimeMS, usedTimeMS);
+				sumFinishedTimeMS += usedTimeMS;
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.List;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * Pool of workers that execute JPF runs concurrently.
+ * Every run is executed in a separate (forked) JVM, because JPF keeps some of its state in static fields and therefore it is not possible to have multiple concurrent JPF runs in the same process.
+ */
+public class VerificationWorkerPool
+{
+	private ExecutorService executor;
+
+	private ForkedJPFRunner forkedRunner;
+
+	// results of finished runs (in the order of lookup)
+	private List<JPFRunResultStore> resultStores;
+
+	// adaptive time limits (null when the default limits are used)
+	private TimeBudgetModel budgetModel;
+
+	// all runs are cancelled when the first error is found (null when runs are never cancelled)
+	private RunCancellation cancellation;
+
+
+	public VerificationWorkerPool(int numWorkers, ForkedJPFRunner forkedRunner, List<JPFRunResultStore> resultStores, TimeBudgetModel budgetModel, RunCancellation cancellation)
+	{
+		// daemon threads do not prevent the tool from terminating when it stops early because of some error
+		this.executor = Executors.newFixedThreadPool(numWorkers, new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread th = new Thread(r);
+				th.setDaemon(true);
+				return th;
+			}
+		});
+
+		this.forkedRunner = forkedRunner;
+
+		this.resultStores = resultStores;
+
+		this.budgetModel = budgetModel;
+
+		this.cancellation = cancellation;
+	}
+
+	public Future<JPFRunResult> submit(final JPFRunSpec spec)
+	{
+		for (JPFRunResultStore store : resultStores)
+		{
+			JPFRunResult storedRes = store.lookup(spec);
+
+			if (storedRes != null)
+			{
+				if (cancellation != null) cancellation.onRunFinished(spec, storedRes);
+
+				return CompletableFuture.completedFuture(storedRes);
+			}
+		}
+
+		return executor.submit(new Callable<JPFRunResult>()
+		{
+			public JPFRunResult call()
+			{
+				// runs waiting in the queue are never started after cancellation
+				if ( (cancellation != null) && cancellation.isCancelled() ) return JPFRunResult.createCancelled();
+
+				// stored results are looked up with the nominal time limit, since their verdicts do not depend on it
+				if (budgetModel != null) budgetModel.allocate(spec);
+
+				// runs may wait in the queue for a long time, so the deadline is checked only when they are started
+				if ( (budgetModel != null) && ( ! budgetModel.cutToDeadline(spec) ) ) return JPFRunResult.createNotStarted();
+
+				JPFRunResult res = forkedRunner.run(spec, cancellation);
+
+				// results of cancelled runs are not complete
+				if (res.cancelled) return res;
+
+				for (JPFRunResultStore store : resultStores) store.store(spec, res);
+
+				if (budgetModel != null) budgetModel.record(spec, res);
+
+				if (cancellation != null) cancellation.onRunFinished(spec, res);
+
+				return res;
+			}
+		});
+	}
+
+	public void shutdown()
+	{
+		executor.shutdownNow();
+	}
+}
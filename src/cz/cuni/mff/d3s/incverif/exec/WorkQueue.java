@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.exec;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Work queue for JPF runs stored in a directory that is shared by the coordinator and all workers (e.g., over a network file system).
+ * Every work item is a single file with arguments for JPFRunnerMain, and every state change is an atomic rename, so that no other synchronization between nodes is needed.
+ * Work items move from the subdirectory "pending" to "claimed" (by a worker), and the worker then publishes the result record together with the output of JPF in the subdirectory "results".
+ */
+public class WorkQueue
+{
+	private static final String ITEM_SUFFIX = ".item";
+	private static final String RESULT_SUFFIX = ".result";
+
+	// markers in the root directory, which are observed by the workers
+	private static final String SHUTDOWN_MARKER = "shutdown";
+	private static final String CANCEL_MARKER = "cancelled";
+
+	private File pendingDir;
+	private File claimedDir;
+	private File resultsDir;
+
+	private File shutdownMarker;
+	private File cancelMarker;
+
+
+	public WorkQueue(File workDir) throws IOException
+	{
+		this.pendingDir = new File(workDir, "pending");
+		this.claimedDir = new File(workDir, "claimed");
+		this.resultsDir = new File(workDir, "results");
+
+		this.shutdownMarker = new File(workDir, SHUTDOWN_MARKER);
+		this.cancelMarker = new File(workDir, CANCEL_MARKER);
+
+		Files.createDirectories(pendingDir.toPath());
+		Files.createDirectories(claimedDir.toPath());
+		Files.createDirectories(resultsDir.toPath());
+	}
+
+	/**
+	 * Prepares the queue for a new campaign (markers left behind by the previous campaign are removed).
+	 */
+	public void open()
+	{
+		shutdownMarker.delete();
+		cancelMarker.delete();
+	}
+
+	/**
+	 * Tells the workers that no more work items will be published.
+	 */
+	public void shutdown() throws IOException
+	{
+		createMarker(shutdownMarker);
+	}
+
+	public boolean isShutdown()
+	{
+		return shutdownMarker.exists();
+	}
+
+	/**
+	 * Tells the workers to cancel all running JPF runs.
+	 */
+	public void cancelAll() throws IOException
+	{
+		createMarker(cancelMarker);
+	}
+
+	public boolean isCancelled()
+	{
+		return cancelMarker.exists();
+	}
+
+	public void publish(String itemID, List<String> runnerArgs) throws IOException
+	{
+		StringBuffer strbuf = new StringBuffer();
+
+		// arguments may contain arbitrary characters (e.g., values of configuration properties)
+		for (String arg : runnerArgs)
+		{
+			strbuf.append(URLEncoder.encode(arg, "UTF-8"));
+			strbuf.append("\n");
+		}
+
+		writeAtomically(new File(pendingDir, itemID + ITEM_SUFFIX), strbuf.toString());
+	}
+
+	/**
+	 * Removes the work item from the queue if no worker has claimed it yet.
+	 * Returns true when the work item was withdrawn.
+	 */
+	public boolean withdraw(String itemID)
+	{
+		return new File(pendingDir, itemID + ITEM_SUFFIX).delete();
+	}
+
+	/**
+	 * Claims the oldest pending work item and returns its ID, or null if there is no pending work item.
+	 * The rename is atomic, so that every work item is claimed by a single worker.
+	 */
+	public String claim()
+	{
+		String[] itemFileNames = pendingDir.list();
+
+		if (itemFileNames == null) return null;
+
+		// IDs of work items are ordered by the time of publishing
+		Arrays.sort(itemFileNames);
+
+		for (String fileName : itemFileNames)
+		{
+			if ( ! fileName.endsWith(ITEM_SUFFIX) ) continue;
+
+			try
+			{
+				Files.move(new File(pendingDir, fileName).toPath(), new File(claimedDir, fileName).toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+				return fileName.substring(0, fileName.length() - ITEM_SUFFIX.length());
+			}
+			catch (IOException ex)
+			{
+				// another worker was faster
+			}
+		}
+
+		return null;
+	}
+
+	public List<String> readClaimedItem(String itemID) throws IOException
+	{
+		List<String> runnerArgs = new ArrayList<String>();
+
+		for (String line : Files.readAllLines(new File(claimedDir, itemID + ITEM_SUFFIX).toPath(), StandardCharsets.UTF_8))
+		{
+			runnerArgs.add(URLDecoder.decode(line, "UTF-8"));
+		}
+
+		return runnerArgs;
+	}
+
+	/**
+	 * Returns the time of the last heartbeat of the worker that claimed the work item, or -1 if the work item is not claimed at the moment.
+	 */
+	public long getClaimHeartbeat(String itemID)
+	{
+		File claimedFile = new File(claimedDir, itemID + ITEM_SUFFIX);
+
+		// the file may disappear at any moment
+		long lastModified = claimedFile.lastModified();
+
+		if (lastModified == 0) return -1;
+
+		return lastModified;
+	}
+
+	/**
+	 * Signals that the worker that claimed the work item is still alive.
+	 */
+	public void heartbeat(String itemID)
+	{
+		new File(claimedDir, itemID + ITEM_SUFFIX).setLastModified(System.currentTimeMillis());
+	}
+
+	/**
+	 * Returns the claimed work item back to the queue (used when the worker that claimed it is not alive anymore).
+	 */
+	public boolean requeue(String itemID)
+	{
+		try
+		{
+			Files.move(new File(claimedDir, itemID + ITEM_SUFFIX).toPath(), new File(pendingDir, itemID + ITEM_SUFFIX).toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+			return true;
+		}
+		catch (IOException ex)
+		{
+			// the worker has just finished the run
+			return false;
+		}
+	}
+
+	public void complete(String itemID, JPFRunResult res) throws IOException
+	{
+		String resultText = res.toRecord() + "\n" + ((res.outputLog != null) ? res.outputLog : "");
+
+		writeAtomically(new File(resultsDir, itemID + RESULT_SUFFIX), resultText);
+
+		new File(claimedDir, itemID + ITEM_SUFFIX).delete();
+	}
+
+	/**
+	 * Returns the result of the given work item and removes it from the queue, or null if the result is not available yet.
+	 */
+	public JPFRunResult takeResult(String itemID) throws IOException
+	{
+		File resultFile = new File(resultsDir, itemID + RESULT_SUFFIX);
+
+		if ( ! resultFile.exists() ) return null;
+
+		String resultText = new String(Files.readAllBytes(resultFile.toPath()), StandardCharsets.UTF_8);
+
+		resultFile.delete();
+
+		int k = resultText.indexOf('\n');
+
+		JPFRunResult res = JPFRunResult.parseRecord(resultText.substring(0, k));
+
+		res.outputLog = resultText.substring(k + 1);
+
+		return res;
+	}
+
+	// other nodes must never see a partially written file
+	private static void writeAtomically(File targetFile, String content) throws IOException
+	{
+		File tmpFile = new File(targetFile.getParentFile(), targetFile.getName() + ".tmp");
+
+		Files.write(tmpFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+		try
+		{
+			Files.move(tmpFile.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException ex)
+		{
+			Files.move(tmpFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void createMarker(File markerFile) throws IOException
+	{
+		if ( ! markerFile.exists() ) Files.write(markerFile.toPath(), new byte[0]);
+	}
+}
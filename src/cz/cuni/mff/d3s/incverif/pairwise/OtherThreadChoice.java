@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.pairwise;
+
+import gov.nasa.jpf.vm.choice.IntChoiceFromSet;
+
+
+/**
+ * Choice of the other thread (T2) made when the modified thread (T1) reaches the modified code fragment for the first time.
+ * It is used when multiple pairs of threads <T1, T2> are checked by a single JPF run, so that the execution prefix leading to the modified code fragment (which does not depend on T2) is executed just once and every T2 is explored from the state stored by JPF.
+ */
+public class OtherThreadChoice extends IntChoiceFromSet
+{
+	public OtherThreadChoice(int[] otherThreadIDs)
+	{
+		super("otherThread", otherThreadIDs);
+	}
+}
@@ -29,9 +29,8 @@ public class PairwiseSharednessPolicy extends PathSharednessPolicy
 {
 	// relevant thread IDs
 		// thread with modified code (T)
-		// selected other thread (T_o, T2)
+		// selected other thread (T_o, T2) is provided by the listener ThreadExecutionMonitor, because it may be chosen during the run
 	private int thModifiedID;
-	private int thOtherID;
 
 
 	public PairwiseSharednessPolicy(Config config)
@@ -39,7 +38,6 @@ public class PairwiseSharednessPolicy extends PathSharednessPolicy
 		super(config);
 
 		thModifiedID = config.getInt("incverif.pairwise.thread.modified.id", -1);
-		thOtherID = config.getInt("incverif.pairwise.thread.other.id", -1);
 	}
 
 	public void initializeSharednessPolicy(VM vm, ApplicationContext appCtx)
@@ -53,6 +51,8 @@ public class PairwiseSharednessPolicy extends PathSharednessPolicy
 
 		ThreadExecutionMonitor listenerThExecMon = vm.getJPF().getListenerOfType(ThreadExecutionMonitor.class);
 
+		int thOtherID = listenerThExecMon.getOtherThreadID();
+
 		ThreadInfo[] filteredThArray = SchedulingHelper.determinePairwiseEnabledThreads(originalThArray, thModifiedID, thOtherID, listenerThExecMon);
 
 		//System.out.println("[DEBUG PP] SharednessPolicy: originalThArray = " + java.util.Arrays.toString(originalThArray) + ", thModifiedID = " + thModifiedID + ", thOtherID = " + thOtherID + ", filteredThArray = " + java.util.Arrays.toString(filteredThArray));
@@ -30,9 +30,8 @@ public class PairwiseSyncPolicy extends AllRunnablesSyncPolicy
 {
 	// relevant thread IDs
 		// thread with modified code (T)
-		// selected other thread (T_o, T2)
+		// selected other thread (T_o, T2) is provided by the listener ThreadExecutionMonitor, because it may be chosen during the run
 	private int thModifiedID;
-	private int thOtherID;
 
 
 	public PairwiseSyncPolicy(Config config)
@@ -40,7 +39,6 @@ public class PairwiseSyncPolicy extends AllRunnablesSyncPolicy
 		super(config);
 
 		thModifiedID = config.getInt("incverif.pairwise.thread.modified.id", -1);
-		thOtherID = config.getInt("incverif.pairwise.thread.other.id", -1);
 	}
 
 	public void initializeSyncPolicy(VM vm, ApplicationContext appCtx)
@@ -54,6 +52,8 @@ public class PairwiseSyncPolicy extends AllRunnablesSyncPolicy
 
 		ThreadExecutionMonitor listenerThExecMon = vm.getJPF().getListenerOfType(ThreadExecutionMonitor.class);
 
+		int thOtherID = listenerThExecMon.getOtherThreadID();
+
 		ThreadInfo[] filteredThArray = SchedulingHelper.determinePairwiseEnabledThreads(originalThArray, thModifiedID, thOtherID, listenerThExecMon);
 		
 		//System.out.println("[DEBUG PP] SyncPolicy: originalThArray = " + java.util.Arrays.toString(originalThArray) + ", thModifiedID = " + thModifiedID + ", thOtherID = " + thOtherID + ", filteredThArray = " + java.util.Arrays.toString(filteredThArray));
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.pairwise;
+
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.vm.VM;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MJIEnv;
+
+import cz.cuni.mff.d3s.incverif.exec.ThreadCensus;
+
+
+/**
+ * Records all threads started along a single execution of the program, and terminates the search when the first execution is finished.
+ * The search strategy of JPF is deterministic, and therefore the same execution (and the same thread IDs) is observed every time.
+ */
+public class ThreadCensusMonitor extends ListenerAdapter
+{
+	private ThreadCensus census;
+
+
+	public ThreadCensusMonitor()
+	{
+		this.census = new ThreadCensus();
+	}
+
+	public void searchStarted(Search search)
+	{
+		// main thread needs to be handled in a special way
+		String mainClassName = search.getVM().getCurrentApplicationContext().getMainClassName();
+
+		census.addThread(0, mainClassName, mainClassName + ".main([Ljava/lang/String;)V", "-", "-");
+	}
+
+	public void stateAdvanced(Search search)
+	{
+		if (search.isEndState()) search.terminate();
+	}
+
+	public void threadStarted(VM vm, ThreadInfo startedThread)
+	{
+		String className = startedThread.getClassInfo().getName();
+
+		census.addThread(startedThread.getId(), className, className + ".run()V", getTargetClassName(vm, startedThread), getCreationSite(vm.getCurrentThread()));
+	}
+
+	private static String getTargetClassName(VM vm, ThreadInfo startedThread)
+	{
+		int targetRef = startedThread.getRunnableRef();
+
+		if (targetRef == MJIEnv.NULL) return "-";
+
+		return vm.getHeap().get(targetRef).getClassInfo().getName();
+	}
+
+	private static String getCreationSite(ThreadInfo starterThread)
+	{
+		// we skip frames that belong to the implementation of "Thread.start()"
+		for (StackFrame sf = starterThread.getTopFrame(); sf != null; sf = sf.getPrevious())
+		{
+			if (sf.isDirectCallFrame() || sf.isNative()) continue;
+
+			if (sf.getClassInfo().getName().equals("java.lang.Thread")) continue;
+
+			Instruction insn = sf.getPC();
+
+			return sf.getMethodInfo().getFullName() + ":" + insn.getPosition();
+		}
+
+		return "-";
+	}
+
+	public ThreadCensus getCensus()
+	{
+		return census;
+	}
+}
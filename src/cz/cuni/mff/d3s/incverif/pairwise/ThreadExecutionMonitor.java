@@ -16,6 +16,9 @@
 package cz.cuni.mff.d3s.incverif.pairwise;
 
 import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.LinkedHashMap;
 import java.util.Stack;
 import java.util.Collections;
 
@@ -25,12 +28,15 @@ import gov.nasa.jpf.search.Search;
 import gov.nasa.jpf.vm.VM;
 import gov.nasa.jpf.vm.ThreadInfo;
 import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.NativeStateHolder;
 
 import cz.cuni.mff.d3s.incverif.common.ProgramPoint;
 import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+import cz.cuni.mff.d3s.incverif.tools.ErrorInfoPrinter;
 
 
-public class ThreadExecutionMonitor extends ListenerAdapter
+public class ThreadExecutionMonitor extends ListenerAdapter implements NativeStateHolder
 {
 	private Config config;
 
@@ -40,9 +46,27 @@ public class ThreadExecutionMonitor extends ListenerAdapter
 	// encapsulates two program code locations (points) that represent boundaries of the modified code
 	private CodeBlockBoundary modifiedCodeBoundary;
 
-	// other thread forming the given pair
+	// other thread forming the given pair (-1 when multiple other threads are checked by a single run)
 	private int thOtherID;
 
+	// all other threads checked by a single run (null when the run checks just one pair of threads)
+	private int[] thOtherBatchIDs;
+
+	// statistics for each other thread when multiple other threads are checked by a single run
+	private Map<Integer, OtherThreadBranch> otherThreadBranches;
+
+	// descriptions of errors found outside of any branch (before the choice of the other thread), which concern all pairs of threads checked by the run
+	private List<String> sharedErrorDescs;
+
+	// branch of the state space for the current other thread (null when the other thread was not chosen yet on the current execution trace)
+	private OtherThreadBranch activeBranch;
+	private long activeBranchStartTime;
+
+	// exploration of a branch is cut when it takes more time than this limit (in milliseconds, 0 means no limit)
+	private long branchTimeLimitMS;
+
+	private long searchStartTime;
+
 	// current transition
 	// includes the current execution state of thread with modified code
 	private TransitionInfo curTr;
@@ -69,15 +93,34 @@ public class ThreadExecutionMonitor extends ListenerAdapter
 		this.curTraceTrs = new Stack<TransitionInfo>();
 
 		this.maxThreadID = 0;
+
+		int[] otherIDs = cfg.getIntArray("incverif.pairwise.thread.other.ids", new int[0]);
+
+		if ( (toid == -1) && (otherIDs.length > 0) )
+		{
+			this.thOtherBatchIDs = otherIDs;
+
+			this.sharedErrorDescs = new ArrayList<String>();
+
+			this.otherThreadBranches = new LinkedHashMap<Integer, OtherThreadBranch>();
+			for (int otherID : thOtherBatchIDs) otherThreadBranches.put(otherID, new OtherThreadBranch());
+
+			this.branchTimeLimitMS = cfg.getLong("incverif.pairwise.batch.time_limit", 0) * 1000;
+		}
 	}
 
 	public void searchStarted(Search search)
 	{
 		// we need to create and use a special root transition so that backtracking works properly
-		TransitionInfo rootTr = new TransitionInfo(ExecState.BEFOREFIRST);
+		TransitionInfo rootTr = new TransitionInfo(ExecState.BEFOREFIRST, thOtherID);
 		curTraceTrs.push(rootTr);
 
-		curTr = new TransitionInfo(ExecState.BEFOREFIRST);
+		curTr = new TransitionInfo(ExecState.BEFOREFIRST, thOtherID);
+
+		searchStartTime = System.currentTimeMillis();
+
+		// the chosen other thread is not a part of the VM state, so we must add it to the serialized state (otherwise states in the branch of some other thread would be matched with states visited in the branches explored before)
+		if (thOtherBatchIDs != null) search.getVM().getSerializer().addNativeStateHolder(this);
 
 		// main thread needs to be handled in a special way
 		if (thModifiedID == 0) 
@@ -90,11 +133,21 @@ public class ThreadExecutionMonitor extends ListenerAdapter
 	
 	public void stateAdvanced(Search search) 
 	{
-		TransitionInfo newTr = new TransitionInfo(curTr.state);
+		TransitionInfo newTr = new TransitionInfo(curTr.state, curTr.otherThreadID);
 
 		curTraceTrs.push(curTr);
 
 		curTr = newTr;
+
+		if (activeBranch != null)
+		{
+			activeBranch.numStates++;
+
+			if ( (branchTimeLimitMS > 0) && (activeBranch.usedTimeMS + System.currentTimeMillis() - activeBranchStartTime >= branchTimeLimitMS) ) activeBranch.timedOut = true;
+
+			// a separate run would have been terminated at this point, so we return to the choice of the other thread as soon as possible
+			if (activeBranch.errorFound || activeBranch.timedOut) search.requestBacktrack();
+		}
 	}
 	
 	public void stateBacktracked(Search search) 
@@ -110,7 +163,103 @@ public class ThreadExecutionMonitor extends ListenerAdapter
 		}
 		*/
 
-		curTr = new TransitionInfo(prevTr.state);
+		curTr = new TransitionInfo(prevTr.state, prevTr.otherThreadID);
+
+		updateActiveBranch();
+	}
+
+	public void choiceGeneratorAdvanced(VM vm, ChoiceGenerator<?> currentCG)
+	{
+		if ( ! (currentCG instanceof OtherThreadChoice) ) return;
+
+		curTr.otherThreadID = ((OtherThreadChoice) currentCG).getNextChoice();
+
+		// serialized data of the current state must be computed again with the new other thread
+		vm.kernelStateChanged();
+
+		updateActiveBranch();
+
+		// we postponed this until the other thread is known
+		enableThreadChoicesForPossiblyConcurrentEvents(vm);
+	}
+
+	public int getHash()
+	{
+		// states on the common execution prefix have the value -1
+		return curTr.otherThreadID;
+	}
+
+	public void propertyViolated(Search search)
+	{
+		if (otherThreadBranches == null) return;
+
+		// the error trace must be attributed to the branch where it was found (other branches may report different errors)
+		String errorDesc = ErrorInfoPrinter.getErrorDescription(search);
+
+		if (activeBranch == null)
+		{
+			// the error occurred in the common execution prefix or on a path where the modified thread does not reach the modified code, and therefore a separate run for each pair would report it too
+			if (errorDesc != null) sharedErrorDescs.add(errorDesc);
+
+			return;
+		}
+
+		activeBranch.errorFound = true;
+
+		if (errorDesc != null) activeBranch.errorDescs.add(errorDesc);
+	}
+
+	public void searchFinished(Search search)
+	{
+		if (otherThreadBranches != null) markFinishedBranches(search);
+
+		curTr.otherThreadID = thOtherID;
+
+		updateActiveBranch();
+	}
+
+	// determines branches that were explored completely (the search may have been stopped, e.g., by the time limit)
+	private void markFinishedBranches(Search search)
+	{
+		if ( ! search.isDone() )
+		{
+			// the whole state space was explored
+			for (OtherThreadBranch branch : otherThreadBranches.values()) branch.finished = true;
+
+			return;
+		}
+
+		for (ChoiceGenerator<?> cg : search.getVM().getChoiceGenerators())
+		{
+			if (cg instanceof OtherThreadChoice)
+			{
+				OtherThreadChoice otChoice = (OtherThreadChoice) cg;
+
+				// choices before the current one were explored completely, and no other execution prefix can reach the choice of the other thread again
+				for (int i = 0; i < otChoice.getProcessedNumberOfChoices() - 1; i++) otherThreadBranches.get(otChoice.getChoice(i)).finished = true;
+
+				return;
+			}
+
+			// some other execution prefix was not explored yet, and it may reach the choice of the other thread again
+			if (cg.hasMoreChoices()) return;
+		}
+	}
+
+	private void updateActiveBranch()
+	{
+		if (otherThreadBranches == null) return;
+
+		OtherThreadBranch newActiveBranch = otherThreadBranches.get(curTr.otherThreadID);
+
+		if (newActiveBranch == activeBranch) return;
+
+		long curTime = System.currentTimeMillis();
+
+		if (activeBranch != null) activeBranch.usedTimeMS += curTime - activeBranchStartTime;
+
+		activeBranch = newActiveBranch;
+		activeBranchStartTime = curTime;
 	}
 
 	public void instructionExecuted(VM vm, ThreadInfo curTh, Instruction nextInsn, Instruction execInsn)
@@ -132,7 +281,7 @@ public class ThreadExecutionMonitor extends ListenerAdapter
 
 				curTr.state = ExecState.ENTERING;
 
-				enableThreadChoicesForPossiblyConcurrentEvents(curTh, execInsn, vm);
+				enterModifiedCode(vm);
 
 				return;
 			}
@@ -144,7 +293,7 @@ public class ThreadExecutionMonitor extends ListenerAdapter
 
 				curTr.state = ExecState.INSIDE;
 
-				enableThreadChoicesForPossiblyConcurrentEvents(curTh, execInsn, vm);
+				enterModifiedCode(vm);
 
 				return;
 			}
@@ -204,7 +353,7 @@ public class ThreadExecutionMonitor extends ListenerAdapter
 
 				curTr.state = ExecState.ENTERING;
 	
-				enableThreadChoicesForPossiblyConcurrentEvents(curTh, execInsn, vm);
+				enterModifiedCode(vm);
 
 				return;
 			}
@@ -216,7 +365,7 @@ public class ThreadExecutionMonitor extends ListenerAdapter
 
 				curTr.state = ExecState.INSIDE;
 
-				enableThreadChoicesForPossiblyConcurrentEvents(curTh, execInsn, vm);
+				enterModifiedCode(vm);
 
 				return;
 			}
@@ -243,6 +392,33 @@ public class ThreadExecutionMonitor extends ListenerAdapter
 		return this.thModifiedEntryMethodSig;
 	}
 
+	/**
+	 * Returns the other thread on the current execution trace (-1 if it was not chosen yet).
+	 */
+	public int getOtherThreadID()
+	{
+		return curTr.otherThreadID;
+	}
+
+	/**
+	 * Returns statistics for each other thread when multiple other threads are checked by a single run (null otherwise).
+	 * Time spent outside of all branches (e.g., in the common execution prefix) is not included.
+	 */
+	public List<String> getSharedErrorDescriptions()
+	{
+		return sharedErrorDescs;
+	}
+
+	public Map<Integer, OtherThreadBranch> getOtherThreadBranches()
+	{
+		return otherThreadBranches;
+	}
+
+	public long getSearchStartTime()
+	{
+		return searchStartTime;
+	}
+
 	public boolean beforeFirstModifiedCode()
 	{
 		return curTr.state == ExecState.BEFOREFIRST;
@@ -268,7 +444,20 @@ public class ThreadExecutionMonitor extends ListenerAdapter
 		return curTr.state == ExecState.OUTSIDE;
 	}
 
-	private void enableThreadChoicesForPossiblyConcurrentEvents(ThreadInfo curTh, Instruction curInsn, VM vm)
+	private void enterModifiedCode(VM vm)
+	{
+		if ( (thOtherBatchIDs != null) && (curTr.otherThreadID == -1) )
+		{
+			// the execution prefix is the same for all other threads, and therefore we choose the other thread only now (the current state is stored by JPF and restored for every choice)
+			vm.getSystemState().setNextChoiceGenerator(new OtherThreadChoice(thOtherBatchIDs));
+
+			return;
+		}
+
+		enableThreadChoicesForPossiblyConcurrentEvents(vm);
+	}
+
+	private void enableThreadChoicesForPossiblyConcurrentEvents(VM vm)
 	{
 		DynamicHappensBeforeOrdering listenerDynHBO = vm.getJPF().getListenerOfType(DynamicHappensBeforeOrdering.class);
 
@@ -326,9 +515,9 @@ public class ThreadExecutionMonitor extends ListenerAdapter
 
 				if (matchingDynChoice.getTotalNumberOfEnabledThreads() < 2)
 				{
-					if (matchingDynChoice.isAvailableThread(thOtherID))
+					if (matchingDynChoice.isAvailableThread(curTr.otherThreadID))
 					{
-						matchingDynChoice.enableThread(thOtherID);
+						matchingDynChoice.enableThread(curTr.otherThreadID);
 					}
 				}
 
@@ -361,10 +550,32 @@ public class ThreadExecutionMonitor extends ListenerAdapter
 	{
 		protected ExecState state;
 
-		public TransitionInfo(ExecState st)
+		// chosen other thread (-1 if it was not chosen yet)
+		protected int otherThreadID;
+
+		public TransitionInfo(ExecState st, int toid)
 		{
 			state = st;
+			otherThreadID = toid;
 		}
 	}
+
+
+	public static class OtherThreadBranch
+	{
+		public long usedTimeMS = 0;
+
+		public int numStates = 0;
+
+		public boolean errorFound = false;
+
+		// descriptions of errors found in this branch (in the order of discovery)
+		public List<String> errorDescs = new ArrayList<String>();
+
+		public boolean timedOut = false;
+
+		// the whole branch was explored before the search finished or stopped
+		public boolean finished = false;
+	}
 }
 
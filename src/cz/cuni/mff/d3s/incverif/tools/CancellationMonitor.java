@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.tools;
+
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.vm.VM;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.search.Search;
+
+import cz.cuni.mff.d3s.incverif.exec.RunCancellation;
+
+
+public class CancellationMonitor extends ListenerAdapter 
+{
+	private RunCancellation cancellation;
+
+	private boolean cancelled = false;
+
+
+	public CancellationMonitor(RunCancellation cancellation)
+	{
+		this.cancellation = cancellation;
+	}
+
+	public void stateAdvanced(Search search) 
+	{
+		if ( cancellation.isCancelled() && ( ! cancelled ) )
+		{
+			System.out.println("[LOG] terminating search because the run was cancelled");
+
+			cancelled = true;
+
+			search.terminate();
+		}
+	}
+
+	public void executeInstruction(VM vm, ThreadInfo curTh, Instruction insn)
+	{
+		if ( cancellation.isCancelled() && ( ! cancelled ) )
+		{
+			System.out.println("[LOG] terminating search because the run was cancelled");
+
+			cancelled = true;
+
+			vm.getSearch().terminate();
+			vm.breakTransition("run cancelled");
+		}
+	}
+
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+}
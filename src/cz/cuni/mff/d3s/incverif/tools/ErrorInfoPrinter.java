@@ -33,6 +33,9 @@ public class ErrorInfoPrinter extends ListenerAdapter
 {
 	private String msgPrefix;
 
+	// all printed messages (separated by line breaks)
+	private StringBuffer errorInfo = null;
+
 
 	public ErrorInfoPrinter(String prefix)
 	{
@@ -40,6 +43,24 @@ public class ErrorInfoPrinter extends ListenerAdapter
 	}
 	
 	public void propertyViolated(Search search)
+	{
+		String errorDesc = getErrorDescription(search);
+
+		if (errorDesc != null) printErrorInfo(formatErrorInfo(errorDesc));
+	}
+
+	/**
+	 * Returns the message printed for the given description of an error.
+	 */
+	public String formatErrorInfo(String errorDesc)
+	{
+		return msgPrefix + " : " + errorDesc;
+	}
+
+	/**
+	 * Describes the error currently reported by the search (location of the thread that violated the property), or returns null if there is no such location.
+	 */
+	public static String getErrorDescription(Search search)
 	{
 		Error err = search.getCurrentError();
 		
@@ -55,10 +76,11 @@ public class ErrorInfoPrinter extends ListenerAdapter
 			{
 				if ( ! sf.isDirectCallFrame() )
 				{
-					System.out.println(msgPrefix + " : top stack frame trace info = " + sf.getStackTraceInfo());
-					break;
+					return "top stack frame trace info = " + sf.getStackTraceInfo();
 				}
 			}
+
+			return null;
 		}
 		else
 		{
@@ -83,8 +105,26 @@ public class ErrorInfoPrinter extends ListenerAdapter
 				}
 			}
 	
-			System.out.println(msgPrefix + " : threads with non-empty call stack = " + sb.toString());
+			return "threads with non-empty call stack = " + sb.toString();
 		}
 	}
 
+	private void printErrorInfo(String msg)
+	{
+		System.out.println(msg);
+
+		if (errorInfo == null) errorInfo = new StringBuffer();
+		else errorInfo.append("\n");
+
+		errorInfo.append(msg);
+	}
+
+	/**
+	 * Returns all messages printed so far, or null if no error was reported.
+	 */
+	public String getErrorInfo()
+	{
+		return (errorInfo != null) ? errorInfo.toString() : null;
+	}
+
 }
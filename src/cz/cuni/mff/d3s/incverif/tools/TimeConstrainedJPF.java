@@ -29,6 +29,8 @@ public class TimeConstrainedJPF extends ListenerAdapter
 	private long maxTime = 0;
 	private long startTime = 0;
 
+	private boolean limitReached = false;
+
 	public TimeConstrainedJPF(Config cfg, JPF jpf)
 	{
 	}
@@ -51,6 +53,8 @@ public class TimeConstrainedJPF extends ListenerAdapter
 		{
 			System.out.println("[LOG] terminating search because time limit was reached");
 
+			limitReached = true;
+
 			search.terminate();
 		}
 	}
@@ -63,9 +67,15 @@ public class TimeConstrainedJPF extends ListenerAdapter
 		{
 			System.out.println("[LOG] terminating search because time limit was reached");
 
+			limitReached = true;
+
 			vm.getSearch().terminate();
 			vm.breakTransition("reached time limit");
 		}
 	}
 
+	public boolean isLimitReached()
+	{
+		return limitReached;
+	}
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.versions;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.util.Textifier;
+import org.objectweb.asm.util.TraceMethodVisitor;
+
+import cz.cuni.mff.d3s.incverif.common.ContentHash;
+
+
+/**
+ * Watches the directory with class files of the subject program and reports methods whose code was changed (or added) since the last check.
+ * Class files are compared by their time stamp and size first, and only the changed class files are parsed to compute hashes of individual methods.
+ * Line numbers are not part of the hash, so that an edit does not mark all the following methods in the same source file as changed.
+ */
+public class ClassChangeWatcher
+{
+	private File classDir;
+
+	// time stamp and size of each class file (relative path -> stamp)
+	private Map<String, String> classFile2Stamp;
+
+	// hash of the code for each method (full signature -> hash)
+	private Map<String, String> methodSig2Hash;
+
+
+	public ClassChangeWatcher(File classDir) throws IOException
+	{
+		this.classDir = classDir;
+
+		this.classFile2Stamp = scanStamps();
+
+		this.methodSig2Hash = new HashMap<String, String>();
+
+		for (String classFileName : classFile2Stamp.keySet()) methodSig2Hash.putAll(hashMethods(classFileName));
+	}
+
+	/**
+	 * Waits until some class files are changed and stay unchanged for the given quiet period (i.e., the build has finished), and returns signatures of methods with changed code.
+	 * Class files that changed only in their debugging information do not end the waiting.
+	 */
+	public Set<String> waitForChangedMethods(long pollIntervalMS, long quietPeriodMS) throws IOException, InterruptedException
+	{
+		while (true)
+		{
+			Thread.sleep(pollIntervalMS);
+
+			Map<String, String> curStamps = scanStamps();
+
+			if (curStamps.equals(classFile2Stamp)) continue;
+
+			// the build may still be writing class files
+			while (true)
+			{
+				Thread.sleep(quietPeriodMS);
+
+				Map<String, String> newStamps = scanStamps();
+
+				if (newStamps.equals(curStamps)) break;
+
+				curStamps = newStamps;
+			}
+
+			Set<String> changedMethodSigs = new TreeSet<String>();
+
+			for (Map.Entry<String, String> me : curStamps.entrySet())
+			{
+				if (me.getValue().equals(classFile2Stamp.get(me.getKey()))) continue;
+
+				for (Map.Entry<String, String> mh : hashMethods(me.getKey()).entrySet())
+				{
+					if ( ! mh.getValue().equals(methodSig2Hash.get(mh.getKey())) ) changedMethodSigs.add(mh.getKey());
+
+					methodSig2Hash.put(mh.getKey(), mh.getValue());
+				}
+			}
+
+			classFile2Stamp = curStamps;
+
+			if ( ! changedMethodSigs.isEmpty() ) return changedMethodSigs;
+		}
+	}
+
+	private Map<String, String> scanStamps()
+	{
+		Map<String, String> stamps = new HashMap<String, String>();
+
+		collectStamps(classDir, "", stamps);
+
+		return stamps;
+	}
+
+	private static void collectStamps(File dir, String relPathPrefix, Map<String, String> stamps)
+	{
+		File[] children = dir.listFiles();
+		if (children == null) return;
+
+		for (File child : children)
+		{
+			String relPath = relPathPrefix + child.getName();
+
+			if (child.isDirectory()) collectStamps(child, relPath + "/", stamps);
+			else if (child.getName().endsWith(".class")) stamps.put(relPath, child.lastModified() + ":" + child.length());
+		}
+	}
+
+	private Map<String, String> hashMethods(String classFileName) throws IOException
+	{
+		Map<String, String> mthSig2Hash = new HashMap<String, String>();
+
+		ClassNode cn = new ClassNode();
+
+		try
+		{
+			new ClassReader(Files.readAllBytes(new File(classDir, classFileName).toPath())).accept(cn, ClassReader.SKIP_FRAMES);
+		}
+		catch (IOException ex)
+		{
+			// the class file was deleted in the meantime
+			return mthSig2Hash;
+		}
+
+		String className = cn.name.replace('/', '.');
+
+		for (MethodNode mn : cn.methods)
+		{
+			Iterator<AbstractInsnNode> insnIt = mn.instructions.iterator();
+			while (insnIt.hasNext())
+			{
+				if (insnIt.next() instanceof LineNumberNode) insnIt.remove();
+			}
+
+			// labels are printed with names given by their order, and therefore the text does not depend on anything else than the code
+			Textifier printer = new Textifier();
+			mn.accept(new TraceMethodVisitor(printer));
+
+			StringWriter text = new StringWriter();
+			printer.print(new PrintWriter(text));
+
+			mthSig2Hash.put(className + "." + mn.name + mn.desc, ContentHash.hashString(mn.access + " " + text.toString()));
+		}
+
+		return mthSig2Hash;
+	}
+}
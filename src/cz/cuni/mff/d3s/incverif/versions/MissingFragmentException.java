@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.versions;
+
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+
+
+/**
+ * Thrown when the version without the given code fragment cannot be created, because its class or method does not exist in the subject program.
+ * Such a code fragment must not be verified, since the version would be identical to the original program.
+ */
+public class MissingFragmentException extends Exception
+{
+	private static final long serialVersionUID = 1L;
+
+	public CodeBlockBoundary modifiedCBB;
+
+
+	public MissingFragmentException(CodeBlockBoundary modifiedCBB, String message)
+	{
+		super(message);
+
+		this.modifiedCBB = modifiedCBB;
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.versions;
+
+import gov.nasa.jpf.Config;
+
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+
+
+/**
+ * Version of the subject program checked by a JPF run.
+ * Classes of the version are loaded from directories on the classpath, and optionally a single class is stripped of the given code fragment in memory when it is loaded by JPF.
+ */
+public class ProgramVersion
+{
+	public static final String CFG_STRIPPED_METHOD = "incverif.version.stripped.method";
+	public static final String CFG_STRIPPED_START = "incverif.version.stripped.start";
+	public static final String CFG_STRIPPED_END = "incverif.version.stripped.end";
+
+	private String classPath;
+
+	// null when all classes are loaded from the classpath without changes
+	private CodeBlockBoundary strippedCBB;
+
+
+	public ProgramVersion(String classPath, CodeBlockBoundary strippedCBB)
+	{
+		this.classPath = classPath;
+
+		this.strippedCBB = strippedCBB;
+	}
+
+	public String getClassPath()
+	{
+		return classPath;
+	}
+
+	/**
+	 * Configures the given JPF run to check this version.
+	 */
+	public void applyTo(Config jpfConfig)
+	{
+		jpfConfig.setProperty("classpath", classPath);
+
+		if (strippedCBB != null)
+		{
+			jpfConfig.setProperty("vm.classloader.class", StrippedVersionClassLoaderInfo.class.getName());
+
+			jpfConfig.setProperty(CFG_STRIPPED_METHOD, strippedCBB.getMethodSignature());
+			jpfConfig.setProperty(CFG_STRIPPED_START, String.valueOf(strippedCBB.startLoc.insnBcIndex));
+			jpfConfig.setProperty(CFG_STRIPPED_END, String.valueOf(strippedCBB.endLoc.insnBcIndex));
+		}
+	}
+
+	public String toString()
+	{
+		if (strippedCBB != null) return classPath + " (in-memory version)";
+
+		return classPath;
+	}
+}
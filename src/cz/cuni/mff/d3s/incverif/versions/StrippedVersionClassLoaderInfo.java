@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.versions;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.vm.VM;
+import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.ClassLoaderInfo;
+import gov.nasa.jpf.vm.ClassFileContainer;
+import gov.nasa.jpf.vm.ClassFileMatch;
+import gov.nasa.jpf.vm.ClassParseException;
+import gov.nasa.jpf.vm.AnnotationInfo;
+import gov.nasa.jpf.jvm.JVMSystemClassLoaderInfo;
+import gov.nasa.jpf.jvm.JVMClassFileContainer;
+
+import cz.cuni.mff.d3s.incverif.common.ProgramPoint;
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+import cz.cuni.mff.d3s.incverif.common.Utils;
+
+
+/**
+ * System class loader that serves the class containing the modified code fragment (defined by configuration properties) without the code fragment.
+ * The modified class is created in memory when it is loaded, and therefore no generated version has to be stored on the disk.
+ * Enabled through the property "vm.classloader.class" (see ProgramVersion).
+ */
+public class StrippedVersionClassLoaderInfo extends JVMSystemClassLoaderInfo
+{
+	private CodeBlockBoundary strippedCBB;
+
+	private String strippedClassName;
+
+
+	public StrippedVersionClassLoaderInfo(VM vm, int appId)
+	{
+		super(vm, appId);
+
+		Config cfg = vm.getConfig();
+
+		String methodSig = cfg.getString(ProgramVersion.CFG_STRIPPED_METHOD);
+
+		if (methodSig != null)
+		{
+			// only bytecode indexes are relevant for removal of the code fragment
+			ProgramPoint startPP = new ProgramPoint(methodSig, -1, -1, cfg.getInt(ProgramVersion.CFG_STRIPPED_START));
+			ProgramPoint endPP = new ProgramPoint(methodSig, -1, -1, cfg.getInt(ProgramVersion.CFG_STRIPPED_END));
+
+			this.strippedCBB = new CodeBlockBoundary(startPP, endPP);
+
+			this.strippedClassName = Utils.extractClassName(methodSig);
+		}
+	}
+
+	protected ClassFileMatch getMatch(String typeName)
+	{
+		ClassFileMatch match = super.getMatch(typeName);
+
+		if ( (strippedClassName == null) || (match == null) || ( ! typeName.equals(strippedClassName) ) ) return match;
+
+		if ( ! (match instanceof JVMClassFileContainer.JVMClassFileMatch) ) throw new JPFException("unsupported class file container for the stripped class " + typeName);
+
+		byte[] strippedClassBytes = VersionGenerator.createStrippedClass(((JVMClassFileContainer.JVMClassFileMatch) match).getData(), strippedCBB);
+
+		// the method does not exist (code fragments whose method does not exist are never verified, see VersionGenerator.generateStrippedVersion)
+		if (strippedClassBytes == null) return match;
+
+		return new StrippedClassFileMatch(match, strippedClassBytes);
+	}
+
+
+	class StrippedClassFileMatch extends ClassFileMatch
+	{
+		private ClassFileMatch origMatch;
+
+		private byte[] data;
+
+
+		StrippedClassFileMatch(ClassFileMatch origMatch, byte[] data)
+		{
+			super(origMatch.typeName, origMatch.url);
+
+			this.origMatch = origMatch;
+
+			this.data = data;
+		}
+
+		public ClassFileContainer getContainer()
+		{
+			return origMatch.getContainer();
+		}
+
+		public ClassInfo createClassInfo(ClassLoaderInfo loader) throws ClassParseException
+		{
+			return StrippedVersionClassLoaderInfo.this.createClassInfo(typeName, url, data, loader);
+		}
+
+		public AnnotationInfo createAnnotationInfo(ClassLoaderInfo loader) throws ClassParseException
+		{
+			return origMatch.createAnnotationInfo(loader);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.versions;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+
+
+/**
+ * Generates program versions for upcoming code fragments in a background thread, while JPF runs for the current code fragments are executed.
+ * The number of versions generated ahead (i.e., not yet taken by the consumer) is bounded by the lookahead depth, which limits the disk usage.
+ * With the lookahead depth 0, every version is generated synchronously when it is requested.
+ */
+public class VersionGenerationPipeline
+{
+	private VersionGenerator generator;
+
+	// all code fragments in the order in which their versions will be requested
+	private List<CodeBlockBoundary> fragments;
+
+	private Map<CodeBlockBoundary, CompletableFuture<Void>> fragment2Version;
+
+	// permits correspond to free slots for versions generated ahead
+	private Semaphore freeSlots;
+
+	private Thread producer;
+
+
+	public VersionGenerationPipeline(VersionGenerator generator, List<CodeBlockBoundary> fragments, int lookahead)
+	{
+		this.generator = generator;
+
+		this.fragments = new ArrayList<CodeBlockBoundary>(fragments);
+
+		this.fragment2Version = new HashMap<CodeBlockBoundary, CompletableFuture<Void>>();
+		for (CodeBlockBoundary cbb : this.fragments) this.fragment2Version.put(cbb, new CompletableFuture<Void>());
+
+		this.freeSlots = new Semaphore(lookahead);
+
+		if (lookahead > 0)
+		{
+			this.producer = new Thread(new Runnable()
+			{
+				public void run()
+				{
+					generateAll();
+				}
+			});
+
+			// the tool must be able to terminate when it stops early because of some error
+			this.producer.setDaemon(true);
+
+			this.producer.start();
+		}
+	}
+
+	private void generateAll()
+	{
+		for (CodeBlockBoundary cbb : fragments)
+		{
+			try
+			{
+				freeSlots.acquire();
+			}
+			catch (InterruptedException ex)
+			{
+				return;
+			}
+
+			CompletableFuture<Void> version = fragment2Version.get(cbb);
+
+			try
+			{
+				generator.generateStrippedVersion(cbb);
+
+				version.complete(null);
+			}
+			catch (Throwable ex)
+			{
+				version.completeExceptionally(ex);
+			}
+		}
+	}
+
+	/**
+	 * Waits until the version of the subject program without the given code fragment is ready.
+	 * Throws the exception reported by the generator when the generation failed.
+	 */
+	public void awaitVersion(CodeBlockBoundary modifiedCBB) throws Exception
+	{
+		CompletableFuture<Void> version = fragment2Version.get(modifiedCBB);
+
+		// synchronous mode (or a code fragment not announced in advance)
+		if ( (producer == null) || (version == null) )
+		{
+			generator.generateStrippedVersion(modifiedCBB);
+			return;
+		}
+
+		try
+		{
+			version.get();
+		}
+		catch (ExecutionException ex)
+		{
+			if (ex.getCause() instanceof Exception) throw (Exception) ex.getCause();
+			throw ex;
+		}
+		finally
+		{
+			// the version was taken, so the producer can continue with the next one
+			freeSlots.release();
+		}
+	}
+
+	public void shutdown()
+	{
+		if (producer != null) producer.interrupt();
+	}
+}
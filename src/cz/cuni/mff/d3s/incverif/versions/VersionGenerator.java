@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.versions;
+
+import java.util.Map;
+import java.util.HashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Files;
+import java.nio.file.FileSystems;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LineNumberNode;
+
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+import cz.cuni.mff.d3s.incverif.common.Utils;
+
+import cz.cuni.mff.d3s.multiver.MultiVerGenMain;
+import cz.cuni.mff.d3s.multiver.SourceLocation;
+import cz.cuni.mff.d3s.multiver.SourceLocations;
+
+
+/**
+ * Generates versions of the subject program that do not contain a given modified code fragment.
+ * There are two modes.
+ * In the layered mode (default), all classes of the subject program are read just once, and every version contains only the single class that differs from the original program, while all other classes are loaded from the original directory (layered classpath).
+ * In the full mode, every version is a complete copy of the subject program created by the multiver generator tool implemented by Filip Kliber.
+ * In the in-memory mode, nothing is written to the disk and the modified class is created by the JPF run itself when it loads the class (see StrippedVersionClassLoaderInfo).
+ */
+public class VersionGenerator
+{
+	private Path targetClassPath;
+
+	private String genVersionsPathPrefix;
+
+	private boolean layered;
+
+	private boolean inMemory;
+
+	// content of all class files of the subject program (loaded on demand), indexed by internal class names
+	private Map<String, byte[]> className2Bytes;
+
+
+	public VersionGenerator(String targetClassPathStr, String genVersionsPathPrefixStr, boolean layered, boolean inMemory)
+	{
+		this.targetClassPath = FileSystems.getDefault().getPath(targetClassPathStr);
+
+		this.genVersionsPathPrefix = genVersionsPathPrefixStr;
+
+		this.layered = layered;
+
+		this.inMemory = inMemory;
+
+		this.className2Bytes = null;
+	}
+
+	public boolean isInMemory()
+	{
+		return inMemory;
+	}
+
+	/**
+	 * Returns the version of the subject program without the given modified code fragment.
+	 */
+	public ProgramVersion getVersion(CodeBlockBoundary modifiedCBB)
+	{
+		if (inMemory) return new ProgramVersion(".," + targetClassPath.toString(), modifiedCBB);
+
+		return new ProgramVersion(".," + getVersionClassPath(modifiedCBB), null);
+	}
+
+	/**
+	 * Returns the original version of the subject program.
+	 */
+	public ProgramVersion getOriginalVersion()
+	{
+		return new ProgramVersion(".," + targetClassPath.toString(), null);
+	}
+
+	/**
+	 * Returns the classpath (list of directories separated by commas) through which all classes of the version without the given modified code fragment are available.
+	 */
+	public String getVersionClassPath(CodeBlockBoundary modifiedCBB)
+	{
+		if (layered) return getStrippedVersionPath(modifiedCBB) + "," + targetClassPath.toString();
+
+		return getStrippedVersionPath(modifiedCBB);
+	}
+
+	/**
+	 * Returns the directory that contains the generated classes of the version without the given modified code fragment.
+	 */
+	public String getStrippedVersionPath(CodeBlockBoundary modifiedCBB)
+	{
+		return getVersionPathUnique(modifiedCBB) + File.separator + "stripped";
+	}
+
+	private String getVersionPathUnique(CodeBlockBoundary modifiedCBB)
+	{
+		// we have to define a separate unique directory name for every "modified code fragment", because the generator requires a completely empty target directory (where it puts the modified Java bytecode class files)
+		return genVersionsPathPrefix + File.separator + modifiedCBB.hashCode();
+	}
+
+	public synchronized void generateStrippedVersion(CodeBlockBoundary modifiedCBB) throws Exception
+	{
+		// each JPF run creates the modified class by itself, but we still have to make sure that it will really differ from the original one
+		if (inMemory)
+		{
+			checkFragmentExists(modifiedCBB);
+			return;
+		}
+
+		if (layered) generateLayeredVersion(modifiedCBB);
+		else generateFullVersion(modifiedCBB);
+	}
+
+	private void generateFullVersion(CodeBlockBoundary modifiedCBB) throws Exception
+	{
+		String cbbFullMethodSig = modifiedCBB.getMethodSignature();
+
+		String cbbClassName = Utils.extractClassName(cbbFullMethodSig);
+		String cbbMethodName = Utils.extractPlainMethodName(cbbFullMethodSig);
+		String cbbMethodDesc = Utils.extractMethodDescriptor(cbbFullMethodSig);
+
+		SourceLocations allSourceLocs = new SourceLocations();
+
+		SourceLocation locModifiedCBB = new SourceLocation(cbbClassName.replace('.', '/'), cbbMethodName, cbbMethodDesc);
+
+		// end location is exclusive so we have to increment the value by 1
+		locModifiedCBB.addRange(modifiedCBB.startLoc.insnBcIndex, modifiedCBB.endLoc.insnBcIndex + 1);
+
+		allSourceLocs.add(locModifiedCBB);
+
+		Path genVersionsPathUniqueObj = FileSystems.getDefault().getPath(getVersionPathUnique(modifiedCBB));
+
+		// the generator requires an empty directory, but there may be leftovers from an interrupted execution of the tool
+		deleteDirectory(genVersionsPathUniqueObj.toFile());
+
+		MultiVerGenMain.run(targetClassPath, allSourceLocs, genVersionsPathUniqueObj);
+	}
+
+	private void generateLayeredVersion(CodeBlockBoundary modifiedCBB) throws Exception
+	{
+		if (className2Bytes == null) loadAllClasses();
+
+		String cbbFullMethodSig = modifiedCBB.getMethodSignature();
+
+		String cbbInternalClassName = Utils.extractClassName(cbbFullMethodSig).replace('.', '/');
+
+		File strippedVersionDir = new File(getStrippedVersionPath(modifiedCBB));
+
+		// there may be leftovers from an interrupted execution of the tool
+		deleteDirectory(new File(getVersionPathUnique(modifiedCBB)));
+
+		strippedVersionDir.mkdirs();
+
+		byte[] origClassBytes = className2Bytes.get(cbbInternalClassName);
+
+		if (origClassBytes == null) throw new MissingFragmentException(modifiedCBB, "class " + cbbInternalClassName + " does not exist in the subject program");
+
+		byte[] strippedClassBytes = createStrippedClass(origClassBytes, modifiedCBB);
+
+		if (strippedClassBytes == null) throw new MissingFragmentException(modifiedCBB, "method " + cbbFullMethodSig + " does not exist in the subject program");
+
+		File strippedClassFile = new File(strippedVersionDir, cbbInternalClassName + ".class");
+		strippedClassFile.getParentFile().mkdirs();
+
+		Files.write(strippedClassFile.toPath(), strippedClassBytes);
+	}
+
+	/**
+	 * Checks that the class and the method of the given modified code fragment exist in the subject program, and throws MissingFragmentException otherwise.
+	 */
+	private void checkFragmentExists(CodeBlockBoundary modifiedCBB) throws Exception
+	{
+		if (className2Bytes == null) loadAllClasses();
+
+		String cbbFullMethodSig = modifiedCBB.getMethodSignature();
+
+		String cbbInternalClassName = Utils.extractClassName(cbbFullMethodSig).replace('.', '/');
+
+		byte[] origClassBytes = className2Bytes.get(cbbInternalClassName);
+
+		if (origClassBytes == null) throw new MissingFragmentException(modifiedCBB, "class " + cbbInternalClassName + " does not exist in the subject program");
+
+		ClassNode cn = new ClassNode();
+		new ClassReader(origClassBytes).accept(cn, ClassReader.SKIP_CODE);
+
+		for (MethodNode mn : cn.methods)
+		{
+			if (mn.name.equals(Utils.extractPlainMethodName(cbbFullMethodSig)) && mn.desc.equals(Utils.extractMethodDescriptor(cbbFullMethodSig))) return;
+		}
+
+		throw new MissingFragmentException(modifiedCBB, "method " + cbbFullMethodSig + " does not exist in the subject program");
+	}
+
+	public static byte[] createStrippedClass(byte[] origClassBytes, CodeBlockBoundary modifiedCBB)
+	{
+		String cbbFullMethodSig = modifiedCBB.getMethodSignature();
+
+		String cbbInternalClassName = Utils.extractClassName(cbbFullMethodSig).replace('.', '/');
+		String cbbMethodName = Utils.extractPlainMethodName(cbbFullMethodSig);
+		String cbbMethodDesc = Utils.extractMethodDescriptor(cbbFullMethodSig);
+
+		// every version starts from the original class
+		ClassNode cn = new ClassNode();
+		new ClassReader(origClassBytes).accept(cn, 0);
+
+		MethodNode cbbMethod = null;
+		for (MethodNode mn : cn.methods)
+		{
+			if (mn.name.equals(cbbMethodName) && mn.desc.equals(cbbMethodDesc)) cbbMethod = mn;
+		}
+
+		if (cbbMethod == null)
+		{
+			System.err.println("Warning: Location for class " + cbbInternalClassName + " and method " + cbbMethodName + cbbMethodDesc + " exists, but no such method exists within the class.");
+			return null;
+		}
+
+		removeInstructions(cbbMethod, modifiedCBB.startLoc.insnBcIndex, modifiedCBB.endLoc.insnBcIndex - modifiedCBB.startLoc.insnBcIndex + 1);
+
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+		cn.accept(cw);
+
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Removes the given number of instructions starting at the given index, where labels, stack map frames, and line numbers are not counted as instructions (the same semantics as in the multiver generator tool).
+	 */
+	private static void removeInstructions(MethodNode mn, int startIndex, int count)
+	{
+		int curIndex = 0;
+
+		for (AbstractInsnNode insn : mn.instructions.toArray())
+		{
+			if ( (insn instanceof FrameNode) || (insn instanceof LabelNode) || (insn instanceof LineNumberNode) ) continue;
+
+			if ( (curIndex >= startIndex) && (curIndex < startIndex + count) ) mn.instructions.remove(insn);
+
+			curIndex++;
+		}
+	}
+
+	private void loadAllClasses() throws IOException
+	{
+		className2Bytes = new HashMap<String, byte[]>();
+
+		loadClassesFromDirectory(targetClassPath.toFile());
+	}
+
+	private void loadClassesFromDirectory(File dir) throws IOException
+	{
+		File[] children = dir.listFiles();
+		if (children == null) return;
+
+		for (File child : children)
+		{
+			if (child.isDirectory())
+			{
+				loadClassesFromDirectory(child);
+			}
+			else if (child.getName().toLowerCase().endsWith(".class"))
+			{
+				byte[] classBytes = Files.readAllBytes(child.toPath());
+
+				className2Bytes.put(new ClassReader(classBytes).getClassName(), classBytes);
+			}
+		}
+	}
+
+	private static void deleteDirectory(File dir)
+	{
+		File[] children = dir.listFiles();
+
+		if (children != null)
+		{
+			for (File child : children) deleteDirectory(child);
+		}
+
+		dir.delete();
+	}
+}
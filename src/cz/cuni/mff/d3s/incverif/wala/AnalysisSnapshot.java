@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.wala;
+
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.LinkedHashSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+
+import cz.cuni.mff.d3s.incverif.common.ProgramPoint;
+import cz.cuni.mff.d3s.incverif.common.CodeBlockBoundary;
+import cz.cuni.mff.d3s.incverif.common.ContentHash;
+
+
+/**
+ * Results of the static analysis that are used by the rest of the tool (modified code fragments and call edges between methods), stored in a binary file so that the call graph and pointer analysis do not have to be computed again for the same subject program.
+ * Snapshots are addressed by hashes of the class files of the subject program and of the exclusion file, together with other inputs that influence the analysis.
+ */
+public class AnalysisSnapshot
+{
+	// must be changed whenever the format or the meaning of stored data changes
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int MAGIC = 0x494E4341;
+
+	// call edges between methods (see WALAContext.mthSig2CalleeSigs)
+	public Map<String, Set<String>> mthSig2CalleeSigs;
+
+	// all relevant modified code fragments identified by the static analysis (in the original order)
+	public Set<CodeBlockBoundary> codeBlocks;
+
+
+	public AnalysisSnapshot(Map<String, Set<String>> mthSig2CalleeSigs, Set<CodeBlockBoundary> codeBlocks)
+	{
+		this.mthSig2CalleeSigs = mthSig2CalleeSigs;
+
+		this.codeBlocks = codeBlocks;
+	}
+
+	public static String computeKey(String mainClassName, String targetClassPath, String exclusionFilePath, boolean bytecodeAllClasses) throws IOException
+	{
+		MessageDigest md = ContentHash.createDigest();
+
+		ContentHash.update(md, String.valueOf(FORMAT_VERSION));
+
+		ContentHash.update(md, mainClassName);
+
+		ContentHash.update(md, ContentHash.hashClassPathEntry(new File(targetClassPath)));
+
+		ContentHash.update(md, ContentHash.hashClassPathEntry(new File(exclusionFilePath)));
+
+		ContentHash.update(md, String.valueOf(bytecodeAllClasses));
+
+		// library classes are taken from the JDK that runs the tool
+		ContentHash.update(md, System.getProperty("java.home") + " " + System.getProperty("java.version"));
+
+		return ContentHash.toHex(md.digest());
+	}
+
+	/**
+	 * Returns the snapshot with the given key, or null when it does not exist or it cannot be read.
+	 */
+	public static AnalysisSnapshot load(File cacheDir, String key)
+	{
+		File snapshotFile = getSnapshotFile(cacheDir, key);
+
+		if ( ! snapshotFile.isFile() ) return null;
+
+		DataInputStream in = null;
+
+		try
+		{
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+
+			if (in.readInt() != MAGIC) return null;
+			if (in.readInt() != FORMAT_VERSION) return null;
+			if ( ! in.readUTF().equals(key) ) return null;
+
+			Map<String, Set<String>> mthSig2CalleeSigs = new LinkedHashMap<String, Set<String>>();
+
+			int numMethods = in.readInt();
+
+			for (int i = 0; i < numMethods; i++)
+			{
+				String mthSig = in.readUTF();
+
+				Set<String> calleeSigs = new LinkedHashSet<String>();
+
+				int numCallees = in.readInt();
+				for (int j = 0; j < numCallees; j++) calleeSigs.add(in.readUTF());
+
+				mthSig2CalleeSigs.put(mthSig, calleeSigs);
+			}
+
+			Set<CodeBlockBoundary> codeBlocks = new LinkedHashSet<CodeBlockBoundary>();
+
+			int numCodeBlocks = in.readInt();
+
+			for (int i = 0; i < numCodeBlocks; i++)
+			{
+				ProgramPoint startPP = readProgramPoint(in);
+				ProgramPoint endPP = readProgramPoint(in);
+
+				codeBlocks.add(new CodeBlockBoundary(startPP, endPP));
+			}
+
+			return new AnalysisSnapshot(mthSig2CalleeSigs, codeBlocks);
+		}
+		catch (Exception ex)
+		{
+			// broken snapshots are simply ignored
+			return null;
+		}
+		finally
+		{
+			try
+			{
+				if (in != null) in.close();
+			}
+			catch (IOException ex) {}
+		}
+	}
+
+	public void store(File cacheDir, String key)
+	{
+		try
+		{
+			File snapshotFile = getSnapshotFile(cacheDir, key);
+
+			snapshotFile.getParentFile().mkdirs();
+
+			// the snapshot is written atomically, so that interrupted runs never leave a partial snapshot behind
+			File tmpFile = File.createTempFile("snapshot", ".tmp", snapshotFile.getParentFile());
+
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+
+			try
+			{
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(key);
+
+				out.writeInt(mthSig2CalleeSigs.size());
+
+				for (Map.Entry<String, Set<String>> me : mthSig2CalleeSigs.entrySet())
+				{
+					out.writeUTF(me.getKey());
+
+					out.writeInt(me.getValue().size());
+					for (String calleeSig : me.getValue()) out.writeUTF(calleeSig);
+				}
+
+				out.writeInt(codeBlocks.size());
+
+				for (CodeBlockBoundary cbb : codeBlocks)
+				{
+					writeProgramPoint(out, cbb.startLoc);
+					writeProgramPoint(out, cbb.endLoc);
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+
+			Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (Exception ex)
+		{
+			System.err.println("[ERROR] cannot store results of the static analysis into cache: " + ex.getMessage());
+		}
+	}
+
+	private static void writeProgramPoint(DataOutputStream out, ProgramPoint pp) throws IOException
+	{
+		out.writeUTF(pp.methodSig);
+		out.writeInt(pp.insnIndex);
+		out.writeInt(pp.insnBcPos);
+		out.writeInt(pp.insnBcIndex);
+	}
+
+	private static ProgramPoint readProgramPoint(DataInputStream in) throws IOException
+	{
+		String mthSig = in.readUTF();
+		int insnIndex = in.readInt();
+		int insnBcPos = in.readInt();
+		int insnBcIndex = in.readInt();
+
+		return new ProgramPoint(mthSig, insnIndex, insnBcPos, insnBcIndex);
+	}
+
+	private static File getSnapshotFile(File cacheDir, String key)
+	{
+		return new File(cacheDir, key + ".analysis");
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2022, Charles University.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cz.cuni.mff.d3s.incverif.wala;
+
+import java.util.Map;
+
+import java.io.IOException;
+
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.config.SetOfClasses;
+
+
+/**
+ * Creates class loaders for a new class hierarchy, but reuses the loaders for library classes (primordial and extension) that were created for some previous class hierarchy.
+ * Library classes are then parsed only once for all subject programs analyzed in the same JVM, and only the application loader is created again for every program.
+ * Shared library classes keep the reference to the first class hierarchy, which is fine because they never refer to application classes.
+ */
+public class SharedLibraryClassLoaderFactory extends ClassLoaderFactoryImpl
+{
+	// loaders for library classes that can be reused by the next class hierarchy
+	private Map<ClassLoaderReference, IClassLoader> libraryLoaders;
+
+
+	public SharedLibraryClassLoaderFactory(SetOfClasses exclusions, Map<ClassLoaderReference, IClassLoader> libraryLoaders)
+	{
+		super(exclusions);
+
+		this.libraryLoaders = libraryLoaders;
+	}
+
+	protected IClassLoader makeNewClassLoader(ClassLoaderReference loaderRef, IClassHierarchy cha, IClassLoader parent, AnalysisScope scope) throws IOException
+	{
+		// application and synthetic loaders always belong to the new class hierarchy
+		if ( ! ( loaderRef.equals(ClassLoaderReference.Primordial) || loaderRef.equals(ClassLoaderReference.Extension) ) ) return super.makeNewClassLoader(loaderRef, cha, parent, scope);
+
+		IClassLoader loader = libraryLoaders.get(loaderRef);
+
+		if (loader == null)
+		{
+			loader = super.makeNewClassLoader(loaderRef, cha, parent, scope);
+
+			libraryLoaders.put(loaderRef, loader);
+		}
+
+		return loader;
+	}
+}
@@ -19,6 +19,8 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.Iterator;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.CGNode;
@@ -34,7 +36,8 @@ public class TypeAnalysisData
 
 	public TypeAnalysisData()
 	{
-		mthSig2TypeInfo = new HashMap<String, TypeInference>();
+		// methods may be analyzed concurrently
+		mthSig2TypeInfo = new ConcurrentHashMap<String, TypeInference>();
 	}
 
 	public TypeInference getMethodTypeInfo(String mthSig, IR mthIR)
@@ -45,7 +48,10 @@ public class TypeAnalysisData
 		{
 			typeInfo = TypeInference.make(mthIR, true);
 
-			mthSig2TypeInfo.put(mthSig, typeInfo);
+			// another thread may have computed the same data in the meantime
+			TypeInference prevTypeInfo = mthSig2TypeInfo.putIfAbsent(mthSig, typeInfo);
+
+			if (prevTypeInfo != null) typeInfo = prevTypeInfo;
 		}
 
 		return typeInfo;		
@@ -16,8 +16,11 @@
 package cz.cuni.mff.d3s.incverif.wala;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.HashMap;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
@@ -46,16 +49,20 @@ public class WALAContext
 	public CallGraph callGraph;
 	public PointerAnalysis pointerAnalysis;
 	
-	public ExplodedInterproceduralCFG interprocCFG;
+	// built on demand (see getInterprocCFG), because it takes a lot of memory for large programs and our collectors need just the IR of each call graph node
+	private ExplodedInterproceduralCFG interprocCFG;
 
 	public AllocationSitesData allocSitesData;
 
 	public TypeAnalysisData typeData;
 
+	// for each method signature, signatures of all methods that may be called from it (calls of Thread.start are not included, because they cross thread boundaries)
+	public Map<String, Set<String>> mthSig2CalleeSigs;
+
 	// for each method signature, a map from bytecode positions to (real/actual) bytecode indexes
 	public Map<String, Map<Integer, Integer>> mthSig2BcPosIdx;
 
-	// useful caches
+	// useful caches (thread-safe, because they are filled lazily also when the program code is scanned in parallel)
 
 	public Map<String, CGNode> mthSig2CGNode;
 	public Map<String, IClass> clsName2Obj;
@@ -65,10 +72,20 @@ public class WALAContext
 
 	public WALAContext()
 	{
-		mthSig2CGNode = new HashMap<String, CGNode>();
-		clsName2Obj = new HashMap<String, IClass>();
-		clsObj2Name = new HashMap<IClass, String>();
-		typeRef2Name = new HashMap<TypeReference, String>(); 
+		mthSig2CGNode = new ConcurrentHashMap<String, CGNode>();
+		clsName2Obj = new ConcurrentHashMap<String, IClass>();
+		clsObj2Name = new ConcurrentHashMap<IClass, String>();
+		typeRef2Name = new ConcurrentHashMap<TypeReference, String>();
+	}
+
+	/**
+	 * Returns the exploded interprocedural CFG for the current call graph, which is created when requested for the first time.
+	 */
+	public synchronized ExplodedInterproceduralCFG getInterprocCFG()
+	{
+		if (interprocCFG == null) interprocCFG = ExplodedInterproceduralCFG.make(callGraph);
+
+		return interprocCFG;
 	}
 
 }
@@ -20,13 +20,18 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Iterator;
 
 import java.io.File;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IClassLoader;
 import com.ibm.wala.classLoader.IField;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.classLoader.IBytecodeMethod; 
@@ -43,6 +48,7 @@ import com.ibm.wala.ipa.callgraph.propagation.AllocationSiteInNode;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSAInvokeInstruction;
 import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.TypeReference; 
 import com.ibm.wala.types.FieldReference;
 import com.ibm.wala.types.MethodReference; 
@@ -57,13 +63,25 @@ import cz.cuni.mff.d3s.incverif.JPFDecoratorFactory;
 
 public class WALAUtils
 {
+	// loaders for library classes shared by all class hierarchies with the same exclusion file (null means that every class hierarchy is built from scratch)
+	private static Map<String, Map<ClassLoaderReference, IClassLoader>> exclusionFile2LibraryLoaders = null;
+
+
+	/**
+	 * Library classes (JDK, JPF models) will be loaded only once for all subject programs analyzed in the current JVM.
+	 */
+	public static void enableLibrarySharing()
+	{
+		if (exclusionFile2LibraryLoaders == null) exclusionFile2LibraryLoaders = new HashMap<String, Map<ClassLoaderReference, IClassLoader>>();
+	}
+
 	public static WALAContext initLibrary(String mainClassName, String targetClassPath, String walaExclusionFilePath) throws Exception
 	{
 		WALAContext walaCtx = new WALAContext();
 
 		walaCtx.scope = createAnalysisScope(targetClassPath, walaExclusionFilePath);
 
-		walaCtx.classHierarchy = makeClassHierarchy(walaCtx.scope);
+		walaCtx.classHierarchy = makeClassHierarchy(walaCtx.scope, walaExclusionFilePath);
 
 		walaCtx.entryPoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(walaCtx.scope, walaCtx.classHierarchy, Utils.getInternalClassName(mainClassName, false));
 
@@ -72,7 +90,8 @@ public class WALAUtils
 
 		walaCtx.cache = new AnalysisCache();
 
-		walaCtx.mthSig2BcPosIdx = createMapFromBytecodePositionToIndex(walaCtx.classHierarchy);
+		// maps for methods of application classes are created together with other bytecode data (see BytecodeScanner), and for other methods on demand
+		walaCtx.mthSig2BcPosIdx = new ConcurrentHashMap<String, Map<Integer, Integer>>();
 
 		return walaCtx;
 	}
@@ -88,50 +107,67 @@ public class WALAUtils
 		return scope;
 	}
 	
-	private static IClassHierarchy makeClassHierarchy(AnalysisScope scope) throws Exception
+	private static IClassHierarchy makeClassHierarchy(AnalysisScope scope, String exclusionFilePath) throws Exception
 	{	
-		return ClassHierarchy.make(scope);
-	}
+		if (exclusionFile2LibraryLoaders == null) return ClassHierarchy.make(scope);
 
-	private static Map<String, Map<Integer, Integer>> createMapFromBytecodePositionToIndex(IClassHierarchy classHierarchy) throws Exception
-	{
-		Map<String, Map<Integer, Integer>> mthSig2BcPosIdx = new HashMap<String, Map<Integer, Integer>>();
+		// library classes loaded with different exclusions cannot be shared
+		Map<ClassLoaderReference, IClassLoader> libraryLoaders = exclusionFile2LibraryLoaders.get(exclusionFilePath);
 
-		for (IClass cls : classHierarchy)
+		if (libraryLoaders == null)
 		{
-			for (IMethod mth : cls.getDeclaredMethods())
-			{
-				String mthSig = mth.getSignature();
+			libraryLoaders = new HashMap<ClassLoaderReference, IClassLoader>();
+			exclusionFile2LibraryLoaders.put(exclusionFilePath, libraryLoaders);
+		}
 
-				if ( ! (mth instanceof IBytecodeMethod) ) continue;
+		return ClassHierarchy.make(scope, new SharedLibraryClassLoaderFactory(scope.getExclusions(), libraryLoaders));
+	}
 
-				IBytecodeMethod bcMth = (IBytecodeMethod) mth;
+	/**
+	 * Returns the map from bytecode positions to bytecode indexes for the given method, which is created when it does not exist yet.
+	 */
+	public static Map<Integer, Integer> getBytecodePositionToIndexMap(IBytecodeMethod bcMth, WALAContext walaCtx)
+	{
+		String mthSig = bcMth.getSignature();
 
-				Map<Integer, Integer> mthBcPos2Idx = new HashMap<Integer, Integer>();
-				mthSig2BcPosIdx.put(mthSig, mthBcPos2Idx);
+		Map<Integer, Integer> mthBcPos2Idx = walaCtx.mthSig2BcPosIdx.get(mthSig);
 
-				IInstruction[] mthInstructions = bcMth.getInstructions();
+		if (mthBcPos2Idx != null) return mthBcPos2Idx;
 
-				if (mthInstructions == null) continue;
+		mthBcPos2Idx = new HashMap<Integer, Integer>();
 
-				int prevInsnBcPos = -1;
-				int curInsnBcIndex = -1;
+		IInstruction[] mthInstructions = null;
 
-				for (int curInsnIdx = 0; curInsnIdx < mthInstructions.length; ++curInsnIdx)
-				{
-					int curInsnBcPos = getInsnBytecodePos(bcMth, curInsnIdx);
+		try
+		{
+			mthInstructions = bcMth.getInstructions();
+		}
+		catch (Exception ex) {}
 
-					// when two adjacent instructions have the same bytecode position, then we do not increment the bytecode index
-					if (curInsnBcPos != prevInsnBcPos) curInsnBcIndex++;
+		if (mthInstructions != null)
+		{
+			int prevInsnBcPos = -1;
+			int curInsnBcIndex = -1;
 
-					mthBcPos2Idx.put(curInsnBcPos, curInsnBcIndex);
+			for (int curInsnIdx = 0; curInsnIdx < mthInstructions.length; ++curInsnIdx)
+			{
+				int curInsnBcPos = getInsnBytecodePos(bcMth, curInsnIdx);
 
-					prevInsnBcPos = curInsnBcPos;
-				}
+				// when two adjacent instructions have the same bytecode position, then we do not increment the bytecode index
+				if (curInsnBcPos != prevInsnBcPos) curInsnBcIndex++;
+
+				mthBcPos2Idx.put(curInsnBcPos, curInsnBcIndex);
+
+				prevInsnBcPos = curInsnBcPos;
 			}
 		}
 
-		return mthSig2BcPosIdx;
+		// methods may be processed concurrently (see ProgramCodeScanner)
+		Map<Integer, Integer> prevBcPos2Idx = walaCtx.mthSig2BcPosIdx.putIfAbsent(mthSig, mthBcPos2Idx);
+
+		if (prevBcPos2Idx != null) return prevBcPos2Idx;
+
+		return mthBcPos2Idx;
 	}
 
 	public static void loadMethodNodesCache(WALAContext walaCtx)
@@ -144,6 +180,51 @@ public class WALAUtils
 		}
 	}
 	
+	/**
+	 * Summarizes the call graph as call edges between method signatures, which is all that the tool needs from the call graph after the static analysis (see AnalysisSnapshot).
+	 */
+	public static Map<String, Set<String>> createCallEdgesMap(WALAContext walaCtx) throws Exception
+	{
+		Map<String, Set<String>> mthSig2CalleeSigs = new LinkedHashMap<String, Set<String>>();
+
+		IClass threadCls = findClass("java.lang.Thread", walaCtx);
+
+		for (CGNode mthNode : walaCtx.callGraph)
+		{
+			String mthSig = mthNode.getMethod().getSignature();
+
+			// multiple nodes (contexts) of the same method are merged
+			Set<String> calleeSigs = mthSig2CalleeSigs.get(mthSig);
+
+			if (calleeSigs == null)
+			{
+				calleeSigs = new LinkedHashSet<String>();
+				mthSig2CalleeSigs.put(mthSig, calleeSigs);
+			}
+
+			Iterator<CallSiteReference> callSitesIt = mthNode.iterateCallSites();
+
+			while (callSitesIt.hasNext())
+			{
+				CallSiteReference callSite = callSitesIt.next();
+
+				for ( CGNode calleeNode : walaCtx.callGraph.getPossibleTargets(mthNode, callSite) )
+				{
+					IMethod calleeMth = calleeNode.getMethod();
+
+					String calleeMthSig = calleeMth.getSignature();
+
+					// we should not cross thread start boundary
+					if ( calleeMthSig.contains(".start()V") && walaCtx.classHierarchy.isSubclassOf(calleeMth.getDeclaringClass(), threadCls) ) continue;
+
+					calleeSigs.add(calleeMthSig);
+				}
+			}
+		}
+
+		return mthSig2CalleeSigs;
+	}
+
 	public static String getClassName(IClass cls, WALAContext walaCtx) throws Exception
 	{
 		if (cls == null) return null;
@@ -154,7 +235,7 @@ public class WALAUtils
 		
 		clsName = getTypeNameStr(cls.getName());
 		
-		walaCtx.clsObj2Name.put(cls, clsName);
+		if (clsName != null) walaCtx.clsObj2Name.put(cls, clsName);
 					
 		return clsName;
 	}
@@ -184,7 +265,8 @@ public class WALAUtils
 		{
 			String typeStr = getTypeNameStr(typeRef.getName());
 
-			walaCtx.typeRef2Name.put(typeRef, typeStr);
+			// the cache does not support null values
+			if (typeStr != null) walaCtx.typeRef2Name.put(typeRef, typeStr);
 
 			return typeStr;
 		}
@@ -448,9 +530,9 @@ public class WALAUtils
 
 	public static int getInsnBytecodeIndex(IMethod mth, int insnBcPos, WALAContext walaCtx)
 	{
-		Map<Integer, Integer> mthBcPos2Idx = walaCtx.mthSig2BcPosIdx.get(mth.getSignature());
+		if ( ! (mth instanceof IBytecodeMethod) ) return -1;
 
-		if (mthBcPos2Idx == null) return -1;
+		Map<Integer, Integer> mthBcPos2Idx = getBytecodePositionToIndexMap((IBytecodeMethod) mth, walaCtx);
 
 		Integer insnBcIdx = mthBcPos2Idx.get(insnBcPos);
 
@@ -787,35 +869,20 @@ public class WALAUtils
 
 			visitedMthSigs.add(curMthSig);
 
-			IMethod curMth = findMethod(curMthSig, walaCtx);
+			Set<String> calleeSigs = walaCtx.mthSig2CalleeSigs.get(curMthSig);
+
+			// the method is not reachable in the call graph
+			if (calleeSigs == null) continue;
 
 			// loop over methods called from within the current one
 
-			for ( CGNode curMthNode : walaCtx.callGraph.getNodes(curMth.getReference()) )
+			for (String calleeMthSig : calleeSigs)
 			{
-				Iterator<CallSiteReference> callSitesIt = curMthNode.iterateCallSites();
-
-				while (callSitesIt.hasNext())
-				{
-					CallSiteReference callSite = callSitesIt.next();
-
-					for ( CGNode calleeNode : walaCtx.callGraph.getPossibleTargets(curMthNode, callSite) )
-					{
-						IMethod calleeMth = calleeNode.getMethod();
-
-						String calleeMthSig = calleeMth.getSignature();
-
-						// we should not cross thread start boundary
-						if ( calleeMthSig.contains(".start()V") && walaCtx.classHierarchy.isSubclassOf(calleeMth.getDeclaringClass(), findClass("java.lang.Thread", walaCtx)) ) continue;
-
+				if (targetMthSig.equals(calleeMthSig)) return true;
 
-						if (targetMthSig.equals(calleeMthSig)) return true;
+				if (visitedMthSigs.contains(calleeMthSig)) continue;
 
-						if (visitedMthSigs.contains(calleeMthSig)) continue;
-
-						mthWorklist.add(calleeMthSig);
-					}
-				}
+				mthWorklist.add(calleeMthSig);
 			}
 		}
 